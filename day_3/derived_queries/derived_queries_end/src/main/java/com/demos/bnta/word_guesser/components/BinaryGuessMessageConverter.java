@@ -0,0 +1,111 @@
+package com.demos.bnta.word_guesser.components;
+
+import com.demos.bnta.word_guesser.models.Guess;
+import com.demos.bnta.word_guesser.models.Reply;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Fixed-layout encoding for mobile clients, picked by Content-Type / Accept.
+//
+// Guess (PATCH /games/{id} body): 1 byte, the guessed letter.
+//
+// Reply (POST /games, PATCH /games/{id}):
+//   8 bytes  game id, big-endian
+//   1 byte   flags: CORRECT, COMPLETE
+//   1 byte   word length n
+//   n bytes  word state, '*' for letters not yet guessed
+//
+// The message is left out; clients build their own text from the flags.
+public class BinaryGuessMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    public static final MediaType BINARY_GUESS = new MediaType("application", "x-word-guesser");
+
+    public static final int CORRECT = 1;
+    public static final int COMPLETE = 1 << 1;
+
+    private static final int REPLY_HEADER_BYTES = Long.BYTES + 2;
+
+    public BinaryGuessMessageConverter() {
+        super(BINARY_GUESS);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == Guess.class || clazz == Reply.class;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return clazz == Guess.class && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return clazz == Reply.class && canWrite(mediaType);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        InputStream body = inputMessage.getBody();
+        int letter = body.read();
+        if (letter < 0 || body.read() >= 0) {
+            throw new HttpMessageNotReadableException("A binary guess is exactly one byte", inputMessage);
+        }
+        return new Guess(String.valueOf((char) letter));
+    }
+
+    @Override
+    protected Long getContentLength(Object object, MediaType contentType) {
+        return (long) REPLY_HEADER_BYTES + wordStateLength((Reply) object);
+    }
+
+    @Override
+    protected void writeInternal(Object object, HttpOutputMessage outputMessage) throws IOException {
+        outputMessage.getBody().write(encode((Reply) object));
+    }
+
+    public static byte[] encode(Reply reply) {
+        int length = wordStateLength(reply);
+        ByteBuffer frame = ByteBuffer.allocate(REPLY_HEADER_BYTES + length);
+        frame.putLong(reply.getGameId());
+        frame.put((byte) ((reply.isCorrect() ? CORRECT : 0) | (reply.isComplete() ? COMPLETE : 0)));
+        frame.put((byte) length);
+        for (int i = 0; i < length; i++) {
+            frame.put((byte) reply.getWordState().charAt(i));
+        }
+        return frame.array();
+    }
+
+    public static Reply decode(byte[] bytes) {
+        ByteBuffer frame = ByteBuffer.wrap(bytes);
+        Reply reply = new Reply();
+        reply.setGameId(frame.getLong());
+        int flags = frame.get();
+        reply.setCorrect((flags & CORRECT) != 0);
+        reply.setComplete((flags & COMPLETE) != 0);
+        int length = frame.get() & 0xff;
+        reply.setWordState(new String(bytes, frame.position(), length, StandardCharsets.ISO_8859_1));
+        return reply;
+    }
+
+    private static int wordStateLength(Reply reply) {
+        if (reply.getWordState() == null) {
+            return 0;
+        }
+        int length = reply.getWordState().length();
+        if (length > 0xff) {
+            throw new HttpMessageNotWritableException("Word state is too long for the binary encoding");
+        }
+        return length;
+    }
+
+}
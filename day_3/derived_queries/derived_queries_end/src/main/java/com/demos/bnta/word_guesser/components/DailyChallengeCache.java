@@ -0,0 +1,62 @@
+package com.demos.bnta.word_guesser.components;
+
+import com.demos.bnta.word_guesser.models.DailyChallenge;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// The precomputed daily challenges, and which live games belong to them so
+// finishing one can be counted against its day
+@Component
+public class DailyChallengeCache {
+
+    private final Map<LocalDate, DailyChallenge> challenges = new ConcurrentHashMap<>();
+    private final Map<Long, DailyChallenge> dailyGames = new ConcurrentHashMap<>();
+
+    public DailyChallenge getChallenge(LocalDate date) {
+        return challenges.get(date);
+    }
+
+    public DailyChallenge getOrCreateChallenge(LocalDate date, Function<LocalDate, String> pickWord) {
+        return challenges.computeIfAbsent(date, day -> new DailyChallenge(day, pickWord.apply(day)));
+    }
+
+    public void addGame(long gameId, DailyChallenge challenge) {
+        dailyGames.put(gameId, challenge);
+    }
+
+//    Counted once the game's transaction has committed, and only the first time
+    public void gameCompleted(long gameId, int guesses) {
+        afterCommit(() -> {
+            DailyChallenge challenge = dailyGames.remove(gameId);
+            if (challenge != null) {
+                challenge.recordCompleted(guesses);
+            }
+        });
+    }
+
+//    Forgets days before the given one, along with any of their games still unfinished
+    public void evictBefore(LocalDate date) {
+        challenges.keySet().removeIf(day -> day.isBefore(date));
+        dailyGames.values().removeIf(challenge -> challenge.getDate().isBefore(date));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+}
@@ -10,6 +10,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Arrays;
 import java.util.List;
@@ -26,6 +27,7 @@ public class DataLoader implements ApplicationRunner {
     GameRepository gameRepository;
 
     @Override
+    @Transactional
     public void run(ApplicationArguments args) throws Exception {
 
         List<String> rawWords = Arrays.asList(
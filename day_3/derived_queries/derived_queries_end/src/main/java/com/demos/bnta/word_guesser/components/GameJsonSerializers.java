@@ -0,0 +1,70 @@
+package com.demos.bnta.word_guesser.components;
+
+import com.demos.bnta.word_guesser.models.LetterList;
+import com.demos.bnta.word_guesser.models.Reply;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import org.springframework.boot.jackson.JsonComponent;
+
+import java.io.IOException;
+import java.util.List;
+
+// Hand-written serializers for the responses on the guess path. They write
+// the same JSON as the reflective bean serializer, but go straight to the
+// generator with field names that are already encoded.
+@JsonComponent
+public class GameJsonSerializers {
+
+    private static final SerializedString CORRECT = new SerializedString("correct");
+    private static final SerializedString WORD_STATE = new SerializedString("wordState");
+    private static final SerializedString MESSAGE = new SerializedString("message");
+    private static final SerializedString LETTERS = new SerializedString("letters");
+
+    public static class ReplySerializer extends JsonSerializer<Reply> {
+
+        @Override
+        public void serialize(Reply reply, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject(reply);
+            generator.writeFieldName(CORRECT);
+            generator.writeBoolean(reply.isCorrect());
+            generator.writeFieldName(WORD_STATE);
+            generator.writeString(reply.getWordState());
+            generator.writeFieldName(MESSAGE);
+            generator.writeString(reply.getMessage());
+            generator.writeEndObject();
+        }
+
+        @Override
+        public Class<Reply> handledType() {
+            return Reply.class;
+        }
+    }
+
+    public static class LetterListSerializer extends JsonSerializer<LetterList> {
+
+        @Override
+        public void serialize(LetterList letterList, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject(letterList);
+            generator.writeFieldName(LETTERS);
+            List<String> letters = letterList.getLetters();
+            if (letters == null) {
+                generator.writeNull();
+            } else {
+                generator.writeStartArray(letters, letters.size());
+                for (int i = 0; i < letters.size(); i++) {
+                    generator.writeString(letters.get(i));
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+        }
+
+        @Override
+        public Class<LetterList> handledType() {
+            return LetterList.class;
+        }
+    }
+
+}
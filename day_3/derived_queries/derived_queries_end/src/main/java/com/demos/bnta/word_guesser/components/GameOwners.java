@@ -0,0 +1,52 @@
+package com.demos.bnta.word_guesser.components;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Which player started each recent game on this node, so a guess can be
+// charged to its player without a query. A fixed table indexed by a hash of
+// the game id: a newer game simply takes an older one's slot, so the table
+// never grows and a lookup is one array read.
+//
+// Games started on another node, or pushed out since, aren't found; those
+// are only limited per game.
+@Component
+public class GameOwners {
+
+    private final AtomicReferenceArray<Owner> owners;
+    private final int slotBits;
+
+    public GameOwners(@Value("${app.rate-limit.game-owners:65536}") int size) {
+        this.slotBits = Integer.SIZE - Integer.numberOfLeadingZeros(Math.max(size, 2) - 1);
+        this.owners = new AtomicReferenceArray<>(1 << slotBits);
+    }
+
+    public void put(long gameId, long playerId) {
+        owners.set(slotFor(gameId), new Owner(gameId, playerId));
+    }
+
+//    0 if the game isn't known here; ids start at 1
+    public long playerOf(long gameId) {
+        Owner owner = owners.get(slotFor(gameId));
+        return owner != null && owner.gameId == gameId ? owner.playerId : 0;
+    }
+
+//    Fibonacci hashing, as in RateLimiter, so consecutive ids spread out
+    private int slotFor(long gameId) {
+        return (int) ((gameId * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - slotBits));
+    }
+
+    private static final class Owner {
+
+        private final long gameId;
+        private final long playerId;
+
+        private Owner(long gameId, long playerId) {
+            this.gameId = gameId;
+            this.playerId = playerId;
+        }
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.demos.bnta.word_guesser.components;
+
+import com.demos.bnta.word_guesser.models.Player;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+// Created by Hibernate through Spring, so it can be autowired
+public class PlayerVersionListener {
+
+    @Autowired
+    EntityVersions entityVersions;
+
+    @PostLoad
+    public void loaded(Player player) {
+        entityVersions.record(Player.class, player.getId(), player.getVersion());
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void saved(Player player) {
+        entityVersions.recordAfterCommit(Player.class, player.getId(), player.getVersion());
+    }
+
+    @PostRemove
+    public void removed(Player player) {
+        entityVersions.forgetAfterCommit(Player.class, player.getId());
+    }
+
+}
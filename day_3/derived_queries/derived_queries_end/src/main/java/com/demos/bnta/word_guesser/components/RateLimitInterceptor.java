@@ -0,0 +1,87 @@
+package com.demos.bnta.word_guesser.components;
+
+import com.demos.bnta.word_guesser.controllers.GameController;
+import com.demos.bnta.word_guesser.controllers.PlayerController;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Limits requests per player (POST /games?playerId=, /players/{id}), per game
+// (/games/{id}) and otherwise per client address. Requests for a game are
+// also charged to the game's player, when this node knows who that is, so
+// spreading guesses over many games doesn't get round the player's limit.
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    @Autowired
+    RateLimiter rateLimiter;
+
+    @Autowired
+    GameOwners gameOwners;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        Long id = pathId(request);
+        long waitNanos = rateLimiter.tryAcquire(keyFor(request, handler, id));
+        if (waitNanos == 0 && id != null && isRouteOf(handler, GameController.class)) {
+            long playerId = gameOwners.playerOf(id);
+            if (playerId != 0) {
+                waitNanos = rateLimiter.tryAcquire(RateLimiter.playerKey(playerId));
+            }
+        }
+        if (waitNanos == 0) {
+            return true;
+        }
+        long waitMillis = TimeUnit.NANOSECONDS.toMillis(waitNanos) + 1;
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf((waitMillis + 999) / 1000));
+        response.setHeader("X-RateLimit-Retry-After-Millis", String.valueOf(waitMillis));
+        response.setContentType("text/plain");
+        response.getWriter().write(String.format("Too many requests, retry in %d ms", waitMillis));
+        return false;
+    }
+
+    private long keyFor(HttpServletRequest request, Object handler, Long id) {
+        if (id != null) {
+            return isRouteOf(handler, PlayerController.class) ? RateLimiter.playerKey(id) : RateLimiter.gameKey(id);
+        }
+        Long playerId = parseId(request.getParameter("playerId"));
+        if (playerId != null) {
+            return RateLimiter.playerKey(playerId);
+        }
+        return RateLimiter.clientKey(request.getRemoteAddr().hashCode());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Long pathId(HttpServletRequest request) {
+        Map<String, String> pathVariables =
+                (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        return pathVariables == null ? null : parseId(pathVariables.get("id"));
+    }
+
+    private boolean isRouteOf(Object handler, Class<?> controller) {
+        return handler instanceof HandlerMethod && ((HandlerMethod) handler).getBeanType() == controller;
+    }
+
+    private Long parseId(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+}
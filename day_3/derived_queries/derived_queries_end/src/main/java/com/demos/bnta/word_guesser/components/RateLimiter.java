@@ -0,0 +1,139 @@
+package com.demos.bnta.word_guesser.components;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Token buckets per player, game or client, each kept as a single
+// "theoretical arrival time" updated with compareAndSet (the GCRA form of a
+// token bucket), so the hot path is one map lookup and one CAS.
+//
+// The map holds at most app.rate-limit.max-keys buckets and is only swept
+// of idle ones on a schedule, never on the request path. While it is full,
+// new keys are hashed onto a fixed set of overflow buckets instead, so a
+// flood of distinct keys can only crowd the keys that share its stripes.
+@Component
+public class RateLimiter {
+
+    private static final int OVERFLOW_STRIPE_BITS = 10;
+
+    private final long emissionIntervalNanos;
+    private final long burstNanos;
+    private final int maxKeys;
+
+    private final ConcurrentHashMap<Long, TokenBucket> buckets = new ConcurrentHashMap<>();
+//    Shared by the new keys hashed onto them while the map is full
+    private final TokenBucket[] overflow = new TokenBucket[1 << OVERFLOW_STRIPE_BITS];
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final LongAdder rejected = new LongAdder();
+
+    public RateLimiter(
+            @Value("${app.rate-limit.requests-per-second:10}") double requestsPerSecond,
+            @Value("${app.rate-limit.burst:20}") int burst,
+            @Value("${app.rate-limit.max-keys:100000}") int maxKeys
+    ) {
+        this.emissionIntervalNanos = (long) (1_000_000_000L / requestsPerSecond);
+        this.burstNanos = emissionIntervalNanos * burst;
+        this.maxKeys = maxKeys;
+        for (int i = 0; i < overflow.length; i++) {
+            overflow[i] = new TokenBucket();
+        }
+    }
+
+    public static long playerKey(long playerId) {
+        return playerId << 2 | 1;
+    }
+
+    public static long gameKey(long gameId) {
+        return gameId << 2 | 2;
+    }
+
+    public static long clientKey(int clientHash) {
+        return (long) clientHash << 2 | 3;
+    }
+
+//    Returns 0 if the request may go ahead, otherwise the nanoseconds until it would be allowed
+    public long tryAcquire(long key) {
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = bucketFor(key);
+        }
+        long wait = bucket.tryAcquire(now, emissionIntervalNanos, burstNanos);
+        if (wait > 0) {
+            rejected.increment();
+        }
+        return wait;
+    }
+
+    private TokenBucket bucketFor(long key) {
+        if (buckets.size() >= maxKeys) {
+            return overflowFor(key);
+        }
+        return buckets.computeIfAbsent(key, k -> new TokenBucket());
+    }
+
+//    Fibonacci hashing, so keys differing only in their low bits (ids, and
+//    the kind bits below them) still spread over every stripe
+    private TokenBucket overflowFor(long key) {
+        return overflow[(int) ((key * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - OVERFLOW_STRIPE_BITS))];
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.sweep-interval:60000}")
+    public void evictIdleBuckets() {
+        evictIdle(System.nanoTime());
+    }
+
+//    A bucket that has refilled completely behaves exactly like a new one, so
+//    dropping it loses nothing. A request racing with the removal can at
+//    worst get one extra token.
+    private void evictIdle(long now) {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            buckets.values().removeIf(bucket -> bucket.isFull(now));
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    public int getTrackedKeys() {
+        return buckets.size();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    static final class TokenBucket {
+
+//        When the bucket will next be full; each request pushes it one
+//        emission interval further into the future
+        private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+        long tryAcquire(long now, long emissionInterval, long burst) {
+            while (true) {
+                long current = theoreticalArrival.get();
+                long next = Math.max(current, now) + emissionInterval;
+                long excess = next - now - burst;
+                if (excess > 0) {
+                    return excess;
+                }
+                if (theoreticalArrival.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        boolean isFull(long now) {
+            return theoreticalArrival.get() <= now;
+        }
+    }
+
+}
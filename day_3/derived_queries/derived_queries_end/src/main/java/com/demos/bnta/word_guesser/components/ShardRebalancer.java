@@ -0,0 +1,39 @@
+package com.demos.bnta.word_guesser.components;
+
+import com.demos.bnta.word_guesser.repositories.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+// Spreads buckets evenly over the configured shards when started with
+// --rebalance-shards, e.g. after adding a shard to app.sharding.shards:
+//   ./mvnw spring-boot:run -Dspring-boot.run.arguments=--rebalance-shards
+// Other instances can keep running; see ShardRouter. Only one rebalance
+// should run at a time.
+@Component
+public class ShardRebalancer implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    @Autowired
+    ShardRouter shardRouter;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption("rebalance-shards")) {
+            return;
+        }
+        if (!shardRouter.isEnabled()) {
+            log.warn("--rebalance-shards given but app.sharding is not enabled");
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int moved = shardRouter.rebalance();
+        log.info("Moved {} of {} buckets across {} shards in {} ms",
+                moved, ShardRouter.BUCKETS, shardRouter.getShardCount(), System.currentTimeMillis() - start);
+    }
+
+}
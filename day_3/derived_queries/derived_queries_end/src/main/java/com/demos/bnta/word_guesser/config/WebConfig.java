@@ -0,0 +1,31 @@
+package com.demos.bnta.word_guesser.config;
+
+import com.demos.bnta.word_guesser.components.BinaryGuessMessageConverter;
+import com.demos.bnta.word_guesser.components.RateLimitInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    RateLimitInterceptor rateLimitInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(rateLimitInterceptor).addPathPatterns("/games/**", "/players/**", "/daily/**");
+    }
+
+//    Added after the JSON converter, so JSON stays the default and the binary
+//    encoding is only used when a client asks for it
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new BinaryGuessMessageConverter());
+    }
+
+}
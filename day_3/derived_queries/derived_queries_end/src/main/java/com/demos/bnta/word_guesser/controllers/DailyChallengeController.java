@@ -0,0 +1,52 @@
+package com.demos.bnta.word_guesser.controllers;
+
+import com.demos.bnta.word_guesser.models.DailyStats;
+import com.demos.bnta.word_guesser.models.Reply;
+import com.demos.bnta.word_guesser.services.DailyChallengeService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+@RestController
+@RequestMapping(value = "/daily")
+public class DailyChallengeController {
+
+    @Autowired
+    DailyChallengeService dailyChallengeService;
+
+    @PostMapping
+    public ResponseEntity<Reply> startDailyGame(@RequestParam long playerId){
+        try {
+            Optional<Reply> reply = dailyChallengeService.startDailyGame(playerId);
+            if (reply.isPresent()){
+                return new ResponseEntity<>(reply.get(), HttpStatus.CREATED);
+            } else {
+//                Already played today
+                return new ResponseEntity<>(null, HttpStatus.CONFLICT);
+            }
+        } catch (DataIntegrityViolationException e) {
+//            The player isn't looked up first, so a missing one shows up here
+            return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+        }
+    }
+
+//    Handles GET /daily/stats and GET /daily/stats?date=2022-08-01
+    @GetMapping(value = "/stats")
+    public ResponseEntity<DailyStats> getStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date
+    ){
+        Optional<DailyStats> stats = dailyChallengeService.getStats(date == null ? dailyChallengeService.today() : date);
+        if (stats.isPresent()){
+            return new ResponseEntity<>(stats.get(), HttpStatus.OK);
+        } else {
+            return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+        }
+    }
+
+}
@@ -5,11 +5,16 @@ import com.demos.bnta.word_guesser.models.Guess;
 import com.demos.bnta.word_guesser.models.LetterList;
 import com.demos.bnta.word_guesser.models.Reply;
 import com.demos.bnta.word_guesser.services.GameService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -22,6 +27,9 @@ public class GameController {
     @Autowired
     GameService gameService;
 
+    @Autowired
+    ObjectMapper objectMapper;
+
 //  Alternative Index Route
     @GetMapping
     public ResponseEntity<List<Game>> getAllGames(
@@ -36,6 +44,25 @@ public class GameController {
         return new ResponseEntity<>(games, HttpStatus.OK);
     }
 
+//  Same route and filters, one game per line, written as each one is read
+    @GetMapping(produces = "application/x-ndjson")
+    public void streamAllGames(
+            @RequestParam Map<String, String> parameters,
+            HttpServletResponse response
+    ) throws IOException {
+        response.setContentType("application/x-ndjson");
+        OutputStream out = response.getOutputStream();
+        gameService.streamGames(parameters, game -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(game));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.flush();
+    }
+
 //    @GetMapping
 //    public ResponseEntity<List<Game>> getAllGames(
 //            @RequestParam Optional<Boolean> isComplete,
@@ -57,7 +84,7 @@ public class GameController {
 //    }
 
     @GetMapping(value = "/{id}")
-    public ResponseEntity<Game> getGameById(@PathVariable int id){
+    public ResponseEntity<Game> getGameById(@PathVariable long id){
         Optional<Game> game = gameService.getGameById(id);
         if (game.isPresent()){
             return new ResponseEntity<>(game.get(), HttpStatus.OK);
@@ -67,7 +94,7 @@ public class GameController {
     }
 
     @PatchMapping(value = "/{id}")
-    public ResponseEntity<Reply> submitGuess(@RequestBody Guess guess, @PathVariable int id){
+    public ResponseEntity<Reply> submitGuess(@RequestBody Guess guess, @PathVariable long id){
         Reply reply = gameService.processGuess(guess, id);
         return new ResponseEntity<>(reply, HttpStatus.OK);
     }
@@ -1,8 +1,11 @@
 package com.demos.bnta.word_guesser.controllers;
 
+import com.demos.bnta.word_guesser.components.EntityVersions;
 import com.demos.bnta.word_guesser.models.Player;
+import com.demos.bnta.word_guesser.models.PlayerSummary;
 import com.demos.bnta.word_guesser.services.PlayerService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -17,6 +20,9 @@ public class PlayerController {
     @Autowired
     PlayerService playerService;
 
+    @Autowired
+    EntityVersions entityVersions;
+
     @GetMapping
     public ResponseEntity<List<Player>> getAllPlayers(){
         List<Player> players = playerService.getAllPlayers();
@@ -24,15 +30,45 @@ public class PlayerController {
     }
 
     @GetMapping(value = "/{id}")
-    public ResponseEntity<Player> getPlayerById(@PathVariable Long id){
+    public ResponseEntity<Player> getPlayerById(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ){
+//        Revalidations against the latest known version are answered with a
+//        304 without loading the player
+        Long knownVersion = entityVersions.getVersion(Player.class, id);
+        if (knownVersion != null && EntityVersions.matches(ifNoneMatch, knownVersion)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(EntityVersions.etag(knownVersion)).build();
+        }
         Optional<Player> player = playerService.getPlayerById(id);
         if (player.isPresent()){
+//            Sharded players aren't versioned, so only tag players we are tracking
+            if (entityVersions.getVersion(Player.class, id) != null) {
+                return ResponseEntity.ok().eTag(EntityVersions.etag(player.get().getVersion())).body(player.get());
+            }
             return new ResponseEntity<>(player.get(), HttpStatus.OK);
         } else {
             return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
         }
     }
 
+//    Handles GET /players/1/summary and GET /players/1/summary?recent=20
+    @GetMapping(value = "/{id}/summary")
+    public ResponseEntity<PlayerSummary> getPlayerSummary(
+            @PathVariable long id,
+            @RequestParam(defaultValue = "10") int recent
+    ){
+        if (recent < 1 || recent > 100) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+        Optional<PlayerSummary> summary = playerService.getPlayerSummary(id, recent);
+        if (summary.isPresent()){
+            return new ResponseEntity<>(summary.get(), HttpStatus.OK);
+        } else {
+            return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+        }
+    }
+
     @PostMapping
     public ResponseEntity<Player> addNewPlayer(@RequestBody Player player){
         Player savedPlayer = playerService.savePlayer(player);
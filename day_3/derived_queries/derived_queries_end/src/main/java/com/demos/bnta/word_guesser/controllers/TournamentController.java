@@ -0,0 +1,87 @@
+package com.demos.bnta.word_guesser.controllers;
+
+import com.demos.bnta.word_guesser.models.Guess;
+import com.demos.bnta.word_guesser.models.Reply;
+import com.demos.bnta.word_guesser.models.Tournament;
+import com.demos.bnta.word_guesser.models.TournamentStanding;
+import com.demos.bnta.word_guesser.services.TournamentService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequestMapping(value = "/tournaments")
+public class TournamentController {
+
+    @Autowired
+    TournamentService tournamentService;
+
+    @PostMapping
+    public ResponseEntity<Tournament> createTournament(@RequestParam(defaultValue = "10000") int maxEntrants){
+        if (maxEntrants < 1 || maxEntrants > Tournament.MAX_ENTRANTS) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(tournamentService.createTournament(maxEntrants), HttpStatus.CREATED);
+    }
+
+    @GetMapping(value = "/{id}")
+    public ResponseEntity<Tournament> getTournament(@PathVariable long id){
+        Optional<Tournament> tournament = tournamentService.getTournament(id);
+        if (tournament.isPresent()){
+            return new ResponseEntity<>(tournament.get(), HttpStatus.OK);
+        } else {
+            return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @PostMapping(value = "/{id}/entrants")
+    public ResponseEntity<Reply> joinTournament(@PathVariable long id, @RequestParam long playerId){
+        Optional<Tournament> tournament = tournamentService.getTournament(id);
+        if (tournament.isEmpty()){
+            return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+        }
+        try {
+            Optional<Reply> reply = tournamentService.joinTournament(tournament.get(), playerId);
+            if (reply.isPresent()){
+                return new ResponseEntity<>(reply.get(), HttpStatus.CREATED);
+            } else {
+                return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+            }
+        } catch (IllegalStateException e) {
+//            Tournament is full or has ended
+            return new ResponseEntity<>(null, HttpStatus.CONFLICT);
+        }
+    }
+
+    @PatchMapping(value = "/{id}")
+    public ResponseEntity<Reply> submitGuess(@PathVariable long id, @RequestParam long playerId, @RequestBody Guess guess){
+        Optional<Tournament> tournament = tournamentService.getTournament(id);
+        if (tournament.isEmpty() || !tournament.get().hasEntrant(playerId)){
+            return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(tournament.get().guess(playerId, guess.getLetter()), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/{id}/standings")
+    public ResponseEntity<List<TournamentStanding>> getStandings(@PathVariable long id, @RequestParam(defaultValue = "10") int limit){
+        Optional<Tournament> tournament = tournamentService.getTournament(id);
+        if (tournament.isEmpty()){
+            return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(tournament.get().getStandings(Math.max(limit, 0)), HttpStatus.OK);
+    }
+
+    @DeleteMapping(value = "/{id}")
+    public ResponseEntity<List<TournamentStanding>> endTournament(@PathVariable long id, @RequestParam(defaultValue = "10") int limit){
+        Optional<Tournament> tournament = tournamentService.getTournament(id);
+        if (tournament.isEmpty()){
+            return new ResponseEntity<>(null, HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(tournamentService.endTournament(tournament.get(), Math.max(limit, 0)), HttpStatus.OK);
+    }
+
+}
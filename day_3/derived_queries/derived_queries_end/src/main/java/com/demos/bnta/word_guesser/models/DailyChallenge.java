@@ -0,0 +1,78 @@
+package com.demos.bnta.word_guesser.models;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// One day's word and its running results. Results are added to as games
+// start and finish, so reading them never has to look at the games.
+public class DailyChallenge {
+
+//    Finishes in this many guesses or more share the last bucket
+    public static final int MAX_GUESS_BUCKET = 26;
+
+    private final LocalDate date;
+    private final String word;
+
+    private final Set<Long> players = ConcurrentHashMap.newKeySet();
+    private final LongAdder started = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder totalGuesses = new LongAdder();
+    private final AtomicInteger bestGuesses = new AtomicInteger(Integer.MAX_VALUE);
+    private final AtomicLongArray guessDistribution = new AtomicLongArray(MAX_GUESS_BUCKET + 1);
+
+    public DailyChallenge(LocalDate date, String word) {
+        this.date = date;
+        this.word = word;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public String getWord() {
+        return word;
+    }
+
+//    False if the player has already had today's game
+    public boolean claim(long playerId) {
+        return players.add(playerId);
+    }
+
+    public void release(long playerId) {
+        players.remove(playerId);
+    }
+
+    public void recordStarted() {
+        started.increment();
+    }
+
+    public void recordCompleted(int guesses) {
+        completed.increment();
+        totalGuesses.add(guesses);
+        bestGuesses.accumulateAndGet(guesses, Math::min);
+        guessDistribution.incrementAndGet(Math.min(guesses, MAX_GUESS_BUCKET));
+    }
+
+    public DailyStats getStats(boolean revealWord) {
+        long completedGames = completed.sum();
+        long[] distribution = new long[guessDistribution.length()];
+        for (int i = 0; i < distribution.length; i++) {
+            distribution[i] = guessDistribution.get(i);
+        }
+        return new DailyStats(
+                date,
+                revealWord ? word : null,
+                word.length(),
+                started.sum(),
+                completedGames,
+                completedGames == 0 ? 0 : (double) totalGuesses.sum() / completedGames,
+                completedGames == 0 ? null : bestGuesses.get(),
+                distribution
+        );
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.demos.bnta.word_guesser.models;
+
+import java.time.LocalDate;
+
+public class DailyStats {
+
+    private LocalDate date;
+    private String word;
+    private int wordLength;
+    private long started;
+    private long completed;
+    private double averageGuesses;
+    private Integer bestGuesses;
+//    Index is the number of guesses; the last bucket also counts anything above it
+    private long[] guessDistribution;
+
+    public DailyStats(LocalDate date, String word, int wordLength, long started, long completed,
+                      double averageGuesses, Integer bestGuesses, long[] guessDistribution) {
+        this.date = date;
+        this.word = word;
+        this.wordLength = wordLength;
+        this.started = started;
+        this.completed = completed;
+        this.averageGuesses = averageGuesses;
+        this.bestGuesses = bestGuesses;
+        this.guessDistribution = guessDistribution;
+    }
+
+    public DailyStats() {
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public String getWord() {
+        return word;
+    }
+
+    public void setWord(String word) {
+        this.word = word;
+    }
+
+    public int getWordLength() {
+        return wordLength;
+    }
+
+    public void setWordLength(int wordLength) {
+        this.wordLength = wordLength;
+    }
+
+    public long getStarted() {
+        return started;
+    }
+
+    public void setStarted(long started) {
+        this.started = started;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(long completed) {
+        this.completed = completed;
+    }
+
+    public double getAverageGuesses() {
+        return averageGuesses;
+    }
+
+    public void setAverageGuesses(double averageGuesses) {
+        this.averageGuesses = averageGuesses;
+    }
+
+    public Integer getBestGuesses() {
+        return bestGuesses;
+    }
+
+    public void setBestGuesses(Integer bestGuesses) {
+        this.bestGuesses = bestGuesses;
+    }
+
+    public long[] getGuessDistribution() {
+        return guessDistribution;
+    }
+
+    public void setGuessDistribution(long[] guessDistribution) {
+        this.guessDistribution = guessDistribution;
+    }
+}
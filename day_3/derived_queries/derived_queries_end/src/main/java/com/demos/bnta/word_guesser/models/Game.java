@@ -5,11 +5,13 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import javax.persistence.*;
 
 @Entity(name = "games")
+@Table(indexes = @Index(name = "games_player_id_idx", columnList = "player_id, id"))
 public class Game {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private int id;
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "game_generator")
+    @SequenceGenerator(name = "game_generator", sequenceName = "games_id_seq", allocationSize = 50)
+    private long id;
     @Column(name = "word")
     private String word;
     @Column(name = "guesses")
@@ -32,11 +34,11 @@ public class Game {
     public Game() {
     }
 
-    public int getId() {
+    public long getId() {
         return id;
     }
 
-    public void setId(int id) {
+    public void setId(long id) {
         this.id = id;
     }
 
@@ -0,0 +1,52 @@
+package com.demos.bnta.word_guesser.models;
+
+// Just the columns a profile shows, read without loading Game entities
+public class GameSummary {
+
+    private long id;
+    private String word;
+    private int guesses;
+    private boolean complete;
+
+    public GameSummary(long id, String word, int guesses, boolean complete) {
+        this.id = id;
+        this.word = word;
+        this.guesses = guesses;
+        this.complete = complete;
+    }
+
+    public GameSummary() {
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getWord() {
+        return word;
+    }
+
+    public void setWord(String word) {
+        this.word = word;
+    }
+
+    public int getGuesses() {
+        return guesses;
+    }
+
+    public void setGuesses(int guesses) {
+        this.guesses = guesses;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+}
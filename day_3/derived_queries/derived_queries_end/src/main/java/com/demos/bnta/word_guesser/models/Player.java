@@ -1,5 +1,7 @@
 package com.demos.bnta.word_guesser.models;
 
+import com.demos.bnta.word_guesser.components.PlayerVersionListener;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import javax.persistence.*;
@@ -7,17 +9,25 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity(name = "players")
+@EntityListeners(PlayerVersionListener.class)
 public class Player {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "player_generator")
+    @SequenceGenerator(name = "player_generator", sequenceName = "players_id_seq", allocationSize = 50)
     private long id;
 
     @Column(name = "name")
     private String name;
 
+    @Version
+    @Column(name = "version")
+    private long version;
+
+//    Without the guess count, which /games/{id} has: otherwise every guess
+//    would have to move the player's version on to keep their ETag right
     @OneToMany(mappedBy = "player")
-    @JsonIgnoreProperties({"player"})
+    @JsonIgnoreProperties({"player", "guesses"})
     private List<Game> games;
 
     @ManyToMany
@@ -54,6 +64,11 @@ public class Player {
         this.name = name;
     }
 
+    @JsonIgnore
+    public long getVersion() {
+        return version;
+    }
+
     public List<Game> getGames() {
         return games;
     }
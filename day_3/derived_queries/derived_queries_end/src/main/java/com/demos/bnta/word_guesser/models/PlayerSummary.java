@@ -0,0 +1,76 @@
+package com.demos.bnta.word_guesser.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class PlayerSummary {
+
+    private long playerId;
+    private String name;
+    private long gamesPlayed;
+    private long gamesWon;
+//    Over won games only; null until the player has won one
+    private Double averageGuesses;
+    private List<GameSummary> recentGames;
+
+//    Built by the aggregate query, which leaves recentGames to a second query
+    public PlayerSummary(long playerId, String name, Long gamesPlayed, Long gamesWon, Double averageGuesses) {
+        this.playerId = playerId;
+        this.name = name;
+        this.gamesPlayed = gamesPlayed == null ? 0 : gamesPlayed;
+        this.gamesWon = gamesWon == null ? 0 : gamesWon;
+        this.averageGuesses = averageGuesses;
+        this.recentGames = new ArrayList<>();
+    }
+
+    public PlayerSummary() {
+    }
+
+    public long getPlayerId() {
+        return playerId;
+    }
+
+    public void setPlayerId(long playerId) {
+        this.playerId = playerId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getGamesPlayed() {
+        return gamesPlayed;
+    }
+
+    public void setGamesPlayed(long gamesPlayed) {
+        this.gamesPlayed = gamesPlayed;
+    }
+
+    public long getGamesWon() {
+        return gamesWon;
+    }
+
+    public void setGamesWon(long gamesWon) {
+        this.gamesWon = gamesWon;
+    }
+
+    public Double getAverageGuesses() {
+        return averageGuesses;
+    }
+
+    public void setAverageGuesses(Double averageGuesses) {
+        this.averageGuesses = averageGuesses;
+    }
+
+    public List<GameSummary> getRecentGames() {
+        return recentGames;
+    }
+
+    public void setRecentGames(List<GameSummary> recentGames) {
+        this.recentGames = recentGames;
+    }
+}
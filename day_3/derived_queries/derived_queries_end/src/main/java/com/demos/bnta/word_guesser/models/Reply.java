@@ -1,10 +1,15 @@
 package com.demos.bnta.word_guesser.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class Reply {
 
     private boolean correct;
     private String wordState;
     private String message;
+//    Only sent in the binary encoding, where the message is left out
+    private long gameId;
+    private boolean complete;
 
     public Reply(boolean correct, String wordState, String message) {
         this.correct = correct;
@@ -38,4 +43,22 @@ public class Reply {
     public void setMessage(String message) {
         this.message = message;
     }
+
+    @JsonIgnore
+    public long getGameId() {
+        return gameId;
+    }
+
+    public void setGameId(long gameId) {
+        this.gameId = gameId;
+    }
+
+    @JsonIgnore
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
 }
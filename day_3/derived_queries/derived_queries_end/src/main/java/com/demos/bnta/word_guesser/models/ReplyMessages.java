@@ -0,0 +1,67 @@
+package com.demos.bnta.word_guesser.models;
+
+// The messages a Reply can carry. Guesses are almost always a single
+// printable character, so the per-letter messages are built once up front
+// and a guess never has to format a string.
+public final class ReplyMessages {
+
+    public static final String WIN = "You win!";
+    public static final String ALREADY_FINISHED_TOURNAMENT = "Already finished this tournament";
+    public static final String TOURNAMENT_ENDED = "This tournament has ended";
+
+    private static final char FIRST_PRINTABLE = ' ';
+    private static final char LAST_PRINTABLE = '~';
+
+    private static final String[] ALREADY_GUESSED = forEveryLetter("Already guessed ", "");
+    private static final String[] NOT_IN_WORD = forEveryLetter("", " is not in the word");
+    private static final String[] IN_WORD = forEveryLetter("", " is in the word");
+
+    private ReplyMessages() {
+    }
+
+    public static String alreadyGuessed(String letter) {
+        return lookup(ALREADY_GUESSED, letter, "Already guessed ", "");
+    }
+
+    public static String notInWord(String letter) {
+        return lookup(NOT_IN_WORD, letter, "", " is not in the word");
+    }
+
+    public static String inWord(String letter) {
+        return lookup(IN_WORD, letter, "", " is in the word");
+    }
+
+    public static String alreadyFinished(long gameId) {
+        return "Already finished game " + gameId;
+    }
+
+    public static String startedGame(long gameId) {
+        return "Started new game with id " + gameId;
+    }
+
+    public static String joinedTournament(long tournamentId) {
+        return "Joined tournament " + tournamentId;
+    }
+
+    private static String[] forEveryLetter(String prefix, String suffix) {
+        String[] messages = new String[LAST_PRINTABLE - FIRST_PRINTABLE + 1];
+        for (char letter = FIRST_PRINTABLE; letter <= LAST_PRINTABLE; letter++) {
+            messages[letter - FIRST_PRINTABLE] = prefix + letter + suffix;
+        }
+        return messages;
+    }
+
+//    Anything that isn't a single printable ASCII character falls back to
+//    building the message, with "null" in place of a missing letter just as
+//    String.format gave us
+    private static String lookup(String[] messages, String letter, String prefix, String suffix) {
+        if (letter != null && letter.length() == 1) {
+            char c = letter.charAt(0);
+            if (c >= FIRST_PRINTABLE && c <= LAST_PRINTABLE) {
+                return messages[c - FIRST_PRINTABLE];
+            }
+        }
+        return prefix + letter + suffix;
+    }
+
+}
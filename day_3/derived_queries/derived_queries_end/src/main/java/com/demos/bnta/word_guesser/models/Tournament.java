@@ -0,0 +1,325 @@
+package com.demos.bnta.word_guesser.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Many players guessing the same word, each with their own letters.
+//
+// Entrants are held in parallel arrays indexed by the order they joined, and
+// the letters an entrant has guessed are a bitmask, so a guess is a few
+// array writes rather than a Game save. Guesses lock one of a fixed set of
+// stripes, so different entrants rarely contend.
+//
+// The ranking is a skip list of packed longs that sort best first:
+//   bit  62     unfinished
+//   bits 57-61  letters still missing
+//   bits 52-56  guesses
+//   bits 20-51  finishing order, for finished entrants
+//   bits 0-19   entrant index
+public class Tournament {
+
+    public static final int MAX_ENTRANTS = 1 << 20;
+
+    private static final int LOCK_STRIPES = 64;
+    private static final long UNFINISHED = 1L << 62;
+    private static final int MISSING_SHIFT = 57;
+    private static final int GUESSES_SHIFT = 52;
+    private static final int ORDER_SHIFT = 20;
+    private static final long FIELD_MASK = 0x1F;
+    private static final long INDEX_MASK = MAX_ENTRANTS - 1;
+
+    private final long id;
+    private final String word;
+    private final int wordLetters;
+    private final int maxEntrants;
+
+    private final long[] playerIds;
+    private final long[] gameIds;
+    private final int[] guessedLetters;
+    private final int[] guesses;
+    private final long[] rankKeys;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    private final AtomicInteger entrantCount = new AtomicInteger();
+    private final ConcurrentHashMap<Long, Integer> entrantsByPlayer = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Long> ranking = new ConcurrentSkipListSet<>();
+    private final AtomicLong finishers = new AtomicLong();
+
+//    Set once by close(); read under an entrant's lock before changing them
+    private volatile boolean closed;
+
+//    Entrants changed since the last flush, each queued at most once
+    private final AtomicIntegerArray dirty;
+    private final ConcurrentLinkedQueue<Integer> dirtyEntrants = new ConcurrentLinkedQueue<>();
+
+    public Tournament(long id, String word, int maxEntrants) {
+        if (maxEntrants < 1 || maxEntrants > MAX_ENTRANTS) {
+            throw new IllegalArgumentException("maxEntrants must be between 1 and " + MAX_ENTRANTS);
+        }
+        this.id = id;
+        this.word = word;
+        this.wordLetters = lettersIn(word);
+        this.maxEntrants = maxEntrants;
+        this.playerIds = new long[maxEntrants];
+        this.gameIds = new long[maxEntrants];
+        this.guessedLetters = new int[maxEntrants];
+        this.guesses = new int[maxEntrants];
+        this.rankKeys = new long[maxEntrants];
+        this.dirty = new AtomicIntegerArray(maxEntrants);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            this.locks[i] = new Object();
+        }
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int getWordLength() {
+        return word.length();
+    }
+
+    public int getEntrants() {
+        return Math.min(entrantCount.get(), maxEntrants);
+    }
+
+    public int getMaxEntrants() {
+        return maxEntrants;
+    }
+
+    @JsonIgnore
+    public String getWord() {
+        return word;
+    }
+
+//    Joining twice is harmless; the player keeps their place
+    public Reply join(long playerId) {
+        int index = entrantsByPlayer.computeIfAbsent(playerId, key -> {
+            int newIndex = entrantCount.getAndIncrement();
+            if (newIndex >= maxEntrants) {
+                throw new IllegalStateException("Tournament " + id + " is full");
+            }
+            playerIds[newIndex] = playerId;
+            synchronized (lockFor(newIndex)) {
+                if (closed) {
+                    throw new IllegalStateException("Tournament " + id + " has ended");
+                }
+                rankKeys[newIndex] = rankKey(newIndex, Integer.bitCount(wordLetters), 0, 0);
+                ranking.add(rankKeys[newIndex]);
+                markDirty(newIndex);
+            }
+            return newIndex;
+        });
+        synchronized (lockFor(index)) {
+            return new Reply(false, wordState(guessedLetters[index]), ReplyMessages.joinedTournament(id));
+        }
+    }
+
+//    Stops taking entrants and guesses. Any already under way when this is
+//    called has been queued for the next flush by the time it returns.
+    public void close() {
+        closed = true;
+        for (Object lock : locks) {
+            synchronized (lock) {
+//                Waits out a guess that found the tournament still open
+            }
+        }
+    }
+
+    @JsonIgnore
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public boolean hasEntrant(long playerId) {
+        return entrantsByPlayer.containsKey(playerId);
+    }
+
+    public Reply guess(long playerId, String letter) {
+        Integer index = entrantsByPlayer.get(playerId);
+        if (index == null) {
+            throw new IllegalArgumentException("Player " + playerId + " has not joined tournament " + id);
+        }
+        int bit = letterBit(letter);
+        synchronized (lockFor(index)) {
+            int guessed = guessedLetters[index];
+            if (closed) {
+                return new Reply(false, wordState(guessed), ReplyMessages.TOURNAMENT_ENDED);
+            }
+            if (isFinished(guessed)) {
+                return new Reply(false, word, ReplyMessages.ALREADY_FINISHED_TOURNAMENT);
+            }
+            if (bit == 0) {
+                return new Reply(false, wordState(guessed), ReplyMessages.notInWord(letter));
+            }
+            if ((guessed & bit) != 0) {
+                return new Reply(false, wordState(guessed), ReplyMessages.alreadyGuessed(letter));
+            }
+            guessed |= bit;
+            guessedLetters[index] = guessed;
+            guesses[index]++;
+            long order = isFinished(guessed) ? finishers.incrementAndGet() : 0;
+            ranking.remove(rankKeys[index]);
+            rankKeys[index] = rankKey(index, Integer.bitCount(wordLetters & ~guessed), guesses[index], order);
+            ranking.add(rankKeys[index]);
+            markDirty(index);
+
+            if ((wordLetters & bit) == 0) {
+                return new Reply(false, wordState(guessed), ReplyMessages.notInWord(letter));
+            }
+            if (order > 0) {
+                return new Reply(true, word, ReplyMessages.WIN);
+            }
+            return new Reply(true, wordState(guessed), ReplyMessages.inWord(letter));
+        }
+    }
+
+    public List<TournamentStanding> getStandings(int limit) {
+        List<TournamentStanding> standings = new ArrayList<>(Math.min(limit, getEntrants()));
+        int wordLetterCount = Integer.bitCount(wordLetters);
+        for (long key : ranking) {
+            if (standings.size() == limit) {
+                break;
+            }
+            int index = (int) (key & INDEX_MASK);
+            int missing = (int) (key >>> MISSING_SHIFT & FIELD_MASK);
+            standings.add(new TournamentStanding(
+                    standings.size() + 1,
+                    playerIds[index],
+                    wordLetterCount - missing,
+                    (int) (key >>> GUESSES_SHIFT & FIELD_MASK),
+                    (key & UNFINISHED) == 0
+            ));
+        }
+        return standings;
+    }
+
+//    Hands back a copy of every entrant changed since the last call. An
+//    entrant changed again while this runs is simply queued for the next one.
+    public List<Entrant> takeChangedEntrants() {
+        List<Entrant> changed = new ArrayList<>();
+        Integer index;
+        while ((index = dirtyEntrants.poll()) != null) {
+            dirty.set(index, 0);
+            synchronized (lockFor(index)) {
+                changed.add(new Entrant(index, playerIds[index], gameIds[index], guesses[index], isFinished(guessedLetters[index])));
+            }
+        }
+        return changed;
+    }
+
+//    For entrants whose changes couldn't be saved, so the next flush retries them
+    public void requeue(List<Entrant> entrants) {
+        for (Entrant entrant : entrants) {
+            markDirty(entrant.getIndex());
+        }
+    }
+
+    public void setGameId(int index, long gameId) {
+        synchronized (lockFor(index)) {
+            gameIds[index] = gameId;
+        }
+    }
+
+    private void markDirty(int index) {
+        if (dirty.compareAndSet(index, 0, 1)) {
+            dirtyEntrants.add(index);
+        }
+    }
+
+    private boolean isFinished(int guessed) {
+        return (wordLetters & ~guessed) == 0;
+    }
+
+    private Object lockFor(int index) {
+        return locks[index & (LOCK_STRIPES - 1)];
+    }
+
+    private String wordState(int guessed) {
+        char[] state = word.toCharArray();
+        for (int i = 0; i < state.length; i++) {
+            int bit = letterBit(state[i]);
+            if (bit != 0 && (guessed & bit) == 0) {
+                state[i] = '*';
+            }
+        }
+        return new String(state);
+    }
+
+    private static long rankKey(int index, int missing, int guessCount, long order) {
+        return (order == 0 ? UNFINISHED : 0)
+                | (long) missing << MISSING_SHIFT
+                | (long) guessCount << GUESSES_SHIFT
+                | order << ORDER_SHIFT
+                | index;
+    }
+
+    private static int lettersIn(String word) {
+        int letters = 0;
+        for (int i = 0; i < word.length(); i++) {
+            letters |= letterBit(word.charAt(i));
+        }
+        return letters;
+    }
+
+    private static int letterBit(String letter) {
+        if (letter == null || letter.length() != 1) {
+            return 0;
+        }
+        return letterBit(letter.charAt(0));
+    }
+
+//    Only a-z are tracked; anything else is never in the word
+    private static int letterBit(char letter) {
+        if (letter < 'a' || letter > 'z') {
+            return 0;
+        }
+        return 1 << (letter - 'a');
+    }
+
+    public static final class Entrant {
+
+        private final int index;
+        private final long playerId;
+        private final long gameId;
+        private final int guesses;
+        private final boolean complete;
+
+        Entrant(int index, long playerId, long gameId, int guesses, boolean complete) {
+            this.index = index;
+            this.playerId = playerId;
+            this.gameId = gameId;
+            this.guesses = guesses;
+            this.complete = complete;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public long getPlayerId() {
+            return playerId;
+        }
+
+        public long getGameId() {
+            return gameId;
+        }
+
+        public int getGuesses() {
+            return guesses;
+        }
+
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+
+}
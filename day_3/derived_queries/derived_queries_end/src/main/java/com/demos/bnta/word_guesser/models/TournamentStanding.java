@@ -0,0 +1,61 @@
+package com.demos.bnta.word_guesser.models;
+
+public class TournamentStanding {
+
+    private int rank;
+    private long playerId;
+    private int lettersFound;
+    private int guesses;
+    private boolean complete;
+
+    public TournamentStanding(int rank, long playerId, int lettersFound, int guesses, boolean complete) {
+        this.rank = rank;
+        this.playerId = playerId;
+        this.lettersFound = lettersFound;
+        this.guesses = guesses;
+        this.complete = complete;
+    }
+
+    public TournamentStanding() {
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    public void setRank(int rank) {
+        this.rank = rank;
+    }
+
+    public long getPlayerId() {
+        return playerId;
+    }
+
+    public void setPlayerId(long playerId) {
+        this.playerId = playerId;
+    }
+
+    public int getLettersFound() {
+        return lettersFound;
+    }
+
+    public void setLettersFound(int lettersFound) {
+        this.lettersFound = lettersFound;
+    }
+
+    public int getGuesses() {
+        return guesses;
+    }
+
+    public void setGuesses(int guesses) {
+        this.guesses = guesses;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+}
@@ -10,7 +10,8 @@ import java.util.List;
 public class Word {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "word_generator")
+    @SequenceGenerator(name = "word_generator", sequenceName = "words_id_seq", allocationSize = 50)
     private long id;
 
     @Column(name = "word")
@@ -5,22 +5,212 @@ import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 
+// In-memory store of games keyed by id, safe to share between request threads.
+//
+// Games live in open-addressing tables (linear probing) split into
+// segments. Reads take no locks: each slot holds an immutable entry, so a
+// reader always sees a whole key/game pair. Writes lock only their own
+// segment, so writers on different segments never wait on each other.
 @Repository
 public class GameList {
 
-    private List<Game> games;
+    private static final int SEGMENTS = 16;
+    private static final int INITIAL_SEGMENT_CAPACITY = 64;
+
+//    Left behind by deletes so probes for keys further along the chain
+//    don't stop early; cleared out whenever a segment is rebuilt
+    private static final Entry TOMBSTONE = new Entry(0, null);
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final AtomicLong lastId = new AtomicLong();
 
     public GameList(){
-        this.games = new ArrayList<>();
+        for (int i = 0; i < SEGMENTS; i++) {
+            this.segments[i] = new Segment(INITIAL_SEGMENT_CAPACITY);
+        }
     }
 
+//    Games without an id are given the next free one
     public void addGame(Game game){
-        this.games.add(game);
+        if (game.getId() == 0) {
+            game.setId(this.lastId.incrementAndGet());
+        } else {
+            this.lastId.accumulateAndGet(game.getId(), Math::max);
+        }
+        int hash = hash(game.getId());
+        segmentFor(hash).put(game.getId(), hash, game);
+    }
+
+//    Returns null if there is no game with that id
+    public Game getGameById(long id){
+        int hash = hash(id);
+        return segmentFor(hash).get(id, hash);
+    }
+
+    public boolean deleteGame(long id){
+        int hash = hash(id);
+        return segmentFor(hash).remove(id, hash);
+    }
+
+    public List<Game> getAllGames(){
+        return findGames(game -> true);
+    }
+
+//    Weakly consistent: games added or removed while the query runs may or may not be seen
+    public List<Game> findGames(Predicate<Game> filter){
+        List<Game> found = new ArrayList<>();
+        for (Segment segment : this.segments) {
+            AtomicReferenceArray<Entry> table = segment.table;
+            for (int i = 0; i < table.length(); i++) {
+                Entry entry = table.get(i);
+                if (entry != null && entry != TOMBSTONE && filter.test(entry.game)) {
+                    found.add(entry.game);
+                }
+            }
+        }
+        return found;
+    }
+
+    public int size(){
+        int size = 0;
+        for (Segment segment : this.segments) {
+            size += segment.count;
+        }
+        return size;
+    }
+
+//    Spreads sequential ids over every segment and slot
+    private static int hash(long id){
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private Segment segmentFor(int hash){
+        return this.segments[hash >>> 28 & (SEGMENTS - 1)];
+    }
+
+    private static final class Entry {
+
+        final long key;
+        final Game game;
+
+        Entry(long key, Game game) {
+            this.key = key;
+            this.game = game;
+        }
     }
 
-    public Game getGameById(int id){
-        return this.games.get(id - 1);
+    private static final class Segment extends ReentrantLock {
+
+        volatile AtomicReferenceArray<Entry> table;
+//        Only changed while holding the lock
+        volatile int count;
+        int tombstones;
+
+        Segment(int capacity) {
+            this.table = new AtomicReferenceArray<>(capacity);
+        }
+
+        Game get(long key, int hash) {
+            AtomicReferenceArray<Entry> table = this.table;
+            int mask = table.length() - 1;
+            for (int i = hash & mask, probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+                Entry entry = table.get(i);
+                if (entry == null) {
+                    return null;
+                }
+                if (entry != TOMBSTONE && entry.key == key) {
+                    return entry.game;
+                }
+            }
+            return null;
+        }
+
+        void put(long key, int hash, Game game) {
+            lock();
+            try {
+                if ((this.count + this.tombstones + 1) * 4 > this.table.length() * 3) {
+                    rebuild();
+                }
+                AtomicReferenceArray<Entry> table = this.table;
+                int mask = table.length() - 1;
+                int free = -1;
+                for (int i = hash & mask; ; i = (i + 1) & mask) {
+                    Entry entry = table.get(i);
+                    if (entry == null) {
+                        if (free < 0) {
+                            free = i;
+                        } else {
+                            this.tombstones--;
+                        }
+                        table.set(free, new Entry(key, game));
+                        this.count++;
+                        return;
+                    }
+                    if (entry == TOMBSTONE) {
+                        if (free < 0) {
+                            free = i;
+                        }
+                    } else if (entry.key == key) {
+                        table.set(i, new Entry(key, game));
+                        return;
+                    }
+                }
+            } finally {
+                unlock();
+            }
+        }
+
+        boolean remove(long key, int hash) {
+            lock();
+            try {
+                AtomicReferenceArray<Entry> table = this.table;
+                int mask = table.length() - 1;
+                for (int i = hash & mask; ; i = (i + 1) & mask) {
+                    Entry entry = table.get(i);
+                    if (entry == null) {
+                        return false;
+                    }
+                    if (entry != TOMBSTONE && entry.key == key) {
+                        table.set(i, TOMBSTONE);
+                        this.count--;
+                        this.tombstones++;
+                        return true;
+                    }
+                }
+            } finally {
+                unlock();
+            }
+        }
+
+//        Copies the live entries into a fresh table, doubling it if it is
+//        genuinely filling up. Readers still on the old table see it unchanged.
+        private void rebuild() {
+            AtomicReferenceArray<Entry> old = this.table;
+            int capacity = old.length();
+            if ((this.count + 1) * 2 > capacity) {
+                capacity *= 2;
+            }
+            AtomicReferenceArray<Entry> table = new AtomicReferenceArray<>(capacity);
+            int mask = capacity - 1;
+            for (int i = 0; i < old.length(); i++) {
+                Entry entry = old.get(i);
+                if (entry != null && entry != TOMBSTONE) {
+                    int slot = hash(entry.key) & mask;
+                    while (table.get(slot) != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    table.set(slot, entry);
+                }
+            }
+            this.tombstones = 0;
+            this.table = table;
+        }
     }
 
 }
@@ -1,6 +1,8 @@
 package com.demos.bnta.word_guesser.repositories;
 
 import com.demos.bnta.word_guesser.models.Game;
+import com.demos.bnta.word_guesser.models.GameSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -8,7 +10,7 @@ import org.springframework.data.repository.query.Param;
 import java.util.List;
 import java.util.Optional;
 
-public interface GameRepository extends JpaRepository<Game, Integer> {
+public interface GameRepository extends JpaRepository<Game, Long> {
 
 
     @Query("SELECT g FROM games g "
@@ -23,6 +25,11 @@ public interface GameRepository extends JpaRepository<Game, Integer> {
 
     List<Game> findByPlayerId(long id);
 
+    @Query("SELECT new com.demos.bnta.word_guesser.models.GameSummary(g.id, g.word, g.guesses, g.complete) "
+            + "FROM games g WHERE g.player.id = :playerId ORDER BY g.id DESC"
+    )
+    List<GameSummary> findRecentByPlayerId(@Param("playerId") long playerId, Pageable pageable);
+
     List<Game> findByWord(String word);
 
     List<Game> findByCompleteTrue();
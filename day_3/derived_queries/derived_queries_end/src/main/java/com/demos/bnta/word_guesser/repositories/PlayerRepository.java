@@ -1,7 +1,40 @@
 package com.demos.bnta.word_guesser.repositories;
 
 import com.demos.bnta.word_guesser.models.Player;
+import com.demos.bnta.word_guesser.models.PlayerSummary;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 public interface PlayerRepository extends JpaRepository<Player, Long> {
+
+    @Modifying
+    @Query("UPDATE players p SET p.version = p.version + 1 WHERE p.id = :id")
+    int incrementVersion(@Param("id") long id);
+
+    @Query("SELECT p.version FROM players p WHERE p.id = :id")
+    long findVersionById(@Param("id") long id);
+
+    @Modifying
+    @Query("UPDATE players p SET p.version = p.version + 1 WHERE p.id IN :ids")
+    int incrementVersions(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT p.id, p.version FROM players p WHERE p.id IN :ids")
+    List<Object[]> findVersionsByIds(@Param("ids") Collection<Long> ids);
+
+//    Counts the player's games in the database rather than loading them
+    @Query("SELECT new com.demos.bnta.word_guesser.models.PlayerSummary(p.id, p.name, COUNT(g), "
+            + "SUM(CASE WHEN g.complete = TRUE THEN 1 ELSE 0 END), "
+            + "AVG(CASE WHEN g.complete = TRUE THEN g.guesses END)) "
+            + "FROM players p LEFT JOIN p.games g "
+            + "WHERE p.id = :id "
+            + "GROUP BY p.id, p.name"
+    )
+    Optional<PlayerSummary> findSummaryById(@Param("id") long id);
+
 }
@@ -0,0 +1,399 @@
+package com.demos.bnta.word_guesser.repositories;
+
+import com.demos.bnta.word_guesser.config.ShardProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+// Players are hashed into a fixed number of buckets and each bucket lives on
+// one shard, so moving data between shards means moving whole buckets.
+// Ids carry their bucket in the low bits (and the shard that allocated them
+// in the bits above) so any id can be routed without a lookup:
+//
+//   | sequence | origin shard (6 bits) | bucket (6 bits) |
+//
+// A player's games take the player's bucket, so they always live together.
+//
+// Every instance caches the bucket owners and refreshes them from shard 0
+// every app.sharding.owner-refresh-interval. A bucket can be moved while
+// other instances are running: each shard lists the buckets it holds in
+// shard_bucket_leases, and a write only goes ahead once it has locked its
+// bucket's row there. An instance still writing to the old shard finds the
+// row gone, reloads the owner and tries again. Reads on a stale instance can
+// miss a moved bucket until its next refresh.
+@Component
+public class ShardRouter implements InitializingBean, DisposableBean {
+
+    public static final int BUCKETS = 64;
+    private static final int BUCKET_BITS = 6;
+    private static final int SHARD_BITS = 6;
+    private static final int MAX_SHARDS = 1 << SHARD_BITS;
+
+    private static final int SCATTER_QUEUE_SIZE = 1024;
+    private static final int COPY_BATCH_SIZE = 1000;
+    private static final Object SHARD_DONE = new Object();
+
+//    How long a write waits for a bucket that is being moved
+    private static final long MOVE_WAIT_MILLIS = 10_000;
+    private static final long MOVE_RETRY_MILLIS = 50;
+    private static final Object BUCKET_MOVED = new Object();
+
+    @Autowired
+    ShardProperties shardProperties;
+
+    private final List<HikariDataSource> shards = new ArrayList<>();
+    private final List<JdbcTemplate> jdbcTemplates = new ArrayList<>();
+    private final List<TransactionTemplate> transactionTemplates = new ArrayList<>();
+    private final AtomicIntegerArray bucketOwners = new AtomicIntegerArray(BUCKETS);
+    private final ReentrantReadWriteLock[] bucketLocks = new ReentrantReadWriteLock[BUCKETS];
+    private ExecutorService scatterExecutor;
+
+    @Override
+    public void afterPropertiesSet() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            bucketLocks[bucket] = new ReentrantReadWriteLock();
+        }
+        if (!isEnabled()) {
+            return;
+        }
+        if (shardProperties.getShards().size() > MAX_SHARDS) {
+            throw new IllegalStateException(String.format("At most %d shards are supported", MAX_SHARDS));
+        }
+        ResourceDatabasePopulator schema = new ResourceDatabasePopulator(new ClassPathResource("shard-schema.sql"));
+        for (ShardProperties.Shard shard : shardProperties.getShards()) {
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(shard.getUrl())
+                    .username(shard.getUsername())
+                    .password(shard.getPassword())
+                    .build();
+            schema.execute(dataSource);
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            jdbcTemplate.setFetchSize(500);
+            shards.add(dataSource);
+            jdbcTemplates.add(jdbcTemplate);
+            transactionTemplates.add(new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+        }
+        loadBucketOwners();
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("shard-scatter-");
+        threadFactory.setDaemon(true);
+        scatterExecutor = Executors.newFixedThreadPool(shards.size() * 2, threadFactory);
+    }
+
+    private void loadBucketOwners() {
+        JdbcTemplate catalog = jdbcTemplates.get(0);
+        List<int[]> assignments = catalog.query("SELECT bucket, shard FROM shard_buckets",
+                (rs, rowNum) -> new int[]{rs.getInt("bucket"), rs.getInt("shard")});
+        if (assignments.isEmpty()) {
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                int shard = bucket % shards.size();
+                catalog.update("INSERT INTO shard_buckets (bucket, shard) VALUES (?, ?)", bucket, shard);
+                jdbcTemplates.get(shard).update("INSERT INTO shard_bucket_leases (bucket) VALUES (?)", bucket);
+                bucketOwners.set(bucket, shard);
+            }
+            return;
+        }
+        for (int[] assignment : assignments) {
+            if (assignment[1] >= shards.size()) {
+                throw new IllegalStateException(String.format(
+                        "Bucket %d is assigned to shard %d, which is not configured", assignment[0], assignment[1]));
+            }
+            bucketOwners.set(assignment[0], assignment[1]);
+        }
+//        Shards set up before leases existed: no move can be under way, so
+//        each owner takes the leases of its buckets
+        boolean leased = false;
+        for (JdbcTemplate shard : jdbcTemplates) {
+            leased |= shard.queryForObject("SELECT COUNT(*) FROM shard_bucket_leases", Integer.class) > 0;
+        }
+        if (!leased) {
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                jdbcTemplates.get(bucketOwners.get(bucket)).update("INSERT INTO shard_bucket_leases (bucket) VALUES (?)", bucket);
+            }
+        }
+    }
+
+//    Picks up buckets other instances have moved
+    @Scheduled(fixedDelayString = "${app.sharding.owner-refresh-interval:5000}")
+    public void refreshBucketOwners() {
+        if (!isEnabled()) {
+            return;
+        }
+        jdbcTemplates.get(0).query("SELECT bucket, shard FROM shard_buckets",
+                (RowCallbackHandler) rs -> bucketOwners.set(rs.getInt("bucket"), rs.getInt("shard")));
+    }
+
+    private int reloadBucketOwner(int bucket) {
+        int shard = jdbcTemplates.get(0).queryForObject("SELECT shard FROM shard_buckets WHERE bucket = ?", Integer.class, bucket);
+        bucketOwners.set(bucket, shard);
+        return shard;
+    }
+
+    @Override
+    public void destroy() {
+        if (scatterExecutor != null) {
+            scatterExecutor.shutdownNow();
+        }
+        for (HikariDataSource shard : shards) {
+            shard.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return shardProperties.isEnabled() && !shardProperties.getShards().isEmpty();
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    public static long composeId(long sequence, int shard, int bucket) {
+        return (sequence << (SHARD_BITS + BUCKET_BITS)) | ((long) shard << BUCKET_BITS) | bucket;
+    }
+
+    public static int bucketOf(long id) {
+        return (int) (id & (BUCKETS - 1));
+    }
+
+    public int shardForBucket(int bucket) {
+        return bucketOwners.get(bucket);
+    }
+
+    public JdbcTemplate shard(int shard) {
+        return jdbcTemplates.get(shard);
+    }
+
+    public JdbcTemplate shardForId(long id) {
+        return jdbcTemplates.get(shardForBucket(bucketOf(id)));
+    }
+
+    public int chooseBucketForNewPlayer() {
+        return ThreadLocalRandom.current().nextInt(BUCKETS);
+    }
+
+    public long nextSequenceValue(JdbcTemplate shard, String sequence) {
+        return shard.queryForObject("SELECT nextval('" + sequence + "')", Long.class);
+    }
+
+//    Each write is one transaction on the bucket's shard, and starts by
+//    locking the bucket's lease there. Writes to one bucket therefore take
+//    turns, and a move waits for those in progress. When the lease isn't
+//    there the bucket has moved, or is moving, and the write follows it.
+//    Writes also hold the bucket's read lock, so a move made by this
+//    instance doesn't have them retrying.
+    @SuppressWarnings("unchecked")
+    public <T> T writeToBucket(int bucket, BiFunction<Integer, JdbcTemplate, T> write) {
+        Lock lock = bucketLocks[bucket].readLock();
+        lock.lock();
+        try {
+            long deadline = System.currentTimeMillis() + MOVE_WAIT_MILLIS;
+            int shard = shardForBucket(bucket);
+            while (true) {
+                int owner = shard;
+                JdbcTemplate jdbcTemplate = jdbcTemplates.get(owner);
+                Object result = transactionTemplates.get(owner).execute(status -> {
+                    if (jdbcTemplate.queryForList("SELECT bucket FROM shard_bucket_leases WHERE bucket = ? FOR UPDATE",
+                            Integer.class, bucket).isEmpty()) {
+                        return BUCKET_MOVED;
+                    }
+                    return write.apply(owner, jdbcTemplate);
+                });
+                if (result != BUCKET_MOVED) {
+                    return (T) result;
+                }
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IllegalStateException(String.format("Bucket %d is being moved; try again later", bucket));
+                }
+                shard = reloadBucketOwner(bucket);
+                if (shard == owner) {
+                    pause(MOVE_RETRY_MILLIS);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a bucket to move", e);
+        }
+    }
+
+//    Runs the query on every shard at once and hands each row to the sink as
+//    soon as any shard produces it. Rows arrive in no particular order.
+    @SuppressWarnings("unchecked")
+    public <T> void scatterGather(String sql, RowMapper<T> rowMapper, Consumer<? super T> sink, Object... args) {
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<>(SCATTER_QUEUE_SIZE);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        for (JdbcTemplate shard : jdbcTemplates) {
+            scatterExecutor.execute(() -> {
+                try {
+                    shard.query(sql, (RowCallbackHandler) rs -> put(queue, rowMapper.mapRow(rs, 0), cancelled), args);
+                    put(queue, SHARD_DONE, cancelled);
+                } catch (RuntimeException e) {
+                    put(queue, new ShardFailure(e), cancelled);
+                }
+            });
+        }
+
+        int remaining = jdbcTemplates.size();
+        try {
+            while (remaining > 0) {
+                Object item = queue.take();
+                if (item == SHARD_DONE) {
+                    remaining--;
+                } else if (item instanceof ShardFailure) {
+                    throw ((ShardFailure) item).cause;
+                } else {
+                    sink.accept((T) item);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while gathering shard results", e);
+        } finally {
+//            Stops the other shards if we bailed out early
+            cancelled.set(true);
+        }
+    }
+
+    private static void put(BlockingQueue<Object> queue, Object item, AtomicBoolean cancelled) {
+        try {
+            while (!queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                if (cancelled.get()) {
+                    throw new CancellationException();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException();
+        }
+    }
+
+    private static final class ShardFailure {
+        private final RuntimeException cause;
+
+        private ShardFailure(RuntimeException cause) {
+            this.cause = cause;
+        }
+    }
+
+//    Fences the bucket on the source, copies it to the target, hands the
+//    target the lease, flips ownership, then deletes it from the source.
+//    Deleting the source's lease waits for writes in progress there, and
+//    from then on no instance can write the bucket until the move is done,
+//    so nothing written after the copy is lost with the source's rows.
+//    Safe to re-run if it fails part way: rows and a lease left on the
+//    target by an earlier attempt are cleared before copying.
+    public void moveBucket(int bucket, int target) {
+        Lock lock = bucketLocks[bucket].writeLock();
+        lock.lock();
+        try {
+            int source = reloadBucketOwner(bucket);
+            if (source == target) {
+                return;
+            }
+            JdbcTemplate from = jdbcTemplates.get(source);
+            JdbcTemplate to = jdbcTemplates.get(target);
+
+            from.update("DELETE FROM shard_bucket_leases WHERE bucket = ?", bucket);
+            to.update("DELETE FROM shard_bucket_leases WHERE bucket = ?", bucket);
+            to.update("DELETE FROM shard_games WHERE bucket = ?", bucket);
+            to.update("DELETE FROM shard_players WHERE bucket = ?", bucket);
+            copyRows(from, to, "SELECT id, bucket, name FROM shard_players WHERE bucket = ?",
+                    "INSERT INTO shard_players (id, bucket, name) VALUES (?, ?, ?)", 3, bucket);
+            copyRows(from, to, "SELECT id, bucket, word, guesses, complete, player_id, game_number FROM shard_games WHERE bucket = ?",
+                    "INSERT INTO shard_games (id, bucket, word, guesses, complete, player_id, game_number) VALUES (?, ?, ?, ?, ?, ?, ?)", 7, bucket);
+            to.update("INSERT INTO shard_bucket_leases (bucket) VALUES (?)", bucket);
+
+            JdbcTemplate catalog = jdbcTemplates.get(0);
+            if (catalog.update("UPDATE shard_buckets SET shard = ? WHERE bucket = ?", target, bucket) == 0) {
+                catalog.update("INSERT INTO shard_buckets (bucket, shard) VALUES (?, ?)", bucket, target);
+            }
+            bucketOwners.set(bucket, target);
+
+            from.update("DELETE FROM shard_games WHERE bucket = ?", bucket);
+            from.update("DELETE FROM shard_players WHERE bucket = ?", bucket);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void copyRows(JdbcTemplate from, JdbcTemplate to, String select, String insert, int columns, int bucket) {
+        List<Object[]> batch = new ArrayList<>(COPY_BATCH_SIZE);
+        from.query(select, (RowCallbackHandler) rs -> {
+            Object[] row = new Object[columns];
+            for (int column = 0; column < columns; column++) {
+                row[column] = rs.getObject(column + 1);
+            }
+            batch.add(row);
+            if (batch.size() == COPY_BATCH_SIZE) {
+                to.batchUpdate(insert, batch);
+                batch.clear();
+            }
+        }, bucket);
+        if (!batch.isEmpty()) {
+            to.batchUpdate(insert, batch);
+        }
+    }
+
+//    Moves the fewest buckets needed to spread them evenly over the
+//    configured shards, e.g. after a new shard has been added
+    public synchronized int rebalance() {
+        int shardCount = shards.size();
+        int[] owned = new int[shardCount];
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            owned[shardForBucket(bucket)]++;
+        }
+
+        int moved = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            int source = shardForBucket(bucket);
+            if (owned[source] <= quota(source, shardCount)) {
+                continue;
+            }
+            for (int target = 0; target < shardCount; target++) {
+                if (owned[target] < quota(target, shardCount)) {
+                    moveBucket(bucket, target);
+                    owned[source]--;
+                    owned[target]++;
+                    moved++;
+                    break;
+                }
+            }
+        }
+        return moved;
+    }
+
+    private static int quota(int shard, int shardCount) {
+        return BUCKETS / shardCount + (shard < BUCKETS % shardCount ? 1 : 0);
+    }
+
+}
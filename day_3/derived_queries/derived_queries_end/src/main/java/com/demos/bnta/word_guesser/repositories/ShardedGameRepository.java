@@ -0,0 +1,95 @@
+package com.demos.bnta.word_guesser.repositories;
+
+import com.demos.bnta.word_guesser.models.Game;
+import com.demos.bnta.word_guesser.models.Player;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+// A player and their games always share a shard, so the join never crosses
+// databases
+@Repository
+public class ShardedGameRepository {
+
+    private static final String SELECT_GAMES = "SELECT g.id, g.word, g.guesses, g.complete, "
+            + "p.id AS player_id, p.name AS player_name "
+            + "FROM shard_games g JOIN shard_players p ON p.id = g.player_id";
+
+    private static final RowMapper<Game> GAME_ROW_MAPPER = (rs, rowNum) -> {
+        Player player = new Player(rs.getString("player_name"));
+        player.setId(rs.getLong("player_id"));
+        Game game = new Game(rs.getString("word"), player);
+        game.setId(rs.getLong("id"));
+        game.setGuesses(rs.getInt("guesses"));
+        game.setComplete(rs.getBoolean("complete"));
+        return game;
+    };
+
+    @Autowired
+    ShardRouter shardRouter;
+
+    public Game save(Game game){
+        int bucket = ShardRouter.bucketOf(game.getPlayer().getId());
+        return shardRouter.writeToBucket(bucket, (shard, jdbcTemplate) -> {
+            if (game.getId() == 0) {
+                long sequence = shardRouter.nextSequenceValue(jdbcTemplate, "shard_games_seq");
+                game.setId(ShardRouter.composeId(sequence, shard, bucket));
+//                Writes to the bucket take turns, so no other game can take the same number
+                jdbcTemplate.update("INSERT INTO shard_games (id, bucket, word, guesses, complete, player_id, game_number) "
+                                + "SELECT ?, ?, ?, ?, ?, ?, COALESCE(MAX(game_number), 0) + 1 FROM shard_games WHERE player_id = ?",
+                        game.getId(), bucket, game.getWord(), game.getGuesses(), game.isComplete(), game.getPlayer().getId(),
+                        game.getPlayer().getId());
+            } else {
+                jdbcTemplate.update("UPDATE shard_games SET word = ?, guesses = ?, complete = ? WHERE id = ?",
+                        game.getWord(), game.getGuesses(), game.isComplete(), game.getId());
+            }
+            return game;
+        });
+    }
+
+    public Optional<Game> findById(long id){
+        List<Game> games = shardRouter.shardForId(id)
+                .query(SELECT_GAMES + " WHERE g.id = ?", GAME_ROW_MAPPER, id);
+        return games.stream().findFirst();
+    }
+
+    public List<Game> findByPlayerId(long playerId){
+        return shardRouter.shardForId(playerId)
+                .query(SELECT_GAMES + " WHERE g.player_id = ?", GAME_ROW_MAPPER, playerId);
+    }
+
+    public void streamAll(Consumer<Game> sink){
+        shardRouter.scatterGather(SELECT_GAMES, GAME_ROW_MAPPER, sink);
+    }
+
+    public void streamByWord(String word, Consumer<Game> sink){
+        shardRouter.scatterGather(SELECT_GAMES + " WHERE g.word = ?", GAME_ROW_MAPPER, sink, word);
+    }
+
+    public void streamByCompleteTrue(Consumer<Game> sink){
+        shardRouter.scatterGather(SELECT_GAMES + " WHERE g.complete = TRUE", GAME_ROW_MAPPER, sink);
+    }
+
+//    Same filter as GameRepository.findByCompleteTrueAndOptionalWordAndOptionalGuessesLessThan.
+//    The optional parts are left out of the SQL rather than bound as nulls,
+//    since Postgres can't type a bare "? IS NULL".
+    public void streamByCompleteTrueAndOptionalWordAndOptionalGuessesLessThan(String word, Integer guesses, Consumer<Game> sink){
+        StringBuilder sql = new StringBuilder(SELECT_GAMES).append(" WHERE g.complete = TRUE");
+        List<Object> args = new ArrayList<>();
+        if (word != null) {
+            sql.append(" AND g.word = ?");
+            args.add(word);
+        }
+        if (guesses != null) {
+            sql.append(" AND g.guesses < ?");
+            args.add(guesses);
+        }
+        shardRouter.scatterGather(sql.toString(), GAME_ROW_MAPPER, sink, args.toArray());
+    }
+
+}
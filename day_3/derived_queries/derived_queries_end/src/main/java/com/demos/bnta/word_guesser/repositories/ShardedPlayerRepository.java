@@ -0,0 +1,91 @@
+package com.demos.bnta.word_guesser.repositories;
+
+import com.demos.bnta.word_guesser.models.GameSummary;
+import com.demos.bnta.word_guesser.models.Player;
+import com.demos.bnta.word_guesser.models.PlayerSummary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public class ShardedPlayerRepository {
+
+    private static final RowMapper<PlayerSummary> SUMMARY_ROW_MAPPER = (rs, rowNum) -> new PlayerSummary(
+            rs.getLong("id"),
+            rs.getString("name"),
+            rs.getLong("games_played"),
+            rs.getLong("games_won"),
+            rs.getObject("average_guesses") == null ? null : rs.getDouble("average_guesses")
+    );
+
+    private static final RowMapper<GameSummary> GAME_SUMMARY_ROW_MAPPER = (rs, rowNum) -> new GameSummary(
+            rs.getLong("id"),
+            rs.getString("word"),
+            rs.getInt("guesses"),
+            rs.getBoolean("complete")
+    );
+
+    private static final RowMapper<Player> PLAYER_ROW_MAPPER = (rs, rowNum) -> {
+        Player player = new Player(rs.getString("name"));
+        player.setId(rs.getLong("id"));
+        return player;
+    };
+
+    @Autowired
+    ShardRouter shardRouter;
+
+    public Player save(Player player){
+        if (player.getId() != 0) {
+            int bucket = ShardRouter.bucketOf(player.getId());
+            shardRouter.writeToBucket(bucket, (shard, jdbcTemplate) ->
+                    jdbcTemplate.update("UPDATE shard_players SET name = ? WHERE id = ?", player.getName(), player.getId()));
+            return player;
+        }
+        int bucket = shardRouter.chooseBucketForNewPlayer();
+        return shardRouter.writeToBucket(bucket, (shard, jdbcTemplate) -> {
+            long sequence = shardRouter.nextSequenceValue(jdbcTemplate, "shard_players_seq");
+            player.setId(ShardRouter.composeId(sequence, shard, bucket));
+            jdbcTemplate.update("INSERT INTO shard_players (id, bucket, name) VALUES (?, ?, ?)",
+                    player.getId(), bucket, player.getName());
+            return player;
+        });
+    }
+
+    public Optional<Player> findById(long id){
+        List<Player> players = shardRouter.shardForId(id)
+                .query("SELECT id, name FROM shard_players WHERE id = ?", PLAYER_ROW_MAPPER, id);
+        return players.stream().findFirst();
+    }
+
+    public List<Player> findAll(){
+        List<Player> players = new ArrayList<>();
+        shardRouter.scatterGather("SELECT id, name FROM shard_players", PLAYER_ROW_MAPPER, players::add);
+        return players;
+    }
+
+//    A player's games are on the player's shard, so this is one query on one database
+    public Optional<PlayerSummary> findSummaryById(long id){
+        List<PlayerSummary> summaries = shardRouter.shardForId(id).query(
+                "SELECT p.id, p.name, COUNT(g.id) AS games_played, "
+                        + "SUM(CASE WHEN g.complete THEN 1 ELSE 0 END) AS games_won, "
+                        + "AVG(CASE WHEN g.complete THEN g.guesses END) AS average_guesses "
+                        + "FROM shard_players p LEFT JOIN shard_games g ON g.player_id = p.id "
+                        + "WHERE p.id = ? GROUP BY p.id, p.name",
+                SUMMARY_ROW_MAPPER, id);
+        return summaries.stream().findFirst();
+    }
+
+//    By game_number rather than id, which stops matching the order games were
+//    started in once the player's bucket has moved
+    public List<GameSummary> findRecentGames(long playerId, int limit){
+        return shardRouter.shardForId(playerId).query(
+                "SELECT id, word, guesses, complete FROM shard_games WHERE player_id = ? "
+                        + "ORDER BY game_number DESC, id DESC LIMIT ?",
+                GAME_SUMMARY_ROW_MAPPER, playerId, limit);
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.demos.bnta.word_guesser.services;
+
+import com.demos.bnta.word_guesser.components.DailyChallengeCache;
+import com.demos.bnta.word_guesser.models.DailyChallenge;
+import com.demos.bnta.word_guesser.models.DailyStats;
+import com.demos.bnta.word_guesser.models.Reply;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Optional;
+
+// The same word for every player each day. Words for the coming days are
+// picked ahead of time, so starting a daily game needs no word or player
+// lookups, only the insert of the game itself.
+@Service
+public class DailyChallengeService {
+
+    private static final Logger log = LoggerFactory.getLogger(DailyChallengeService.class);
+
+    @Autowired
+    GameService gameService;
+
+    @Autowired
+    PlayerService playerService;
+
+    @Autowired
+    WordService wordService;
+
+    @Autowired
+    DailyChallengeCache dailyChallengeCache;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private final int daysAhead;
+    private final Clock clock;
+
+    public DailyChallengeService(
+            @Value("${app.daily-challenge.days-ahead:7}") int daysAhead,
+            @Value("${app.daily-challenge.zone:UTC}") String zone
+    ) {
+        this.daysAhead = daysAhead;
+        this.clock = Clock.system(ZoneId.of(zone));
+    }
+
+//    Once the words have been loaded. Only a warm-up: if it fails, each day's
+//    word is picked when it is first asked for instead.
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp(){
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> precomputeChallenges());
+        } catch (RuntimeException e) {
+            log.warn("Could not precompute the daily challenges; they will be picked on first use", e);
+        }
+    }
+
+//    Read-write, so the words are read from the primary: a replica may not
+//    have them yet
+    @Scheduled(cron = "${app.daily-challenge.refresh-cron:0 0 0 * * *}", zone = "${app.daily-challenge.zone:UTC}")
+    @Transactional
+    public void precomputeChallenges(){
+        LocalDate today = today();
+//        Yesterday is kept so games started just before midnight still count
+        dailyChallengeCache.evictBefore(today.minusDays(1));
+        for (int day = 0; day < daysAhead; day++) {
+            challengeFor(today.plusDays(day));
+        }
+    }
+
+    public LocalDate today(){
+        return LocalDate.now(clock);
+    }
+
+    public DailyChallenge getTodaysChallenge(){
+        return challengeFor(today());
+    }
+
+//    Empty if the player has already played today
+    public Optional<Reply> startDailyGame(long playerId){
+        DailyChallenge challenge = getTodaysChallenge();
+        if (!challenge.claim(playerId)) {
+            return Optional.empty();
+        }
+        try {
+            Reply reply = gameService.startGame(playerService.getPlayerReference(playerId), challenge.getWord());
+            dailyChallengeCache.addGame(reply.getGameId(), challenge);
+            challenge.recordStarted();
+            return Optional.of(reply);
+        } catch (RuntimeException e) {
+            challenge.release(playerId);
+            throw e;
+        }
+    }
+
+//    Empty for days that haven't been precomputed or have been forgotten
+    public Optional<DailyStats> getStats(LocalDate date){
+        DailyChallenge challenge = dailyChallengeCache.getChallenge(date);
+        if (challenge == null || date.isAfter(today())) {
+            return Optional.empty();
+        }
+        return Optional.of(challenge.getStats(date.isBefore(today())));
+    }
+
+//    Normally already there; only picked here if the app started after midnight's refresh
+    private DailyChallenge challengeFor(LocalDate date){
+        return dailyChallengeCache.getOrCreateChallenge(date, day -> wordService.getRandomWord().getWord());
+    }
+
+}
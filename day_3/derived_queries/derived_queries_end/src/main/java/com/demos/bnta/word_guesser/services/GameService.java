@@ -1,15 +1,25 @@
 package com.demos.bnta.word_guesser.services;
 
+import com.demos.bnta.word_guesser.components.DailyChallengeCache;
+import com.demos.bnta.word_guesser.components.GameOwners;
+import com.demos.bnta.word_guesser.config.ReplicaRead;
 import com.demos.bnta.word_guesser.models.*;
 import com.demos.bnta.word_guesser.repositories.GameRepository;
+import com.demos.bnta.word_guesser.repositories.ShardRouter;
+import com.demos.bnta.word_guesser.repositories.ShardedGameRepository;
 import org.apache.logging.log4j.util.Strings;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 public class GameService {
@@ -18,12 +28,27 @@ public class GameService {
     @Autowired
     GameRepository gameRepository;
 
+    @Autowired
+    ShardedGameRepository shardedGameRepository;
+
+    @Autowired
+    ShardRouter shardRouter;
+
     @Autowired
     PlayerService playerService;
 
     @Autowired
     WordService wordService;
 
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    DailyChallengeCache dailyChallengeCache;
+
+    @Autowired
+    GameOwners gameOwners;
+
     private String currentWord;
     private ArrayList<String> guessedLetters = new ArrayList<>();
 
@@ -47,23 +72,20 @@ public class GameService {
         this.guessedLetters = guessedLetters;
     }
 
-    public Reply processGuess(Guess guess, int id){
+    @Transactional
+    public Reply processGuess(Guess guess, long id){
 
         // Find the correct game
-        Game game = gameRepository.findById(id).get();
+        Game game = findGame(id).get();
 
         // Check if game is already complete
         if (game.isComplete()){
-            return new Reply(
-                    false,
-                    game.getWord(),
-                    String.format("Already finished game %d", game.getId())
-            );
+            return reply(game, false, game.getWord(), ReplyMessages.alreadyFinished(game.getId()));
         }
 
         // Check if letter has been guessed already
         if (this.guessedLetters.contains(guess.getLetter())){
-            return new Reply(false, this.currentWord, String.format("Already guessed %s", guess.getLetter()));
+            return reply(game, false, this.currentWord, ReplyMessages.alreadyGuessed(guess.getLetter()));
         }
 
         // Only increment guess count if a new letter is chosen
@@ -72,11 +94,7 @@ public class GameService {
         // Check for incorrect guess
         if (!game.getWord().contains(guess.getLetter())){
             this.guessedLetters.add(guess.getLetter());
-            return new Reply(
-                    false,
-                    this.currentWord,
-                    String.format("%s is not in the word", guess.getLetter())
-            );
+            return reply(game, false, this.currentWord, ReplyMessages.notInWord(guess.getLetter()));
         }
 
         // Add letter to previous guesses
@@ -84,80 +102,202 @@ public class GameService {
 
 
         // Handle correct guess
-        String runningResult = game.getWord();
+        char[] runningResult = game.getWord().toCharArray();
 
-        for (Character letter : game.getWord().toCharArray()) {
-            if (!this.guessedLetters.contains(letter.toString())){
-                runningResult = runningResult.replace(letter, '*');
+        for (int i = 0; i < runningResult.length; i++) {
+            if (!isGuessed(runningResult[i])){
+                runningResult[i] = '*';
             }
         }
 
-        setCurrentWord(runningResult);
+        setCurrentWord(new String(runningResult));
 
         // Check for win
         if (checkWinCondition(game)){
             game.setComplete(true);
-            gameRepository.save(game);
-            return new Reply(true, this.currentWord, "You win!");
+            saveGame(game);
+            playerService.markChanged(game.getPlayer().getId());
+            dailyChallengeCache.gameCompleted(game.getId(), game.getGuesses());
+            return reply(game, true, this.currentWord, ReplyMessages.WIN);
         } else {
-            return new Reply(true, this.currentWord,
-                    String.format("%s is in the word", guess.getLetter()));
+            return reply(game, true, this.currentWord, ReplyMessages.inWord(guess.getLetter()));
         }
     }
 
+//    Same as guessedLetters.contains(letter.toString()), without a String per letter
+    private boolean isGuessed(char letter){
+        for (String guessed : this.guessedLetters) {
+            if (guessed != null && guessed.length() == 1 && guessed.charAt(0) == letter){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Reply reply(Game game, boolean correct, String wordState, String message){
+        Reply reply = new Reply(correct, wordState, message);
+        reply.setGameId(game.getId());
+        reply.setComplete(game.isComplete());
+        return reply;
+    }
+
     private boolean checkWinCondition(Game game){
         return game.getWord().equals(this.currentWord);
     }
 
     private void incrementGuesses(Game game){
         game.setGuesses(game.getGuesses() + 1);
-        gameRepository.save(game);
+        saveGame(game);
+    }
+
+    private Optional<Game> findGame(long id){
+        if (shardRouter.isEnabled()) {
+            return shardedGameRepository.findById(id);
+        }
+        return gameRepository.findById(id);
+    }
+
+    private void saveGame(Game game){
+        if (shardRouter.isEnabled()) {
+            shardedGameRepository.save(game);
+        } else {
+            gameRepository.save(game);
+        }
     }
 
+    @Transactional
     public Reply startNewGame(long playerId){
         Word targetWord = wordService.getRandomWord();
         Player player = playerService.getPlayerById(playerId).get();
-        targetWord.addPlayer(player);
-        wordService.updateWord(targetWord);
-        Game game = new Game(targetWord.getWord(), player);
-        this.currentWord = Strings.repeat("*", targetWord.getWord().length());
+        // Sharded players don't exist in the words database, so can't be linked to the word
+        if (!shardRouter.isEnabled()) {
+            targetWord.addPlayer(player);
+            wordService.updateWord(targetWord);
+        }
+        return startGame(player, targetWord.getWord());
+    }
+
+//    Starts a game of the given word; the player only needs its id set
+    @Transactional
+    public Reply startGame(Player player, String word){
+        Game game = new Game(word, player);
+        this.currentWord = Strings.repeat("*", word.length());
         this.guessedLetters = new ArrayList<>();
-        gameRepository.save(game);
-        return new Reply(
-                false,
-                this.currentWord,
-                String.format("Started new game with id %d", game.getId())
-        );
+        saveGame(game);
+        playerService.markChanged(player.getId());
+        gameOwners.put(game.getId(), player.getId());
+        return reply(game, false, this.currentWord, ReplyMessages.startedGame(game.getId()));
     }
 
+//    Writes many games in one go: new ones as batched inserts, existing ones
+//    as one batched UPDATE rather than a load and save each
+    @Transactional
+    public void saveGames(List<Game> newGames, List<Game> changedGames){
+        if (shardRouter.isEnabled()) {
+            newGames.forEach(this::saveGame);
+            changedGames.forEach(this::saveGame);
+            return;
+        }
+        gameRepository.saveAll(newGames);
+        jdbcTemplate.batchUpdate("UPDATE games SET guesses = ?, complete = ? WHERE id = ?", changedGames, 50,
+                (statement, game) -> {
+                    statement.setInt(1, game.getGuesses());
+                    statement.setBoolean(2, game.isComplete());
+                    statement.setLong(3, game.getId());
+                });
+        Set<Long> playerIds = new HashSet<>();
+        for (Game game : newGames) {
+            playerIds.add(game.getPlayer().getId());
+        }
+        for (Game game : changedGames) {
+            if (game.isComplete()) {
+                playerIds.add(game.getPlayer().getId());
+            }
+        }
+        playerService.markChanged(playerIds);
+    }
+
+    @ReplicaRead
+    @Transactional(readOnly = true)
     public List<Game> getAllGames(){
+        if (shardRouter.isEnabled()) {
+            List<Game> games = new ArrayList<>();
+            shardedGameRepository.streamAll(games::add);
+            return games;
+        }
         return gameRepository.findAll();
     }
 
+    @ReplicaRead
+    @Transactional(readOnly = true)
     public List<Game> getAllGamesByPlayerId(long id){
+        if (shardRouter.isEnabled()) {
+            return shardedGameRepository.findByPlayerId(id);
+        }
         return gameRepository.findByPlayerId(id);
     }
 
+    @ReplicaRead
+    @Transactional(readOnly = true)
     public List<Game> getAllGamesByWord(String word){
+        if (shardRouter.isEnabled()) {
+            List<Game> games = new ArrayList<>();
+            shardedGameRepository.streamByWord(word, games::add);
+            return games;
+        }
         return gameRepository.findByWord(word);
     }
+    @ReplicaRead
+    @Transactional(readOnly = true)
     public List<Game> getAllCompletedGames(){
+        if (shardRouter.isEnabled()) {
+            List<Game> games = new ArrayList<>();
+            shardedGameRepository.streamByCompleteTrue(games::add);
+            return games;
+        }
         return gameRepository.findByCompleteTrue();
     }
 
 
-    public Optional<Game> getGameById(int id){
-        return gameRepository.findById(id);
+    @ReplicaRead
+    @Transactional(readOnly = true)
+    public Optional<Game> getGameById(long id){
+        return findGame(id);
     }
 
+    @ReplicaRead
+    @Transactional(readOnly = true)
     public List<Game> getAllGamesMultiParam(Map<String, String> parameters) {
         String word = parameters.get("word");
-        Integer guesses;
-        if(parameters.get("guesses") == null){
-            guesses = null;
-        } else {
-            guesses = Integer.parseInt(parameters.get("guesses"));
+        Integer guesses = parseGuesses(parameters);
+        if (shardRouter.isEnabled()) {
+            List<Game> games = new ArrayList<>();
+            shardedGameRepository.streamByCompleteTrueAndOptionalWordAndOptionalGuessesLessThan(word, guesses, games::add);
+            return games;
         }
         return gameRepository.findByCompleteTrueAndOptionalWordAndOptionalGuessesLessThan(word, guesses);
     }
+
+//    Hands each game to the sink as it is read, without building the full list.
+//    When sharded, results from all shards are merged as they arrive.
+    @ReplicaRead
+    @Transactional(readOnly = true)
+    public void streamGames(Map<String, String> parameters, Consumer<Game> sink) {
+        if (!shardRouter.isEnabled()) {
+            List<Game> games = parameters.isEmpty() ? getAllGames() : getAllGamesMultiParam(parameters);
+            games.forEach(sink);
+        } else if (parameters.isEmpty()) {
+            shardedGameRepository.streamAll(sink);
+        } else {
+            shardedGameRepository.streamByCompleteTrueAndOptionalWordAndOptionalGuessesLessThan(
+                    parameters.get("word"), parseGuesses(parameters), sink);
+        }
+    }
+
+    private Integer parseGuesses(Map<String, String> parameters) {
+        if(parameters.get("guesses") == null){
+            return null;
+        }
+        return Integer.parseInt(parameters.get("guesses"));
+    }
 }
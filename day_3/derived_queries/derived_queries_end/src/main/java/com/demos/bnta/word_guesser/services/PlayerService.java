@@ -1,10 +1,19 @@
 package com.demos.bnta.word_guesser.services;
 
+import com.demos.bnta.word_guesser.components.EntityVersions;
+import com.demos.bnta.word_guesser.config.ReplicaRead;
 import com.demos.bnta.word_guesser.models.Player;
+import com.demos.bnta.word_guesser.models.PlayerSummary;
+import com.demos.bnta.word_guesser.repositories.GameRepository;
 import com.demos.bnta.word_guesser.repositories.PlayerRepository;
+import com.demos.bnta.word_guesser.repositories.ShardRouter;
+import com.demos.bnta.word_guesser.repositories.ShardedPlayerRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,17 +23,91 @@ public class PlayerService {
     @Autowired
     PlayerRepository playerRepository;
 
+    @Autowired
+    ShardedPlayerRepository shardedPlayerRepository;
+
+    @Autowired
+    GameRepository gameRepository;
+
+    @Autowired
+    ShardRouter shardRouter;
+
+    @Autowired
+    EntityVersions entityVersions;
+
+    @ReplicaRead
+    @Transactional(readOnly = true)
     public List<Player> getAllPlayers(){
+        if (shardRouter.isEnabled()) {
+            return shardedPlayerRepository.findAll();
+        }
         return playerRepository.findAll();
     }
 
+    @ReplicaRead
+    @Transactional(readOnly = true)
     public Optional<Player> getPlayerById(Long id){
+        if (shardRouter.isEnabled()) {
+            return shardedPlayerRepository.findById(id);
+        }
         return playerRepository.findById(id);
     }
 
+//    Two queries however many games the player has: one aggregate, one for the latest few
+    @ReplicaRead
+    @Transactional(readOnly = true)
+    public Optional<PlayerSummary> getPlayerSummary(long id, int recentGames){
+        if (shardRouter.isEnabled()) {
+            Optional<PlayerSummary> summary = shardedPlayerRepository.findSummaryById(id);
+            summary.ifPresent(found -> found.setRecentGames(shardedPlayerRepository.findRecentGames(id, recentGames)));
+            return summary;
+        }
+        Optional<PlayerSummary> summary = playerRepository.findSummaryById(id);
+        summary.ifPresent(found -> found.setRecentGames(gameRepository.findRecentByPlayerId(id, PageRequest.of(0, recentGames))));
+        return summary;
+    }
+
     public Player savePlayer(Player player){
+        if (shardRouter.isEnabled()) {
+            return shardedPlayerRepository.save(player);
+        }
         playerRepository.save(player);
         return player;
     }
 
+//    A player's JSON includes their games and words, so starting or finishing
+//    a game, or linking a word, has to move the player's version on too or
+//    their ETag would go stale. Guesses alone don't show in it.
+    @Transactional
+    public void markChanged(long playerId){
+        if (shardRouter.isEnabled()) {
+            return;
+        }
+        if (playerRepository.incrementVersion(playerId) == 0) {
+            return;
+        }
+        entityVersions.recordAfterCommit(Player.class, playerId, playerRepository.findVersionById(playerId));
+    }
+
+    @Transactional
+    public void markChanged(Collection<Long> playerIds){
+        if (shardRouter.isEnabled() || playerIds.isEmpty()) {
+            return;
+        }
+        playerRepository.incrementVersions(playerIds);
+        for (Object[] row : playerRepository.findVersionsByIds(playerIds)) {
+            entityVersions.recordAfterCommit(Player.class, (Long) row[0], (Long) row[1]);
+        }
+    }
+
+//    For linking new rows to a player without loading them
+    public Player getPlayerReference(long id){
+        if (shardRouter.isEnabled()) {
+            Player player = new Player();
+            player.setId(id);
+            return player;
+        }
+        return playerRepository.getReferenceById(id);
+    }
+
 }
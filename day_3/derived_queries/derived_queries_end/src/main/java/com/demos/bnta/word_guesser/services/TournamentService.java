@@ -0,0 +1,109 @@
+package com.demos.bnta.word_guesser.services;
+
+import com.demos.bnta.word_guesser.models.Game;
+import com.demos.bnta.word_guesser.models.Reply;
+import com.demos.bnta.word_guesser.models.Tournament;
+import com.demos.bnta.word_guesser.models.TournamentStanding;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Runs tournaments in memory and saves each entrant's progress as a Game
+// row every app.tournaments.flush-interval, in batches, rather than on
+// every guess. Tournaments live on the node that created them.
+@Service
+public class TournamentService {
+
+    @Autowired
+    GameService gameService;
+
+    @Autowired
+    PlayerService playerService;
+
+    @Autowired
+    WordService wordService;
+
+    private final Map<Long, Tournament> tournaments = new ConcurrentHashMap<>();
+    private final AtomicLong lastId = new AtomicLong();
+
+    public Tournament createTournament(int maxEntrants){
+        String word = wordService.getRandomWord().getWord();
+        Tournament tournament = new Tournament(lastId.incrementAndGet(), word, maxEntrants);
+        tournaments.put(tournament.getId(), tournament);
+        return tournament;
+    }
+
+    public Optional<Tournament> getTournament(long id){
+        return Optional.ofNullable(tournaments.get(id));
+    }
+
+//    Empty if there is no such player
+    public Optional<Reply> joinTournament(Tournament tournament, long playerId){
+        if (!tournament.hasEntrant(playerId) && playerService.getPlayerById(playerId).isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(tournament.join(playerId));
+    }
+
+//    Stops taking guesses, saves what's left and returns the final standings.
+//    The tournament is only dropped once that last flush has gone through; if
+//    it fails, flushAll keeps retrying it and drops it when it succeeds.
+    public List<TournamentStanding> endTournament(Tournament tournament, int limit){
+        tournament.close();
+        flush(tournament);
+        tournaments.remove(tournament.getId());
+        return tournament.getStandings(limit);
+    }
+
+    @Scheduled(fixedDelayString = "${app.tournaments.flush-interval:1000}")
+    public void flushAll(){
+        for (Tournament tournament : tournaments.values()) {
+            flush(tournament);
+            if (tournament.isClosed()) {
+                tournaments.remove(tournament.getId());
+            }
+        }
+    }
+
+    public void flush(Tournament tournament){
+//        One flush at a time per tournament, so an entrant's game is never inserted twice
+        synchronized (tournament) {
+            List<Tournament.Entrant> changed = tournament.takeChangedEntrants();
+            if (changed.isEmpty()) {
+                return;
+            }
+            List<Tournament.Entrant> newEntrants = new ArrayList<>();
+            List<Game> newGames = new ArrayList<>();
+            List<Game> changedGames = new ArrayList<>();
+            for (Tournament.Entrant entrant : changed) {
+                Game game = new Game(tournament.getWord(), playerService.getPlayerReference(entrant.getPlayerId()));
+                game.setGuesses(entrant.getGuesses());
+                game.setComplete(entrant.isComplete());
+                if (entrant.getGameId() == 0) {
+                    newEntrants.add(entrant);
+                    newGames.add(game);
+                } else {
+                    game.setId(entrant.getGameId());
+                    changedGames.add(game);
+                }
+            }
+            try {
+                gameService.saveGames(newGames, changedGames);
+            } catch (RuntimeException e) {
+                tournament.requeue(changed);
+                throw e;
+            }
+            for (int i = 0; i < newEntrants.size(); i++) {
+                tournament.setGameId(newEntrants.get(i).getIndex(), newGames.get(i).getId());
+            }
+        }
+    }
+
+}
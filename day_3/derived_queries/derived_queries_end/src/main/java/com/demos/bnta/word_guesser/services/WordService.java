@@ -15,7 +15,7 @@ public class WordService {
 
     public Word getRandomWord(){
         Random random = new Random();
-        long randomIndex = random.nextLong(50);
+        long randomIndex = random.nextLong(50) + 1;
         return wordRepository.findById(randomIndex).get();
     }
 
@@ -0,0 +1,40 @@
+CREATE SEQUENCE IF NOT EXISTS shard_players_seq;
+CREATE SEQUENCE IF NOT EXISTS shard_games_seq;
+
+CREATE TABLE IF NOT EXISTS shard_players (
+    id BIGINT PRIMARY KEY,
+    bucket INT NOT NULL,
+    name VARCHAR(255)
+);
+CREATE INDEX IF NOT EXISTS shard_players_bucket_idx ON shard_players (bucket);
+
+CREATE TABLE IF NOT EXISTS shard_games (
+    id BIGINT PRIMARY KEY,
+    bucket INT NOT NULL,
+    word VARCHAR(255),
+    guesses INT NOT NULL,
+    complete BOOLEAN NOT NULL,
+    player_id BIGINT NOT NULL,
+    game_number BIGINT NOT NULL DEFAULT 0
+);
+-- game_number counts each player's games from 1, so their most recent come
+-- first whichever shards they were started on. Ids can't do that: each
+-- shard has its own sequence, so after a bucket moves its older games can
+-- have the higher ids. Games from before the column count as the oldest.
+ALTER TABLE shard_games ADD COLUMN IF NOT EXISTS game_number BIGINT NOT NULL DEFAULT 0;
+CREATE INDEX IF NOT EXISTS shard_games_bucket_idx ON shard_games (bucket);
+DROP INDEX IF EXISTS shard_games_player_recent_idx;
+CREATE INDEX IF NOT EXISTS shard_games_player_number_idx ON shard_games (player_id, game_number);
+
+-- The buckets this shard holds. Every write locks its bucket's row first,
+-- and a bucket's row is deleted before it is copied away, so no write can
+-- land on a shard a bucket is leaving, whichever instance made it.
+CREATE TABLE IF NOT EXISTS shard_bucket_leases (
+    bucket INT PRIMARY KEY
+);
+
+-- Only read on shard 0, which holds the bucket -> shard assignment
+CREATE TABLE IF NOT EXISTS shard_buckets (
+    bucket INT PRIMARY KEY,
+    shard INT NOT NULL
+);
@@ -0,0 +1,118 @@
+package com.demos.bnta.word_guesser;
+
+import com.demos.bnta.word_guesser.components.BinaryGuessMessageConverter;
+import com.demos.bnta.word_guesser.models.Player;
+import com.demos.bnta.word_guesser.models.Reply;
+import com.demos.bnta.word_guesser.services.PlayerService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:binary;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"app.rate-limit.requests-per-second=1000000",
+		"app.rate-limit.burst=1000000"
+})
+@AutoConfigureMockMvc
+class BinaryProtocolTests {
+
+	private static final int GUESSES = 20_000;
+
+	@Autowired
+	MockMvc mockMvc;
+
+	@Autowired
+	PlayerService playerService;
+
+	@Test
+	void binaryClientsCanStartAGameAndGuess() throws Exception {
+		Reply started = BinaryGuessMessageConverter.decode(mockMvc.perform(startGame(BinaryGuessMessageConverter.BINARY_GUESS))
+				.andExpect(status().isCreated())
+				.andExpect(content().contentType(BinaryGuessMessageConverter.BINARY_GUESS))
+				.andReturn().getResponse().getContentAsByteArray());
+		assertThat(started.getGameId()).isPositive();
+		assertThat(started.getWordState()).matches("\\*+");
+
+		byte[] body = mockMvc.perform(guess(started.getGameId(), BinaryGuessMessageConverter.BINARY_GUESS))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsByteArray();
+		Reply reply = BinaryGuessMessageConverter.decode(body);
+		assertThat(reply.getGameId()).isEqualTo(started.getGameId());
+		assertThat(reply.getWordState()).hasSameSizeAs(started.getWordState());
+		assertThat(body).hasSize(10 + started.getWordState().length());
+	}
+
+	@Test
+	void jsonIsStillTheDefault() throws Exception {
+		mockMvc.perform(post("/games").param("playerId", String.valueOf(newPlayer())))
+				.andExpect(status().isCreated())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+	}
+
+//	Run with: ./mvnw test -Dtest=BinaryProtocolTests -Dbenchmark=true
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	void bytesAndCpuPerGuess() throws Exception {
+		long gameId = BinaryGuessMessageConverter.decode(mockMvc.perform(startGame(BinaryGuessMessageConverter.BINARY_GUESS))
+				.andReturn().getResponse().getContentAsByteArray()).getGameId();
+//		warm up both paths, after which every guess is a repeat that doesn't write to the database
+		guesses(gameId, MediaType.APPLICATION_JSON, GUESSES / 10);
+		guesses(gameId, BinaryGuessMessageConverter.BINARY_GUESS, GUESSES / 10);
+
+		long[] json = guesses(gameId, MediaType.APPLICATION_JSON, GUESSES);
+		long[] binary = guesses(gameId, BinaryGuessMessageConverter.BINARY_GUESS, GUESSES);
+
+		System.out.printf("per guess: JSON %d request + %d response bytes, %d us CPU; "
+						+ "binary %d request + %d response bytes, %d us CPU%n",
+				json[0], json[1], json[2] / GUESSES / 1000, binary[0], binary[1], binary[2] / GUESSES / 1000);
+		assertThat(binary[0] + binary[1]).isLessThan(json[0] + json[1]);
+	}
+
+//	Returns {request bytes, response bytes, CPU nanos for all guesses}
+	private long[] guesses(long gameId, MediaType mediaType, int count) throws Exception {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		long requestBytes = guessBody(mediaType).length;
+		long responseBytes = 0;
+		long cpuBefore = threads.getCurrentThreadCpuTime();
+		for (int i = 0; i < count; i++) {
+			responseBytes = mockMvc.perform(guess(gameId, mediaType)).andReturn().getResponse().getContentAsByteArray().length;
+		}
+		return new long[]{requestBytes, responseBytes, threads.getCurrentThreadCpuTime() - cpuBefore};
+	}
+
+	private RequestBuilder startGame(MediaType accept) {
+		return post("/games").param("playerId", String.valueOf(newPlayer())).accept(accept);
+	}
+
+	private RequestBuilder guess(long gameId, MediaType mediaType) {
+		return patch("/games/" + gameId).contentType(mediaType).accept(mediaType).content(guessBody(mediaType));
+	}
+
+	private byte[] guessBody(MediaType mediaType) {
+		if (mediaType.equals(BinaryGuessMessageConverter.BINARY_GUESS)) {
+			return new byte[]{'e'};
+		}
+		return "{\"letter\":\"e\"}".getBytes();
+	}
+
+	private long newPlayer() {
+		return playerService.savePlayer(new Player("Binary")).getId();
+	}
+
+}
@@ -0,0 +1,65 @@
+package com.demos.bnta.word_guesser;
+
+import com.demos.bnta.word_guesser.models.Game;
+import com.demos.bnta.word_guesser.models.Player;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Run with: ./mvnw test -Dtest=BulkInsertBenchmarkTests -Dbenchmark=true
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class BulkInsertBenchmarkTests {
+
+	private static final int GAMES = 20_000;
+	private static final int FLUSH_EVERY = 50;
+
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void bulkInsertThroughput() {
+//		warm up the connection pool, statement cache and JIT
+		insertGames(1, 1_000);
+		insertGames(FLUSH_EVERY, 1_000);
+
+//		batch size 1 sends one INSERT per row, which is what IDENTITY ids forced on us
+		double unbatched = insertGames(1, GAMES);
+		double batched = insertGames(FLUSH_EVERY, GAMES);
+
+		System.out.printf("bulk insert of %d games: unbatched %.0f rows/s, batched %.0f rows/s (%.1fx)%n",
+				GAMES, unbatched, batched, batched / unbatched);
+		assertThat(batched).isGreaterThan(unbatched);
+	}
+
+	private double insertGames(int batchSize, int count) {
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+		entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+		try {
+			entityManager.getTransaction().begin();
+			Player player = entityManager.find(Player.class, 1L);
+			long start = System.nanoTime();
+			for (int i = 1; i <= count; i++) {
+				entityManager.persist(new Game("benchmark", player));
+				if (i % FLUSH_EVERY == 0) {
+					entityManager.flush();
+					entityManager.clear();
+					player = entityManager.getReference(Player.class, 1L);
+				}
+			}
+			entityManager.getTransaction().commit();
+			long elapsed = System.nanoTime() - start;
+			return count / (elapsed / 1_000_000_000.0);
+		} finally {
+			entityManager.close();
+		}
+	}
+
+}
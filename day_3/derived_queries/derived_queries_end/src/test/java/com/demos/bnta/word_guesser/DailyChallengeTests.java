@@ -0,0 +1,82 @@
+package com.demos.bnta.word_guesser;
+
+import com.demos.bnta.word_guesser.models.DailyChallenge;
+import com.demos.bnta.word_guesser.models.DailyStats;
+import com.demos.bnta.word_guesser.models.Guess;
+import com.demos.bnta.word_guesser.models.Player;
+import com.demos.bnta.word_guesser.models.Reply;
+import com.demos.bnta.word_guesser.services.DailyChallengeService;
+import com.demos.bnta.word_guesser.services.GameService;
+import com.demos.bnta.word_guesser.services.PlayerService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:daily;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa"
+})
+class DailyChallengeTests {
+
+	@Autowired
+	DailyChallengeService dailyChallengeService;
+
+	@Autowired
+	PlayerService playerService;
+
+	@Autowired
+	GameService gameService;
+
+	@Test
+	void everyoneGetsTheSameWordOncePerDay() {
+		Player first = playerService.savePlayer(new Player("First"));
+		Player second = playerService.savePlayer(new Player("Second"));
+		String word = dailyChallengeService.getTodaysChallenge().getWord();
+
+		long firstGame = dailyChallengeService.startDailyGame(first.getId()).get().getGameId();
+		long secondGame = dailyChallengeService.startDailyGame(second.getId()).get().getGameId();
+
+		assertThat(gameService.getGameById(firstGame).get().getWord()).isEqualTo(word);
+		assertThat(gameService.getGameById(secondGame).get().getWord()).isEqualTo(word);
+		assertThat(dailyChallengeService.startDailyGame(first.getId())).isEmpty();
+	}
+
+	@Test
+	void finishedGamesAreRolledIntoTheDaysStats() {
+		DailyChallenge challenge = dailyChallengeService.getTodaysChallenge();
+		long startedBefore = dailyChallengeService.getStats(challenge.getDate()).get().getStarted();
+		long completedBefore = dailyChallengeService.getStats(challenge.getDate()).get().getCompleted();
+
+		Player player = playerService.savePlayer(new Player("Finisher"));
+		long gameId = dailyChallengeService.startDailyGame(player.getId()).get().getGameId();
+		Reply reply = null;
+		for (String letter : challenge.getWord().chars().distinct().mapToObj(Character::toString).toArray(String[]::new)) {
+			reply = gameService.processGuess(new Guess(letter), gameId);
+		}
+		assertThat(reply.isComplete()).isTrue();
+
+		DailyStats stats = dailyChallengeService.getStats(challenge.getDate()).get();
+		assertThat(stats.getStarted()).isEqualTo(startedBefore + 1);
+		assertThat(stats.getCompleted()).isEqualTo(completedBefore + 1);
+		assertThat(stats.getBestGuesses()).isLessThanOrEqualTo(gameService.getGameById(gameId).get().getGuesses());
+		assertThat(stats.getWord()).isNull();
+	}
+
+	@Test
+	void unknownPlayersCanTryAgainOnceTheyExist() {
+		assertThatThrownBy(() -> dailyChallengeService.startDailyGame(999_999))
+				.isInstanceOf(DataIntegrityViolationException.class);
+		assertThat(dailyChallengeService.getTodaysChallenge().claim(999_999)).isTrue();
+	}
+
+	@Test
+	void futureDaysAreHidden() {
+		assertThat(dailyChallengeService.getStats(dailyChallengeService.today().plusDays(1))).isEmpty();
+	}
+
+}
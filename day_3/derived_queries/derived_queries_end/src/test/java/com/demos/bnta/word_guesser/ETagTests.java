@@ -0,0 +1,89 @@
+package com.demos.bnta.word_guesser;
+
+import com.demos.bnta.word_guesser.models.Player;
+import com.demos.bnta.word_guesser.services.GameService;
+import com.demos.bnta.word_guesser.services.PlayerService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:etags;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa"
+})
+@AutoConfigureMockMvc
+class ETagTests {
+
+	@Autowired
+	MockMvc mockMvc;
+
+	@Autowired
+	PlayerService playerService;
+
+	@Autowired
+	GameService gameService;
+
+	@Test
+	void unchangedPlayerIsNotModified() throws Exception {
+		Player player = playerService.savePlayer(new Player("Cached"));
+		String etag = mockMvc.perform(get("/players/" + player.getId()))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertThat(etag).isNotNull();
+
+		mockMvc.perform(get("/players/" + player.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.ETAG, etag));
+	}
+
+	@Test
+	void startingAGameChangesThePlayersETag() throws Exception {
+		Player player = playerService.savePlayer(new Player("Changing"));
+		String etag = mockMvc.perform(get("/players/" + player.getId()))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		mockMvc.perform(post("/games").param("playerId", String.valueOf(player.getId())))
+				.andExpect(status().isCreated());
+
+		String newEtag = mockMvc.perform(get("/players/" + player.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertThat(newEtag).isNotEqualTo(etag);
+	}
+
+	@Test
+	void onlyFinishingAGameChangesThePlayersETag() throws Exception {
+		Player player = playerService.savePlayer(new Player("Guessing"));
+		long gameId = gameService.startGame(player, "ab").getGameId();
+		String etag = mockMvc.perform(get("/players/" + player.getId()))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		guess(gameId, "a");
+		mockMvc.perform(get("/players/" + player.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified());
+
+		guess(gameId, "b");
+		mockMvc.perform(get("/players/" + player.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk());
+	}
+
+	private void guess(long gameId, String letter) throws Exception {
+		mockMvc.perform(patch("/games/" + gameId)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"letter\": \"" + letter + "\"}"))
+				.andExpect(status().isOk());
+	}
+
+}
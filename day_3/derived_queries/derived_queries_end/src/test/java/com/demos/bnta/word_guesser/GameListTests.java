@@ -0,0 +1,80 @@
+package com.demos.bnta.word_guesser;
+
+import com.demos.bnta.word_guesser.models.Game;
+import com.demos.bnta.word_guesser.models.Player;
+import com.demos.bnta.word_guesser.repositories.GameList;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GameListTests {
+
+	private final Player player = new Player("Memory");
+
+	@Test
+	void addsFindsAndDeletesGames() {
+		GameList gameList = new GameList();
+		Game game = new Game("hello", player);
+		gameList.addGame(game);
+
+		assertThat(game.getId()).isEqualTo(1);
+		assertThat(gameList.getGameById(1)).isSameAs(game);
+		assertThat(gameList.deleteGame(1)).isTrue();
+		assertThat(gameList.getGameById(1)).isNull();
+		assertThat(gameList.deleteGame(1)).isFalse();
+		assertThat(gameList.size()).isZero();
+	}
+
+	@Test
+	void queriesSeeOnlyLiveGames() {
+		GameList gameList = new GameList();
+		for (int i = 0; i < 1000; i++) {
+			gameList.addGame(new Game(i % 2 == 0 ? "even" : "odd", player));
+		}
+//		Ids start at 1, so game i has id i + 1 and these are all "even" games
+		for (long id = 1; id <= 1000; id += 4) {
+			gameList.deleteGame(id);
+		}
+		assertThat(gameList.findGames(game -> game.getWord().equals("even"))).hasSize(250);
+		assertThat(gameList.findGames(game -> game.getWord().equals("odd"))).hasSize(500);
+		assertThat(gameList.getAllGames()).hasSize(750);
+	}
+
+	@Test
+	void concurrentWritersGetUniqueIds() throws Exception {
+		GameList gameList = new GameList();
+		int threads = Runtime.getRuntime().availableProcessors();
+		int perThread = 50_000;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < perThread; i++) {
+						Game game = new Game("word", player);
+						gameList.addGame(game);
+						assertThat(gameList.getGameById(game.getId())).isSameAs(game);
+						if (i % 3 == 0) {
+							assertThat(gameList.deleteGame(game.getId())).isTrue();
+						}
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		int deletedPerThread = (perThread + 2) / 3;
+		assertThat(gameList.size()).isEqualTo(threads * (perThread - deletedPerThread));
+		assertThat(gameList.getAllGames()).extracting(Game::getId).doesNotHaveDuplicates();
+	}
+
+}
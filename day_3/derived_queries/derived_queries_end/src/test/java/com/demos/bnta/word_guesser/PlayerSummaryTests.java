@@ -0,0 +1,126 @@
+package com.demos.bnta.word_guesser;
+
+import com.demos.bnta.word_guesser.models.Game;
+import com.demos.bnta.word_guesser.models.GameSummary;
+import com.demos.bnta.word_guesser.models.Player;
+import com.demos.bnta.word_guesser.models.PlayerSummary;
+import com.demos.bnta.word_guesser.services.GameService;
+import com.demos.bnta.word_guesser.services.PlayerService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:summaries;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class PlayerSummaryTests {
+
+	@Autowired
+	PlayerService playerService;
+
+	@Autowired
+	GameService gameService;
+
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void countsAndRecentGamesComeFromTheDatabase() {
+		Player player = playerService.savePlayer(new Player("Summarised"));
+		addGames(player, 7, 3);
+
+		PlayerSummary summary = playerService.getPlayerSummary(player.getId(), 5).get();
+
+		assertThat(summary.getName()).isEqualTo("Summarised");
+		assertThat(summary.getGamesPlayed()).isEqualTo(10);
+		assertThat(summary.getGamesWon()).isEqualTo(7);
+		assertThat(summary.getAverageGuesses()).isEqualTo(4.0);
+		assertThat(summary.getRecentGames()).hasSize(5);
+		assertThat(summary.getRecentGames()).extracting(GameSummary::getId).isSortedAccordingTo(Collections.reverseOrder());
+	}
+
+	@Test
+	void playersWithoutGamesHaveEmptySummaries() {
+		Player player = playerService.savePlayer(new Player("Newcomer"));
+		PlayerSummary summary = playerService.getPlayerSummary(player.getId(), 10).get();
+
+		assertThat(summary.getGamesPlayed()).isZero();
+		assertThat(summary.getAverageGuesses()).isNull();
+		assertThat(summary.getRecentGames()).isEmpty();
+		assertThat(playerService.getPlayerSummary(999_999, 10)).isEmpty();
+	}
+
+	@Test
+	void queryCountDoesNotGrowWithGames() {
+		Player few = playerService.savePlayer(new Player("Few"));
+		Player many = playerService.savePlayer(new Player("Many"));
+		addGames(few, 1, 1);
+		addGames(many, 2_000, 1_000);
+
+		assertThat(statementsFor(few)).isEqualTo(2);
+		assertThat(statementsFor(many)).isEqualTo(2);
+	}
+
+//	Run with: ./mvnw test -Dtest=PlayerSummaryTests -Dbenchmark=true
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	void responseTimeStaysFlat() {
+		Player few = playerService.savePlayer(new Player("Few"));
+		Player many = playerService.savePlayer(new Player("Many"));
+		addGames(few, 10, 10);
+		addGames(many, 20_000, 20_000);
+
+		long fewNanos = medianSummaryNanos(few);
+		long manyNanos = medianSummaryNanos(many);
+
+		System.out.printf("summary of 20 games: %d us, of 40,000 games: %d us%n", fewNanos / 1000, manyNanos / 1000);
+		assertThat(statementsFor(many)).isEqualTo(2);
+		assertThat(manyNanos).isLessThan(fewNanos * 20);
+	}
+
+	private long statementsFor(Player player) {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		playerService.getPlayerSummary(player.getId(), 10);
+		return statistics.getPrepareStatementCount();
+	}
+
+	private long medianSummaryNanos(Player player) {
+		long[] timings = new long[51];
+		for (int i = 0; i < timings.length; i++) {
+			long start = System.nanoTime();
+			playerService.getPlayerSummary(player.getId(), 10);
+			timings[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(timings);
+		return timings[timings.length / 2];
+	}
+
+//	Won games take 4 guesses, lost ones 9
+	private void addGames(Player player, int won, int lost) {
+		Player reference = playerService.getPlayerReference(player.getId());
+		List<Game> games = new ArrayList<>();
+		for (int i = 0; i < won + lost; i++) {
+			Game game = new Game("summary", reference);
+			game.setComplete(i < won);
+			game.setGuesses(i < won ? 4 : 9);
+			games.add(game);
+		}
+		gameService.saveGames(games, Collections.emptyList());
+	}
+
+}
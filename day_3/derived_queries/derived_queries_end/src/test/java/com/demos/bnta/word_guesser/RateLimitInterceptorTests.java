@@ -0,0 +1,61 @@
+package com.demos.bnta.word_guesser;
+
+import com.demos.bnta.word_guesser.models.Player;
+import com.demos.bnta.word_guesser.services.GameService;
+import com.demos.bnta.word_guesser.services.PlayerService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+
+// Slow enough that no tokens come back while the test runs
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:rate_limits;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"app.rate-limit.requests-per-second=0.001",
+		"app.rate-limit.burst=5"
+})
+@AutoConfigureMockMvc
+class RateLimitInterceptorTests {
+
+	@Autowired
+	MockMvc mockMvc;
+
+	@Autowired
+	PlayerService playerService;
+
+	@Autowired
+	GameService gameService;
+
+	@Test
+	void guessesSpreadOverGamesCountAgainstThePlayer() throws Exception {
+		Player player = playerService.savePlayer(new Player("Spreader"));
+		List<Long> gameIds = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			gameIds.add(gameService.startGame(player, "zzzzz").getGameId());
+		}
+
+//		Two guesses a game is well within each game's own limit
+		List<Integer> statuses = new ArrayList<>();
+		for (long gameId : gameIds) {
+			for (String letter : new String[]{"a", "b"}) {
+				statuses.add(mockMvc.perform(patch("/games/" + gameId)
+								.contentType(MediaType.APPLICATION_JSON)
+								.content("{\"letter\": \"" + letter + "\"}"))
+						.andReturn().getResponse().getStatus());
+			}
+		}
+
+		assertThat(statuses).containsExactly(200, 200, 200, 200, 200, 429);
+	}
+
+}
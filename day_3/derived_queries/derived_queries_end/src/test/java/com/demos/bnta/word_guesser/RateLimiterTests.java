@@ -0,0 +1,67 @@
+package com.demos.bnta.word_guesser;
+
+import com.demos.bnta.word_guesser.components.RateLimiter;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimiterTests {
+
+	@Test
+	void allowsBurstThenAsksClientToWait() {
+		RateLimiter rateLimiter = new RateLimiter(1, 5, 100);
+		long key = RateLimiter.playerKey(1);
+		for (int i = 0; i < 5; i++) {
+			assertThat(rateLimiter.tryAcquire(key)).isZero();
+		}
+		long wait = rateLimiter.tryAcquire(key);
+		assertThat(wait).isPositive().isLessThanOrEqualTo(1_000_000_000L);
+		assertThat(rateLimiter.getRejectedCount()).isEqualTo(1);
+	}
+
+	@Test
+	void keysHaveIndependentBuckets() {
+		RateLimiter rateLimiter = new RateLimiter(1, 1, 100);
+		assertThat(rateLimiter.tryAcquire(RateLimiter.playerKey(7))).isZero();
+		assertThat(rateLimiter.tryAcquire(RateLimiter.playerKey(7))).isPositive();
+		assertThat(rateLimiter.tryAcquire(RateLimiter.gameKey(7))).isZero();
+	}
+
+	@Test
+	void idleKeysAreEvicted() throws InterruptedException {
+		RateLimiter rateLimiter = new RateLimiter(1000, 1, 100);
+		for (long player = 0; player < 50; player++) {
+			rateLimiter.tryAcquire(RateLimiter.playerKey(player));
+		}
+		assertThat(rateLimiter.getTrackedKeys()).isEqualTo(50);
+		Thread.sleep(10);
+		rateLimiter.evictIdleBuckets();
+		assertThat(rateLimiter.getTrackedKeys()).isZero();
+	}
+
+	@Test
+	void mapStaysBoundedWhenEveryKeyIsActive() {
+		RateLimiter rateLimiter = new RateLimiter(0.001, 1, 10);
+		for (long game = 0; game < 1000; game++) {
+			rateLimiter.tryAcquire(RateLimiter.gameKey(game));
+		}
+		assertThat(rateLimiter.getTrackedKeys()).isLessThanOrEqualTo(10);
+	}
+
+	@Test
+	void overflowKeysDoNotShareOneBucket() {
+		RateLimiter rateLimiter = new RateLimiter(0.001, 1, 10);
+		for (long game = 0; game < 10; game++) {
+			rateLimiter.tryAcquire(RateLimiter.gameKey(game));
+		}
+		int allowed = 0;
+		for (long player = 0; player < 100; player++) {
+			if (rateLimiter.tryAcquire(RateLimiter.playerKey(player)) == 0) {
+				allowed++;
+			}
+		}
+		assertThat(rateLimiter.getTrackedKeys()).isEqualTo(10);
+		assertThat(allowed).isGreaterThan(90);
+	}
+
+}
@@ -0,0 +1,103 @@
+package com.demos.bnta.word_guesser;
+
+import com.demos.bnta.word_guesser.components.GameJsonSerializers;
+import com.demos.bnta.word_guesser.models.LetterList;
+import com.demos.bnta.word_guesser.models.Reply;
+import com.demos.bnta.word_guesser.models.ReplyMessages;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplySerializationTests {
+
+	private static final int REPLIES = 1_000_000;
+
+	private final ObjectMapper reflectiveMapper = new ObjectMapper();
+	private final ObjectMapper customMapper = new ObjectMapper().registerModule(new SimpleModule()
+			.addSerializer(new GameJsonSerializers.ReplySerializer())
+			.addSerializer(new GameJsonSerializers.LetterListSerializer()));
+
+	@Test
+	void customSerializersWriteTheSameJson() throws Exception {
+		Reply[] replies = {
+				new Reply(true, "c*t", "c is in the word"),
+				new Reply(false, null, "Quote \" and é"),
+				new Reply()
+		};
+		for (Reply reply : replies) {
+			assertThat(customMapper.writeValueAsString(reply)).isEqualTo(reflectiveMapper.writeValueAsString(reply));
+		}
+		LetterList letters = new LetterList(new ArrayList<>(Arrays.asList("a", "b")));
+		assertThat(customMapper.writeValueAsString(letters)).isEqualTo(reflectiveMapper.writeValueAsString(letters));
+		assertThat(customMapper.writeValueAsString(new LetterList())).isEqualTo(reflectiveMapper.writeValueAsString(new LetterList()));
+	}
+
+	@Test
+	void templatesMatchTheFormattedMessages() {
+		for (String letter : new String[]{"a", "Z", "%", "ab", "é", null}) {
+			assertThat(ReplyMessages.alreadyGuessed(letter)).isEqualTo(String.format("Already guessed %s", letter));
+			assertThat(ReplyMessages.notInWord(letter)).isEqualTo(String.format("%s is not in the word", letter));
+			assertThat(ReplyMessages.inWord(letter)).isEqualTo(String.format("%s is in the word", letter));
+		}
+		assertThat(ReplyMessages.startedGame(42)).isEqualTo(String.format("Started new game with id %d", 42));
+		assertThat(ReplyMessages.alreadyFinished(42)).isEqualTo(String.format("Already finished game %d", 42));
+	}
+
+//	Run with: ./mvnw test -Dtest=ReplySerializationTests -Dbenchmark=true
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	void guessReplyAllocations() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+//		warm up the JIT and Jackson's serializer caches
+		formattedReflective(out, REPLIES / 10);
+		templatedCustom(out, REPLIES / 10);
+
+		long[] before = measure(() -> formattedReflective(out, REPLIES));
+		long[] after = measure(() -> templatedCustom(out, REPLIES));
+
+		System.out.printf("%d guess replies: String.format + reflective %d B/reply in %d ms, "
+						+ "templates + custom serializer %d B/reply in %d ms%n",
+				REPLIES, before[0] / REPLIES, before[1] / 1_000_000, after[0] / REPLIES, after[1] / 1_000_000);
+		assertThat(after[0]).isLessThan(before[0]);
+	}
+
+	private void formattedReflective(ByteArrayOutputStream out, int count) throws Exception {
+		for (int i = 0; i < count; i++) {
+			String letter = i % 2 == 0 ? "e" : "q";
+			out.reset();
+			reflectiveMapper.writeValue(out, new Reply(true, "*e**", String.format("%s is in the word", letter)));
+		}
+	}
+
+	private void templatedCustom(ByteArrayOutputStream out, int count) throws Exception {
+		for (int i = 0; i < count; i++) {
+			String letter = i % 2 == 0 ? "e" : "q";
+			out.reset();
+			customMapper.writeValue(out, new Reply(true, "*e**", ReplyMessages.inWord(letter)));
+		}
+	}
+
+//	Returns {bytes allocated by this thread, elapsed nanos}
+	private long[] measure(Run run) throws Exception {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+		long start = System.nanoTime();
+		run.run();
+		long elapsed = System.nanoTime() - start;
+		return new long[]{threads.getThreadAllocatedBytes(threadId) - allocatedBefore, elapsed};
+	}
+
+	private interface Run {
+		void run() throws Exception;
+	}
+
+}
@@ -0,0 +1,164 @@
+package com.demos.bnta.word_guesser;
+
+import com.demos.bnta.word_guesser.models.Game;
+import com.demos.bnta.word_guesser.models.GameSummary;
+import com.demos.bnta.word_guesser.models.Player;
+import com.demos.bnta.word_guesser.repositories.ShardRouter;
+import com.demos.bnta.word_guesser.repositories.ShardedGameRepository;
+import com.demos.bnta.word_guesser.repositories.ShardedPlayerRepository;
+import com.demos.bnta.word_guesser.services.GameService;
+import com.demos.bnta.word_guesser.services.PlayerService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Three in-memory H2 databases stand in for the shards
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:words;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"app.sharding.enabled=true",
+		"app.sharding.shards[0].url=jdbc:h2:mem:shard0;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+		"app.sharding.shards[1].url=jdbc:h2:mem:shard1;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+		"app.sharding.shards[2].url=jdbc:h2:mem:shard2;MODE=PostgreSQL;DB_CLOSE_DELAY=-1"
+})
+class ShardingTests {
+
+	@Autowired
+	PlayerService playerService;
+
+	@Autowired
+	GameService gameService;
+
+	@Autowired
+	ShardRouter shardRouter;
+
+	@Autowired
+	ShardedGameRepository shardedGameRepository;
+
+	@Autowired
+	ShardedPlayerRepository shardedPlayerRepository;
+
+	@Test
+	void gamesLiveOnTheirPlayersShard() {
+		Player player = playerService.savePlayer(new Player("Sharded"));
+		Game game = gameService.getGameById(startGame(player)).get();
+
+		assertThat(ShardRouter.bucketOf(game.getId())).isEqualTo(ShardRouter.bucketOf(player.getId()));
+		assertThat(game.getPlayer().getName()).isEqualTo("Sharded");
+		assertThat(gameService.getAllGamesByPlayerId(player.getId())).extracting(Game::getId).containsExactly(game.getId());
+	}
+
+	@Test
+	void listingGamesGathersEveryShard() {
+		List<Long> gameIds = new ArrayList<>();
+		for (int i = 0; i < 30; i++) {
+			gameIds.add(startGame(playerService.savePlayer(new Player("Player " + i))));
+		}
+
+		List<Long> streamed = new ArrayList<>();
+		gameService.streamGames(new HashMap<>(), game -> streamed.add(game.getId()));
+		assertThat(streamed).containsAll(gameIds);
+		assertThat(gameService.getAllGames()).extracting(Game::getId).containsAll(gameIds);
+	}
+
+	@Test
+	void completedGamesAreFilteredOnEveryShard() {
+		Player player = playerService.savePlayer(new Player("Finisher"));
+		Game game = gameService.getGameById(startGame(player)).get();
+		game.setComplete(true);
+		game.setGuesses(3);
+		shardedGameRepository.save(game);
+
+		Map<String, String> parameters = new HashMap<>();
+		parameters.put("guesses", "10");
+		assertThat(gameService.getAllGamesMultiParam(parameters)).extracting(Game::getId).contains(game.getId());
+		parameters.put("guesses", "3");
+		assertThat(gameService.getAllGamesMultiParam(parameters)).extracting(Game::getId).doesNotContain(game.getId());
+	}
+
+	@Test
+	void movedBucketsStayReachable() {
+		Player player = playerService.savePlayer(new Player("Mover"));
+		long gameId = startGame(player);
+		int bucket = ShardRouter.bucketOf(player.getId());
+		int source = shardRouter.shardForBucket(bucket);
+		int target = (source + 1) % shardRouter.getShardCount();
+
+		shardRouter.moveBucket(bucket, target);
+
+		assertThat(shardRouter.shardForBucket(bucket)).isEqualTo(target);
+		assertThat(playerService.getPlayerById(player.getId())).isPresent();
+		assertThat(gameService.getGameById(gameId)).isPresent();
+		assertThat(shardRouter.shard(source).queryForObject(
+				"SELECT COUNT(*) FROM shard_games WHERE bucket = ?", Integer.class, bucket)).isZero();
+
+		shardRouter.moveBucket(bucket, source);
+		assertThat(shardRouter.rebalance()).isZero();
+	}
+
+//	As seen by an instance that still thinks the bucket is on its old shard
+	@Test
+	void writesFollowABucketMovedByAnotherInstance() {
+		Player player = playerService.savePlayer(new Player("Stale"));
+		int bucket = ShardRouter.bucketOf(player.getId());
+		int source = shardRouter.shardForBucket(bucket);
+		int target = (source + 1) % shardRouter.getShardCount();
+		shardRouter.moveBucket(bucket, target);
+		shardRouter.shard(0).update("UPDATE shard_buckets SET shard = ? WHERE bucket = ?", source, bucket);
+		shardRouter.refreshBucketOwners();
+		shardRouter.shard(0).update("UPDATE shard_buckets SET shard = ? WHERE bucket = ?", target, bucket);
+
+		player.setName("Followed");
+		shardedPlayerRepository.save(player);
+
+		assertThat(shardRouter.shardForBucket(bucket)).isEqualTo(target);
+		assertThat(shardRouter.shard(target).queryForObject(
+				"SELECT name FROM shard_players WHERE id = ?", String.class, player.getId())).isEqualTo("Followed");
+		assertThat(shardRouter.shard(source).queryForObject(
+				"SELECT COUNT(*) FROM shard_players WHERE bucket = ?", Integer.class, bucket)).isZero();
+
+		shardRouter.moveBucket(bucket, source);
+	}
+
+	@Test
+	void recentGamesStayInOrderAfterABucketMoves() {
+		Player player = playerService.savePlayer(new Player("Recent Mover"));
+		int bucket = ShardRouter.bucketOf(player.getId());
+		int source = shardRouter.shardForBucket(bucket);
+		int target = (source + 1) % shardRouter.getShardCount();
+//		So the games started before the move have the higher ids
+		shardRouter.shard(source).execute("ALTER SEQUENCE shard_games_seq RESTART WITH 1000000");
+		long first = gameService.startNewGame(player.getId()).getGameId();
+		long second = gameService.startNewGame(player.getId()).getGameId();
+
+		shardRouter.moveBucket(bucket, target);
+		long third = gameService.startNewGame(player.getId()).getGameId();
+
+		assertThat(third).isLessThan(first);
+		assertThat(playerService.getPlayerSummary(player.getId(), 10).get().getRecentGames())
+				.extracting(GameSummary::getId)
+				.containsExactly(third, second, first);
+		assertThat(playerService.getPlayerSummary(player.getId(), 2).get().getRecentGames())
+				.extracting(GameSummary::getId)
+				.containsExactly(third, second);
+
+		shardRouter.moveBucket(bucket, source);
+	}
+
+	private long startGame(Player player) {
+		gameService.startNewGame(player.getId());
+		return gameService.getAllGamesByPlayerId(player.getId()).stream()
+				.mapToLong(Game::getId)
+				.max()
+				.getAsLong();
+	}
+
+}
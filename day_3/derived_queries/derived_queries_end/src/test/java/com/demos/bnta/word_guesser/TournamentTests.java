@@ -0,0 +1,152 @@
+package com.demos.bnta.word_guesser;
+
+import com.demos.bnta.word_guesser.models.Game;
+import com.demos.bnta.word_guesser.models.Player;
+import com.demos.bnta.word_guesser.models.Tournament;
+import com.demos.bnta.word_guesser.models.TournamentStanding;
+import com.demos.bnta.word_guesser.services.GameService;
+import com.demos.bnta.word_guesser.services.PlayerService;
+import com.demos.bnta.word_guesser.services.TournamentService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:tournaments;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"app.tournaments.flush-interval=3600000"
+})
+class TournamentTests {
+
+	@Autowired
+	TournamentService tournamentService;
+
+	@Autowired
+	PlayerService playerService;
+
+	@Autowired
+	GameService gameService;
+
+	@Test
+	void fewestGuessesToFinishRanksFirst() {
+		Tournament tournament = new Tournament(1, "cat", 10);
+		tournament.join(1);
+		tournament.join(2);
+		tournament.join(3);
+		for (String letter : new String[]{"c", "a", "t"}) {
+			tournament.guess(1, letter);
+		}
+		for (String letter : new String[]{"z", "c", "a", "t"}) {
+			tournament.guess(2, letter);
+		}
+		tournament.guess(3, "a");
+
+		assertThat(tournament.guess(1, "c").getMessage()).isEqualTo("Already finished this tournament");
+		assertThat(tournament.getStandings(10)).extracting(TournamentStanding::getPlayerId).containsExactly(1L, 2L, 3L);
+		assertThat(tournament.getStandings(10).get(2).getLettersFound()).isEqualTo(1);
+	}
+
+	@Test
+	void entrantsKeepTheirOwnLetters() {
+		Tournament tournament = new Tournament(1, "hello", 10);
+		tournament.join(1);
+		tournament.join(2);
+		assertThat(tournament.guess(1, "l").getWordState()).isEqualTo("**ll*");
+		assertThat(tournament.guess(2, "h").getWordState()).isEqualTo("h****");
+		assertThat(tournament.guess(1, "l").getMessage()).isEqualTo("Already guessed l");
+	}
+
+	@Test
+	void progressIsSavedAsGamesInBatches() {
+		Player player = playerService.savePlayer(new Player("Entrant"));
+		Tournament tournament = tournamentService.createTournament(100);
+		tournamentService.joinTournament(tournament, player.getId());
+		tournament.guess(player.getId(), "e");
+		tournamentService.flush(tournament);
+
+		List<Game> games = gameService.getAllGamesByPlayerId(player.getId());
+		assertThat(games).hasSize(1);
+		assertThat(games.get(0).getWord()).isEqualTo(tournament.getWord());
+		assertThat(games.get(0).getGuesses()).isEqualTo(1);
+
+		tournament.guess(player.getId(), "a");
+		tournamentService.endTournament(tournament, 10);
+		assertThat(gameService.getAllGamesByPlayerId(player.getId()))
+				.singleElement()
+				.extracting(Game::getGuesses)
+				.isEqualTo(2);
+		assertThat(tournamentService.getTournament(tournament.getId())).isEmpty();
+	}
+
+	@Test
+	void endedTournamentsTakeNoGuessesAndKeepUnsavedResults() {
+		Player player = playerService.savePlayer(new Player("Last Entrant"));
+		Tournament tournament = tournamentService.createTournament(100);
+		tournamentService.joinTournament(tournament, player.getId());
+//		No such player, so saving the games fails
+		tournament.join(-1);
+		tournament.guess(player.getId(), "e");
+
+		assertThatThrownBy(() -> tournamentService.endTournament(tournament, 10)).isInstanceOf(RuntimeException.class);
+
+		assertThat(tournamentService.getTournament(tournament.getId())).containsSame(tournament);
+		assertThat(tournament.isClosed()).isTrue();
+		assertThat(tournament.guess(player.getId(), "a").getMessage()).isEqualTo("This tournament has ended");
+		assertThat(tournament.getStandings(10)).extracting(TournamentStanding::getGuesses).containsOnly(1, 0);
+		assertThatThrownBy(() -> tournament.join(player.getId() + 1)).isInstanceOf(IllegalStateException.class);
+		assertThat(tournament.takeChangedEntrants()).hasSize(2);
+	}
+
+//	Run with: ./mvnw test -Dtest=TournamentTests -Dbenchmark=true
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	void guessThroughput() throws Exception {
+		int entrants = 20_000;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int guessesPerThread = 200_000;
+		Tournament tournament = new Tournament(1, "permanent", entrants);
+		for (long player = 1; player <= entrants; player++) {
+			tournament.join(player);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		long start = System.nanoTime();
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				futures.add(executor.submit(() -> {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					for (int i = 0; i < guessesPerThread; i++) {
+						String letter = String.valueOf((char) ('a' + random.nextInt(26)));
+						tournament.guess(random.nextLong(1, entrants + 1), letter);
+						if (i % 1000 == 0) {
+							tournament.getStandings(10);
+						}
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		double perSecond = (double) threads * guessesPerThread / ((System.nanoTime() - start) / 1_000_000_000.0);
+
+		System.out.printf("%d threads, %d entrants: %.0f guesses/s%n", threads, entrants, perSecond);
+		assertThat(perSecond).isGreaterThan(10_000);
+	}
+
+}
@@ -0,0 +1,45 @@
+package com.demos.bnta.word_guesser;
+
+import com.demos.bnta.word_guesser.repositories.WordList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WordListTests {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void builtInWordsAreUsedWithoutAFile() {
+		WordList wordList = new WordList("");
+		assertThat(wordList.isIndexed()).isTrue();
+		assertThat(wordList.getRandomWord()).isNotBlank();
+	}
+
+	@Test
+	void servesEveryWordInTheFileBeforeAndAfterIndexing() throws Exception {
+		Path file = directory.resolve("words.txt");
+		Files.writeString(file, "apple\r\nbanana\n\ncherry\ndate");
+		WordList wordList = new WordList(file.toString());
+
+		Set<String> seen = new HashSet<>();
+		for (int i = 0; i < 1000; i++) {
+			seen.add(wordList.getRandomWord());
+		}
+		while (!wordList.isIndexed()) {
+			Thread.sleep(10);
+		}
+		for (int i = 0; i < 1000; i++) {
+			seen.add(wordList.getRandomWord());
+		}
+		assertThat(seen).containsExactlyInAnyOrder("apple", "banana", "cherry", "date");
+	}
+
+}
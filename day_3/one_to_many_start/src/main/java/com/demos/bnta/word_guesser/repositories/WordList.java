@@ -1,33 +1,140 @@
 package com.demos.bnta.word_guesser.repositories;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
+// Serves the built-in words, or a dictionary file with one word per line
+// when app.words.file is set.
+//
+// The file is memory-mapped rather than read, so startup costs the same
+// whatever its size and the words never get copied onto the heap. An index
+// of where each line starts is built in the background. Until it's ready,
+// words are picked by jumping to a random byte and reading the line it
+// falls in, which favours longer words slightly.
 @Repository
 public class WordList {
 
     private List<String> words;
 
-    public WordList(){
-        this.words = Arrays.asList(
-                "hello",
-                "goodbye",
-                "testing",
-                "mystery",
-                "games",
-                "spring",
-                "controller",
-                "repository"
-        );
+    private MappedByteBuffer dictionary;
+    private int dictionarySize;
+//    Start of every non-empty line, published once the whole file is indexed
+    private volatile int[] lineStarts;
+
+    public WordList(@Value("${app.words.file:}") String wordFile){
+        if (wordFile.isEmpty()) {
+            this.words = Arrays.asList(
+                    "hello",
+                    "goodbye",
+                    "testing",
+                    "mystery",
+                    "games",
+                    "spring",
+                    "controller",
+                    "repository"
+            );
+        } else {
+            mapDictionary(Paths.get(wordFile));
+            Thread indexer = new Thread(this::indexLines, "word-list-indexer");
+            indexer.setDaemon(true);
+            indexer.start();
+        }
     }
 
     public String getRandomWord(){
-        Random random = new Random();
-        int randomIndex = random.nextInt(this.words.size());
-        return this.words.get(randomIndex);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (this.dictionary == null) {
+            return this.words.get(random.nextInt(this.words.size()));
+        }
+        while (true) {
+            int[] lineStarts = this.lineStarts;
+            if (lineStarts != null) {
+                if (lineStarts.length == 0) {
+                    throw new IllegalStateException("Word file has no words in it");
+                }
+                return readLine(lineStarts[random.nextInt(lineStarts.length)]);
+            }
+//            Not indexed yet, so pick a random byte; blank lines are skipped
+            String word = readLine(lineStartBefore(random.nextInt(this.dictionarySize)));
+            if (!word.isEmpty()) {
+                return word;
+            }
+        }
+    }
+
+    public boolean isIndexed(){
+        return this.dictionary == null || this.lineStarts != null;
+    }
+
+    private void mapDictionary(Path path){
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0 || size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Word file " + path + " must be between 1 byte and 2GB, but is " + size + " bytes");
+            }
+            this.dictionarySize = (int) size;
+//            The mapping stays valid after the channel is closed
+            this.dictionary = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map word file " + path, e);
+        }
+    }
+
+    private void indexLines(){
+        int[] starts = new int[1024];
+        int count = 0;
+        int lineStart = 0;
+        for (int i = 0; i <= this.dictionarySize; i++) {
+            if (i == this.dictionarySize || this.dictionary.get(i) == '\n') {
+                if (lineLength(lineStart, i) > 0) {
+                    if (count == starts.length) {
+                        starts = Arrays.copyOf(starts, count * 2);
+                    }
+                    starts[count++] = lineStart;
+                }
+                lineStart = i + 1;
+            }
+        }
+        this.lineStarts = Arrays.copyOf(starts, count);
+    }
+
+    private int lineStartBefore(int position){
+        while (position > 0 && this.dictionary.get(position - 1) != '\n') {
+            position--;
+        }
+        return position;
+    }
+
+    private String readLine(int start){
+        int end = start;
+        while (end < this.dictionarySize && this.dictionary.get(end) != '\n') {
+            end++;
+        }
+        byte[] bytes = new byte[lineLength(start, end)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = this.dictionary.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+//    Length of the line between start and the newline at end, without a trailing \r
+    private int lineLength(int start, int end){
+        if (end > start && this.dictionary.get(end - 1) == '\r') {
+            end--;
+        }
+        return end - start;
     }
 
 }
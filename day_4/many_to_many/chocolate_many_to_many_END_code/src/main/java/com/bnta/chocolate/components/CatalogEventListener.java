@@ -0,0 +1,16 @@
+package com.bnta.chocolate.components;
+
+import com.bnta.chocolate.models.CatalogEvent;
+
+// Hears about every committed change to the catalog, from OutboxRelay.
+// Beans implementing this are registered on startup; anything else can
+// register with the relay itself.
+//
+// Throwing fails the delivery: the write's events are offered again on a
+// later pass, to every listener, and nothing after them for the same
+// entities is delivered until they go through.
+public interface CatalogEventListener {
+
+    void onCatalogEvent(CatalogEvent event);
+
+}
@@ -0,0 +1,377 @@
+package com.bnta.chocolate.components;
+
+import com.bnta.chocolate.models.SimilarChocolate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// The chocolates_estates links as an immutable graph in compressed sparse
+// row form, one per direction, so traversals never touch the database.
+//
+// Chocolates and estates are numbered by their position in a sorted id
+// array. The estates of chocolate i are estatesOfChocolate[estateOffsets[i]]
+// up to estatesOfChocolate[estateOffsets[i + 1]], and the same the other
+// way round. Cocoa percentages sit alongside the chocolate ids, for ranking
+// similar chocolates. A committed write schedules a rebuild on a background thread;
+// writes that land while one is running are folded into a single follow-up
+// rebuild. Readers keep whichever snapshot they started with.
+@Component
+public class CatalogGraph {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogGraph.class);
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catalog-graph-rebuilder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        long[][] chocolateIds = new long[1][];
+        int[][] cocoaPercentages = new int[1][];
+        readChocolates(chocolateIds, cocoaPercentages);
+        Snapshot rebuilt = Snapshot.build(
+                chocolateIds[0],
+                cocoaPercentages[0],
+                ids("SELECT id FROM estates"),
+                this::readLinks
+        );
+        snapshot = rebuilt;
+        log.debug("Rebuilt catalog graph of {} links in {} ms", rebuilt.getLinkCount(), System.currentTimeMillis() - start);
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public void rebuildAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            scheduleRebuild();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                scheduleRebuild();
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    private void scheduleRebuild() {
+        if (!rebuildPending.compareAndSet(false, true)) {
+            return;
+        }
+        rebuilder.execute(() -> {
+//            Cleared first, so a write committing mid-build queues another
+            rebuildPending.set(false);
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.warn("Catalog graph rebuild failed; keeping the previous snapshot", e);
+            }
+        });
+    }
+
+    private long[] ids(String sql) {
+        long[][] ids = {new long[1024]};
+        int[] count = {0};
+        jdbcTemplate.query(sql, (RowCallbackHandler) row -> {
+            if (count[0] == ids[0].length) {
+                ids[0] = Arrays.copyOf(ids[0], count[0] * 2);
+            }
+            ids[0][count[0]++] = row.getLong(1);
+        });
+        long[] sorted = Arrays.copyOf(ids[0], count[0]);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+//    In id order, so the cocoa percentages line up with the sorted ids
+    private void readChocolates(long[][] ids, int[][] cocoaPercentages) {
+        ids[0] = new long[1024];
+        cocoaPercentages[0] = new int[1024];
+        int[] count = {0};
+        jdbcTemplate.query("SELECT id, cocoa_percentage FROM chocolates WHERE deleted = FALSE ORDER BY id", (RowCallbackHandler) row -> {
+            if (count[0] == ids[0].length) {
+                ids[0] = Arrays.copyOf(ids[0], count[0] * 2);
+                cocoaPercentages[0] = Arrays.copyOf(cocoaPercentages[0], count[0] * 2);
+            }
+            ids[0][count[0]] = row.getLong(1);
+            cocoaPercentages[0][count[0]++] = row.getInt(2);
+        });
+        ids[0] = Arrays.copyOf(ids[0], count[0]);
+        cocoaPercentages[0] = Arrays.copyOf(cocoaPercentages[0], count[0]);
+    }
+
+    private void readLinks(LinkConsumer consumer) {
+        jdbcTemplate.query("SELECT DISTINCT chocolate_id, estate_id FROM chocolates_estates",
+                (RowCallbackHandler) row -> consumer.accept(row.getLong(1), row.getLong(2)));
+    }
+
+    interface LinkConsumer {
+        void accept(long chocolateId, long estateId);
+    }
+
+    interface LinkSource {
+        void readLinks(LinkConsumer consumer);
+    }
+
+    public static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(new long[0], new int[0], new long[0], new int[1], new int[0], new int[1], new int[0]);
+
+//        Rankings are cached up to this length and cut down per request
+        public static final int MAX_SIMILAR = 100;
+
+        private final long[] chocolateIds;
+        private final int[] cocoaPercentages;
+        private final long[] estateIds;
+        private final int[] estateOffsets;
+        private final int[] estatesOfChocolate;
+        private final int[] chocolateOffsets;
+        private final int[] chocolatesOfEstate;
+
+//        The only mutable part: rankings already worked out against this
+//        snapshot, dropped along with it when the catalog changes
+        private final Map<Long, List<SimilarChocolate>> similar = new ConcurrentHashMap<>();
+
+        private Snapshot(long[] chocolateIds, int[] cocoaPercentages, long[] estateIds, int[] estateOffsets, int[] estatesOfChocolate,
+                         int[] chocolateOffsets, int[] chocolatesOfEstate) {
+            this.chocolateIds = chocolateIds;
+            this.cocoaPercentages = cocoaPercentages;
+            this.estateIds = estateIds;
+            this.estateOffsets = estateOffsets;
+            this.estatesOfChocolate = estatesOfChocolate;
+            this.chocolateOffsets = chocolateOffsets;
+            this.chocolatesOfEstate = chocolatesOfEstate;
+        }
+
+//        Links to ids missing from either list are left out: those of
+//        tombstoned chocolates waiting to be purged, and those from a write
+//        that landed between the queries, which the next rebuild picks up
+        static Snapshot build(long[] chocolateIds, int[] cocoaPercentages, long[] estateIds, LinkSource links) {
+            int[][] edges = {new int[1024], new int[1024]};
+            int[] count = {0};
+            links.readLinks((chocolateId, estateId) -> {
+                int chocolate = Arrays.binarySearch(chocolateIds, chocolateId);
+                int estate = Arrays.binarySearch(estateIds, estateId);
+                if (chocolate < 0 || estate < 0) {
+                    return;
+                }
+                if (count[0] == edges[0].length) {
+                    edges[0] = Arrays.copyOf(edges[0], count[0] * 2);
+                    edges[1] = Arrays.copyOf(edges[1], count[0] * 2);
+                }
+                edges[0][count[0]] = chocolate;
+                edges[1][count[0]] = estate;
+                count[0]++;
+            });
+            int[] estateOffsets = new int[chocolateIds.length + 1];
+            int[] estatesOfChocolate = new int[count[0]];
+            compress(edges[0], edges[1], count[0], estateOffsets, estatesOfChocolate);
+            int[] chocolateOffsets = new int[estateIds.length + 1];
+            int[] chocolatesOfEstate = new int[count[0]];
+            compress(edges[1], edges[0], count[0], chocolateOffsets, chocolatesOfEstate);
+            return new Snapshot(chocolateIds, cocoaPercentages, estateIds, estateOffsets, estatesOfChocolate, chocolateOffsets, chocolatesOfEstate);
+        }
+
+//        A counting sort of the edges by source node, each row then sorted
+        private static void compress(int[] from, int[] to, int edges, int[] offsets, int[] targets) {
+            for (int i = 0; i < edges; i++) {
+                offsets[from[i] + 1]++;
+            }
+            for (int node = 0; node + 1 < offsets.length; node++) {
+                offsets[node + 1] += offsets[node];
+            }
+            int[] cursor = Arrays.copyOf(offsets, offsets.length - 1);
+            for (int i = 0; i < edges; i++) {
+                targets[cursor[from[i]]++] = to[i];
+            }
+            for (int node = 0; node + 1 < offsets.length; node++) {
+                Arrays.sort(targets, offsets[node], offsets[node + 1]);
+            }
+        }
+
+        public int getLinkCount() {
+            return estatesOfChocolate.length;
+        }
+
+        public boolean hasChocolate(long chocolateId) {
+            return Arrays.binarySearch(chocolateIds, chocolateId) >= 0;
+        }
+
+        public boolean hasEstate(long estateId) {
+            return Arrays.binarySearch(estateIds, estateId) >= 0;
+        }
+
+//        The four traversals hand back ids in ascending order, and an empty
+//        list for an id the snapshot doesn't have
+        public List<Long> estatesOf(long chocolateId) {
+            return neighbours(chocolateIds, estateIds, estateOffsets, estatesOfChocolate, chocolateId);
+        }
+
+        public List<Long> chocolatesOf(long estateId) {
+            return neighbours(estateIds, chocolateIds, chocolateOffsets, chocolatesOfEstate, estateId);
+        }
+
+//        Chocolates sharing at least one estate with this one
+        public List<Long> relatedChocolates(long chocolateId) {
+            return twoHops(chocolateIds, estateOffsets, estatesOfChocolate, chocolateOffsets, chocolatesOfEstate, chocolateId);
+        }
+
+//        Estates sharing at least one chocolate with this one
+        public List<Long> relatedEstates(long estateId) {
+            return twoHops(estateIds, chocolateOffsets, chocolatesOfEstate, estateOffsets, estatesOfChocolate, estateId);
+        }
+
+//        The chocolates sharing the most estates with this one relative to the
+//        estates either has (Jaccard similarity), closest cocoa percentage
+//        first among equals, then lowest id. Chocolates sharing no estate
+//        aren't similar at all and are left out.
+        public List<SimilarChocolate> similarChocolates(long chocolateId, int limit) {
+            if (!hasChocolate(chocolateId)) {
+                return List.of();
+            }
+            List<SimilarChocolate> ranked = similar.computeIfAbsent(chocolateId, this::rankSimilar);
+            return ranked.subList(0, Math.min(limit, ranked.size()));
+        }
+
+//        Only chocolates two hops away can share an estate, so they are the
+//        only ones scored. Rows are distinct, so each time a chocolate is
+//        reached is one estate shared with it.
+        private List<SimilarChocolate> rankSimilar(long chocolateId) {
+            int node = Arrays.binarySearch(chocolateIds, chocolateId);
+            int ownEstates = estateOffsets[node + 1] - estateOffsets[node];
+            int cocoaPercentage = cocoaPercentages[node];
+            int reached = 0;
+            for (int i = estateOffsets[node]; i < estateOffsets[node + 1]; i++) {
+                int estate = estatesOfChocolate[i];
+                reached += chocolateOffsets[estate + 1] - chocolateOffsets[estate];
+            }
+            int[] nodes = new int[reached];
+            int count = 0;
+            for (int i = estateOffsets[node]; i < estateOffsets[node + 1]; i++) {
+                int estate = estatesOfChocolate[i];
+                for (int j = chocolateOffsets[estate]; j < chocolateOffsets[estate + 1]; j++) {
+                    nodes[count++] = chocolatesOfEstate[j];
+                }
+            }
+            Arrays.sort(nodes);
+
+//            The worst of the best MAX_SIMILAR so far sits at the head
+            PriorityQueue<int[]> best = new PriorityQueue<>(MAX_SIMILAR + 1, (a, b) -> compareSimilar(b, a, cocoaPercentage));
+            for (int i = 0; i < count; ) {
+                int other = nodes[i];
+                int shared = 0;
+                while (i < count && nodes[i] == other) {
+                    shared++;
+                    i++;
+                }
+                if (other == node) {
+                    continue;
+                }
+                int union = ownEstates + estateOffsets[other + 1] - estateOffsets[other] - shared;
+                best.add(new int[]{other, shared, union});
+                if (best.size() > MAX_SIMILAR) {
+                    best.poll();
+                }
+            }
+
+            SimilarChocolate[] ranked = new SimilarChocolate[best.size()];
+            for (int i = ranked.length - 1; i >= 0; i--) {
+                int[] candidate = best.poll();
+                ranked[i] = new SimilarChocolate(chocolateIds[candidate[0]], cocoaPercentages[candidate[0]],
+                        candidate[1], (double) candidate[1] / candidate[2]);
+            }
+            return List.of(ranked);
+        }
+
+//        Negative when a ranks above b. Similarities are compared as
+//        fractions, so equal ones always fall through to the tiebreaks.
+        private int compareSimilar(int[] a, int[] b, int cocoaPercentage) {
+            int bySimilarity = Long.compare((long) b[1] * a[2], (long) a[1] * b[2]);
+            if (bySimilarity != 0) {
+                return bySimilarity;
+            }
+            int byCocoa = Integer.compare(Math.abs(cocoaPercentages[a[0]] - cocoaPercentage),
+                    Math.abs(cocoaPercentages[b[0]] - cocoaPercentage));
+            if (byCocoa != 0) {
+                return byCocoa;
+            }
+            return Integer.compare(a[0], b[0]);
+        }
+
+        private static List<Long> neighbours(long[] fromIds, long[] toIds, int[] offsets, int[] targets, long id) {
+            int node = Arrays.binarySearch(fromIds, id);
+            if (node < 0) {
+                return List.of();
+            }
+            List<Long> found = new ArrayList<>(offsets[node + 1] - offsets[node]);
+            for (int i = offsets[node]; i < offsets[node + 1]; i++) {
+                found.add(toIds[targets[i]]);
+            }
+            return found;
+        }
+
+        private static List<Long> twoHops(long[] ids, int[] outOffsets, int[] outTargets,
+                                          int[] backOffsets, int[] backTargets, long id) {
+            int node = Arrays.binarySearch(ids, id);
+            if (node < 0) {
+                return List.of();
+            }
+            int reached = 0;
+            for (int i = outOffsets[node]; i < outOffsets[node + 1]; i++) {
+                int middle = outTargets[i];
+                reached += backOffsets[middle + 1] - backOffsets[middle];
+            }
+            int[] nodes = new int[reached];
+            int count = 0;
+            for (int i = outOffsets[node]; i < outOffsets[node + 1]; i++) {
+                int middle = outTargets[i];
+                for (int j = backOffsets[middle]; j < backOffsets[middle + 1]; j++) {
+                    nodes[count++] = backTargets[j];
+                }
+            }
+            Arrays.sort(nodes);
+            List<Long> found = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                if (nodes[i] != node && (i == 0 || nodes[i] != nodes[i - 1])) {
+                    found.add(ids[nodes[i]]);
+                }
+            }
+            return found;
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.bnta.chocolate.components;
+
+import com.bnta.chocolate.models.CatalogEvent;
+import com.bnta.chocolate.models.Chocolate;
+import com.bnta.chocolate.models.Estate;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+// Writes the events of a catalog write to catalog_outbox in the write's own
+// transaction, so they are kept exactly when the write is. OutboxRelay
+// hands them on.
+//
+// Events are gathered as the write goes and go out as one row just before
+// it commits. By then the persistence context has been flushed, so every
+// row the write changed is locked and the row's id is taken afterwards: a
+// later write to the same chocolate or estate waits for this one to commit
+// before it can take an id, and ids put one entity's events in order.
+// Every event must therefore be for a row the write itself changes.
+//
+// Written with plain JDBC, so it adds nothing to Hibernate's statistics.
+@Component
+public class CatalogOutbox {
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    private String nextIdSql;
+
+    @PostConstruct
+    void init() {
+        nextIdSql = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect().getSequenceNextValString("catalog_outbox_id_seq");
+    }
+
+//    The chocolate's id and version are read when the write commits, once
+//    Hibernate has assigned them
+    public void record(CatalogEvent.Type type, Chocolate chocolate) {
+        pending().add(() -> new CatalogEvent(type, "Chocolate", chocolate.getId(), chocolate.getVersion()));
+    }
+
+    public void record(CatalogEvent.Type type, Estate estate) {
+        pending().add(() -> new CatalogEvent(type, "Estate", estate.getId(), estate.getVersion()));
+    }
+
+//    For set-based writes, where the entity was never loaded
+    public void record(CatalogEvent.Type type, Class<?> entity, Long id, Long version) {
+        CatalogEvent event = new CatalogEvent(type, entity.getSimpleName(), id, version);
+        pending().add(() -> event);
+    }
+
+//    The events recorded so far in this transaction; the first call
+//    registers the write of the row
+    @SuppressWarnings("unchecked")
+    private List<Supplier<CatalogEvent>> pending() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Catalog events can only be recorded inside a transaction");
+        }
+        List<Supplier<CatalogEvent>> pending = (List<Supplier<CatalogEvent>>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<Supplier<CatalogEvent>> events = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, events);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    write(events);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CatalogOutbox.this);
+                }
+            });
+            pending = events;
+        }
+        return pending;
+    }
+
+    private void write(List<Supplier<CatalogEvent>> pending) {
+        entityManager.flush();
+        long now = System.currentTimeMillis();
+        List<CatalogEvent> events = new ArrayList<>(pending.size());
+        for (Supplier<CatalogEvent> event : pending) {
+            CatalogEvent built = event.get();
+            built.setOccurredAt(now);
+            events.add(built);
+        }
+        Long id = jdbcTemplate.queryForObject(nextIdSql, Long.class);
+        jdbcTemplate.update("INSERT INTO catalog_outbox (id, created_at, events) VALUES (?, ?, ?)", id, now, encode(events));
+    }
+
+    private String encode(List<CatalogEvent> events) {
+        try {
+            return objectMapper.writeValueAsString(events);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode catalog events", e);
+        }
+    }
+
+}
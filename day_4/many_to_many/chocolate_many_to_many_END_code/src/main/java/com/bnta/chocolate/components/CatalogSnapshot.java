@@ -0,0 +1,236 @@
+package com.bnta.chocolate.components;
+
+import com.bnta.chocolate.models.Chocolate;
+import com.bnta.chocolate.models.Estate;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// The JSON of GET /chocolates and GET /estates, encoded once per catalog
+// change instead of once per request.
+//
+// A committed write schedules a rebuild on a background thread, as the
+// catalog graph does, and the new snapshot is swapped in whole. Until then
+// the old one is served, so every write also notes when the snapshot first
+// fell behind. Staleness is the time since the oldest write the snapshot
+// doesn't include; once it passes app.catalog-snapshot.max-staleness,
+// getFresh() gives nothing and the list endpoints go to the database.
+//
+// The catalog is read with three plain queries rather than through the
+// entities, and encoded from copies of the same shape as the entities.
+// Turned off with app.catalog-snapshot.enabled.
+@Component
+public class CatalogSnapshot {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSnapshot.class);
+
+//    Sent with every response served from the snapshot: how many
+//    milliseconds behind the database it may be
+    public static final String STALENESS_HEADER = "X-Catalog-Staleness";
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Value("${app.catalog-snapshot.enabled:true}")
+    boolean enabled;
+
+    @Value("${app.catalog-snapshot.max-staleness:2s}")
+    Duration maxStaleness;
+
+    private volatile Snapshot snapshot;
+
+//    Guarded by this; 0 when nothing is pending
+    private long behindSince;
+    private long behindSinceDuringBuild;
+    private boolean building;
+
+    private final Object buildLock = new Object();
+
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catalog-snapshot-rebuilder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+//        One build at a time, or the first to finish would stop the other's
+//        writes being tracked
+        synchronized (buildLock) {
+            synchronized (this) {
+                building = true;
+                behindSinceDuringBuild = 0;
+            }
+            try {
+                long start = System.currentTimeMillis();
+                Snapshot rebuilt = read();
+                synchronized (this) {
+                    snapshot = rebuilt;
+//                    Writes that committed after the build started may be missing
+                    behindSince = behindSinceDuringBuild;
+                }
+                log.debug("Rebuilt catalog snapshot of {} + {} bytes in {} ms",
+                        rebuilt.chocolatesJson.length, rebuilt.estatesJson.length, System.currentTimeMillis() - start);
+            } finally {
+                synchronized (this) {
+                    building = false;
+                }
+            }
+        }
+    }
+
+//    The snapshot, if there is one within the staleness bound
+    public Snapshot getFresh() {
+        Snapshot current = snapshot;
+        if (current == null || getStalenessMillis() > maxStaleness.toMillis()) {
+            return null;
+        }
+        return current;
+    }
+
+    public synchronized long getStalenessMillis() {
+        if (snapshot == null) {
+            return Long.MAX_VALUE;
+        }
+//        At least 1 while behind, even for a write in this very millisecond, so
+//        0 always means caught up
+        return behindSince == 0 ? 0 : Math.max(1, System.currentTimeMillis() - behindSince);
+    }
+
+    public void rebuildAfterCommit() {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            markBehind();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                markBehind();
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    private void markBehind() {
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (behindSince == 0) {
+                behindSince = now;
+            }
+            if (building && behindSinceDuringBuild == 0) {
+                behindSinceDuringBuild = now;
+            }
+        }
+        if (!rebuildPending.compareAndSet(false, true)) {
+            return;
+        }
+        rebuilder.execute(() -> {
+//            Cleared first, so a write committing mid-build queues another
+            rebuildPending.set(false);
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.warn("Catalog snapshot rebuild failed; keeping the previous snapshot", e);
+            }
+        });
+    }
+
+//    Outside a transaction, so on the primary: a lagging replica would hide
+//    how far behind the snapshot is. Links to rows missing from either list
+//    are left out: those of tombstoned chocolates waiting to be purged, and
+//    those from a write that landed between the queries, which the rebuild
+//    that write has queued picks up.
+    private Snapshot read() {
+        Map<Long, Chocolate> chocolates = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT id, name, cocoa_percentage FROM chocolates WHERE deleted = FALSE ORDER BY id", (RowCallbackHandler) row -> {
+            Chocolate chocolate = new Chocolate(row.getString("name"), row.getInt("cocoa_percentage"));
+            chocolate.setId(row.getLong("id"));
+            chocolates.put(chocolate.getId(), chocolate);
+        });
+        Map<Long, Estate> estates = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT id, name, country FROM estates ORDER BY id", (RowCallbackHandler) row -> {
+            Estate estate = new Estate(row.getString("name"), row.getString("country"));
+            estate.setId(row.getLong("id"));
+            estates.put(estate.getId(), estate);
+        });
+//        Each side is encoded without the other's back-references, so the
+//        same objects can sit in both lists
+        jdbcTemplate.query("SELECT chocolate_id, estate_id FROM chocolates_estates ORDER BY chocolate_id, estate_id",
+                (RowCallbackHandler) row -> {
+                    Chocolate chocolate = chocolates.get(row.getLong("chocolate_id"));
+                    Estate estate = estates.get(row.getLong("estate_id"));
+                    if (chocolate != null && estate != null) {
+                        chocolate.addEstate(estate);
+                        estate.addChocolate(chocolate);
+                    }
+                });
+        return new Snapshot(encode(chocolates.values()), encode(estates.values()), System.currentTimeMillis());
+    }
+
+    private byte[] encode(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode the catalog", e);
+        }
+    }
+
+//    Never changed once built; the arrays are only ever written out whole
+    public static final class Snapshot {
+
+        private final byte[] chocolatesJson;
+        private final byte[] estatesJson;
+        private final long builtAt;
+
+        private Snapshot(byte[] chocolatesJson, byte[] estatesJson, long builtAt) {
+            this.chocolatesJson = chocolatesJson;
+            this.estatesJson = estatesJson;
+            this.builtAt = builtAt;
+        }
+
+        public byte[] getChocolatesJson() {
+            return chocolatesJson;
+        }
+
+        public byte[] getEstatesJson() {
+            return estatesJson;
+        }
+
+        public long getBuiltAt() {
+            return builtAt;
+        }
+    }
+
+}
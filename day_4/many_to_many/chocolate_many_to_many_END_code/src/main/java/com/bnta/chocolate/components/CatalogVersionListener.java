@@ -0,0 +1,50 @@
+package com.bnta.chocolate.components;
+
+import com.bnta.chocolate.models.Chocolate;
+import com.bnta.chocolate.models.Estate;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+// Created by Hibernate through Spring, so it can be autowired
+public class CatalogVersionListener {
+
+    @Autowired
+    EntityVersions entityVersions;
+
+    @PostLoad
+    public void loaded(Object entity) {
+        if (entity instanceof Chocolate) {
+            Chocolate chocolate = (Chocolate) entity;
+            entityVersions.record(Chocolate.class, chocolate.getId(), chocolate.getVersion());
+        } else if (entity instanceof Estate) {
+            Estate estate = (Estate) entity;
+            entityVersions.record(Estate.class, estate.getId(), estate.getVersion());
+        }
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void saved(Object entity) {
+        if (entity instanceof Chocolate) {
+            Chocolate chocolate = (Chocolate) entity;
+            entityVersions.recordAfterCommit(Chocolate.class, chocolate.getId(), chocolate.getVersion());
+        } else if (entity instanceof Estate) {
+            Estate estate = (Estate) entity;
+            entityVersions.recordAfterCommit(Estate.class, estate.getId(), estate.getVersion());
+        }
+    }
+
+    @PostRemove
+    public void removed(Object entity) {
+        if (entity instanceof Chocolate) {
+            entityVersions.forgetAfterCommit(Chocolate.class, ((Chocolate) entity).getId());
+        } else if (entity instanceof Estate) {
+            entityVersions.forgetAfterCommit(Estate.class, ((Estate) entity).getId());
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.bnta.chocolate.components;
+
+import com.bnta.chocolate.models.ChocolateChange;
+import com.bnta.chocolate.repositories.ChocolateChangeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// Hands out change ids for catalog writes and works out how far through
+// them a client can safely say it has read.
+//
+// Change ids come from a sequence, so they are handed out in order but can
+// commit out of order: a reader could see change 11 while change 10 is still
+// in flight, and would never look back for 10. Ids are therefore allocated
+// and registered as in flight under one lock, and a version is never handed
+// out past the oldest change still in flight. This holds for one instance of
+// the application; several instances would need to share a single writer.
+@Component
+public class ChocolateChangeLog {
+
+    @Autowired
+    ChocolateChangeRepository chocolateChangeRepository;
+
+    private final Object allocationLock = new Object();
+    private final ConcurrentSkipListSet<Long> inFlight = new ConcurrentSkipListSet<>();
+
+//    Both must be called from inside the transaction making the change
+    public long nextChangeId() {
+        return record(new ChocolateChange());
+    }
+
+    public long recordDeletion(Long chocolateId) {
+        return record(new ChocolateChange(chocolateId));
+    }
+
+//    The furthest a client can claim to have read, given the latest change
+//    committed when it looked. Read the latest change before calling this.
+    public long safeVersion(long latestCommitted) {
+        Long oldestInFlight;
+        synchronized (allocationLock) {
+            oldestInFlight = inFlight.isEmpty() ? null : inFlight.first();
+        }
+        if (oldestInFlight != null && oldestInFlight <= latestCommitted) {
+            return oldestInFlight - 1;
+        }
+        return latestCommitted;
+    }
+
+    private long record(ChocolateChange change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Chocolate changes can only be recorded inside a transaction");
+        }
+        long changeId;
+        synchronized (allocationLock) {
+            chocolateChangeRepository.save(change);
+            changeId = change.getId();
+            inFlight.add(changeId);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                inFlight.remove(changeId);
+            }
+        });
+        return changeId;
+    }
+
+}
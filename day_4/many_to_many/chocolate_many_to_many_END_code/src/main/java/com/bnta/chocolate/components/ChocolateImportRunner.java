@@ -0,0 +1,51 @@
+package com.bnta.chocolate.components;
+
+import com.bnta.chocolate.models.ImportFormat;
+import com.bnta.chocolate.models.ImportReport;
+import com.bnta.chocolate.services.ChocolateImportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Imports a catalog feed when started with --import-file, e.g.
+//   ./mvnw spring-boot:run -Dspring-boot.run.arguments="--import-file=feed.csv"
+// The import id defaults to the file name and can be set with --import-id.
+// Running the same command again after a failure resumes the import.
+@Component
+public class ChocolateImportRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ChocolateImportRunner.class);
+
+    @Autowired
+    ChocolateImportService chocolateImportService;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!args.containsOption("import-file")) {
+            return;
+        }
+        Path file = Path.of(args.getOptionValues("import-file").get(0));
+        String importId = args.containsOption("import-id")
+                ? args.getOptionValues("import-id").get(0)
+                : file.getFileName().toString();
+        ImportReport report;
+        try (InputStream in = Files.newInputStream(file)) {
+            report = chocolateImportService.importChocolates(importId, in, ImportFormat.fromFileName(file.toString()));
+        }
+        if (report.isCompleted()) {
+            log.info("Imported {}: {} chocolates created, {} updated, {} estates created",
+                    file, report.getChocolatesCreated(), report.getChocolatesUpdated(), report.getEstatesCreated());
+        } else {
+            log.error("Import of {} failed after {} records; run again to resume: {}",
+                    file, report.getResumedFrom() + report.getRecordsImported(), report.getError());
+        }
+    }
+
+}
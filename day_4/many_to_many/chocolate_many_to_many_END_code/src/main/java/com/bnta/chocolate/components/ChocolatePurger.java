@@ -0,0 +1,61 @@
+package com.bnta.chocolate.components;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+// Removes tombstoned chocolates and their chocolates_estates rows in the
+// background, app.purge.batch-size at a time, so neither a delete request
+// nor the rest of the catalog ever waits on a large purge. Everything that
+// reads chocolates already leaves tombstones out, so when a purge happens
+// changes nothing anyone can see.
+//
+// No transaction is needed: a tombstoned chocolate's links can go before
+// its row does, and a batch cut short is finished by the next purge.
+@Component
+public class ChocolatePurger {
+
+    private static final Logger log = LoggerFactory.getLogger(ChocolatePurger.class);
+
+    @Autowired
+    NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Value("${app.purge.batch-size:500}")
+    int batchSize;
+
+//    Returns how many chocolates were purged
+    @Scheduled(fixedDelayString = "${app.purge.interval:5000}")
+    public synchronized int purge() {
+        int purged = 0;
+        int batch;
+        do {
+            batch = purgeBatch();
+            purged += batch;
+        } while (batch == batchSize);
+        if (purged > 0) {
+            log.debug("Purged {} deleted chocolates", purged);
+        }
+        return purged;
+    }
+
+//    Links first, for the foreign key
+    private int purgeBatch() {
+        List<Long> ids = namedParameterJdbcTemplate.queryForList(
+                "SELECT id FROM chocolates WHERE deleted = TRUE ORDER BY id LIMIT :limit",
+                Map.of("limit", batchSize), Long.class);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        namedParameterJdbcTemplate.update("DELETE FROM chocolates_estates WHERE chocolate_id IN (:ids)", Map.of("ids", ids));
+        namedParameterJdbcTemplate.update("DELETE FROM chocolates WHERE id IN (:ids) AND deleted = TRUE", Map.of("ids", ids));
+        return ids.size();
+    }
+
+}
@@ -0,0 +1,272 @@
+package com.bnta.chocolate.components;
+
+import com.bnta.chocolate.models.Chocolate;
+import com.bnta.chocolate.models.Estate;
+import com.bnta.chocolate.repositories.ChocolateRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// The chocolate catalog held in memory, bucketed by cocoa percentage, so
+// range filters never go to the database.
+//
+// There is one bucket per percentage from 0 to 100; anything outside that
+// range shares the end bucket and is filtered on its real value. Each bucket
+// is an array sorted by id. Writers copy the buckets they change and publish
+// a new set, so a reader always sees one consistent catalog without locking.
+//
+// The chocolates held here are copies with plain copies of their estates, so
+// nothing lazy is left to load when they are serialised.
+@Component
+public class CocoaIndex {
+
+    private static final int BUCKETS = 101;
+    private static final Chocolate[] EMPTY = new Chocolate[0];
+
+    @Autowired
+    ChocolateRepository chocolateRepository;
+
+    private volatile Chocolate[][] buckets = emptyBuckets();
+    private volatile boolean loaded;
+
+//    Guarded by this; chocolate id -> bucket
+    private final Map<Long, Integer> bucketsById = new HashMap<>();
+
+//    Writes that commit while the catalog is loading, replayed over it so a
+//    stale row read by the load can't undo them. A null chocolate is a delete.
+    private Map<Long, Chocolate> writesDuringLoad;
+
+//    Runs after the ApplicationRunners, so the seeded catalog is included
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void load() {
+        synchronized (this) {
+            writesDuringLoad = new HashMap<>();
+        }
+        List<Chocolate> chocolates = new ArrayList<>();
+        for (Chocolate chocolate : chocolateRepository.findAllWithEstates()) {
+            chocolates.add(copyOf(chocolate, chocolate.getEstates()));
+        }
+        synchronized (this) {
+            Map<Long, Chocolate> catalog = new HashMap<>();
+            for (Chocolate chocolate : chocolates) {
+                catalog.put(chocolate.getId(), chocolate);
+            }
+            catalog.putAll(writesDuringLoad);
+            writesDuringLoad = null;
+
+            List<List<Chocolate>> grouped = new ArrayList<>(BUCKETS);
+            for (int i = 0; i < BUCKETS; i++) {
+                grouped.add(new ArrayList<>());
+            }
+            bucketsById.clear();
+            for (Chocolate chocolate : catalog.values()) {
+                if (chocolate != null) {
+                    int bucket = bucketFor(chocolate.getCocoaPercentage());
+                    grouped.get(bucket).add(chocolate);
+                    bucketsById.put(chocolate.getId(), bucket);
+                }
+            }
+            Chocolate[][] loadedBuckets = new Chocolate[BUCKETS][];
+            for (int i = 0; i < BUCKETS; i++) {
+                Chocolate[] bucket = grouped.get(i).toArray(EMPTY);
+                Arrays.sort(bucket, (a, b) -> Long.compare(a.getId(), b.getId()));
+                loadedBuckets[i] = bucket;
+            }
+            buckets = loadedBuckets;
+            loaded = true;
+        }
+    }
+
+//    Until the first load finishes the index can't answer, and callers
+//    should go to the database instead
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public List<Chocolate> findGreaterThan(int cocoaPercentage) {
+        return findBetween((long) cocoaPercentage + 1, Integer.MAX_VALUE);
+    }
+
+    public List<Chocolate> findLessThan(int cocoaPercentage) {
+        return findBetween(Integer.MIN_VALUE, (long) cocoaPercentage - 1);
+    }
+
+//    Both ends inclusive; ordered by cocoa percentage, then id
+    public List<Chocolate> findBetween(long min, long max) {
+        Chocolate[][] current = buckets;
+        List<Chocolate> found = new ArrayList<>();
+        if (min > max) {
+            return found;
+        }
+        int first = bucketFor(min);
+        int last = bucketFor(max);
+        for (int i = first; i <= last; i++) {
+            Chocolate[] bucket = current[i];
+//            Buckets strictly inside the range hold exactly one in-range value
+            if (i > first && i < last) {
+                found.addAll(Arrays.asList(bucket));
+                continue;
+            }
+            for (Chocolate chocolate : bucket) {
+                int cocoaPercentage = chocolate.getCocoaPercentage();
+                if (cocoaPercentage >= min && cocoaPercentage <= max) {
+                    found.add(chocolate);
+                }
+            }
+        }
+//        Only the end buckets can hold more than one percentage
+        if (first == 0 || last == BUCKETS - 1) {
+            found.sort((a, b) -> a.getCocoaPercentage() != b.getCocoaPercentage()
+                    ? Integer.compare(a.getCocoaPercentage(), b.getCocoaPercentage())
+                    : Long.compare(a.getId(), b.getId()));
+        }
+        return found;
+    }
+
+//    The estates are passed separately because a chocolate posted as JSON
+//    only carries the ids of its estates
+    public void putAfterCommit(Chocolate chocolate, Collection<Estate> estates) {
+        Chocolate copy = copyOf(chocolate, estates);
+        afterCommit(() -> apply(Collections.singletonMap(copy.getId(), copy)));
+    }
+
+//    For bulk writes: each chocolate already carries its estates
+    public void putAllAfterCommit(Collection<Chocolate> chocolates) {
+        Map<Long, Chocolate> copies = new HashMap<>();
+        for (Chocolate chocolate : chocolates) {
+            copies.put(chocolate.getId(), copyOf(chocolate, chocolate.getEstates()));
+        }
+        afterCommit(() -> apply(copies));
+    }
+
+    public void removeAfterCommit(Long chocolateId) {
+        afterCommit(() -> apply(Collections.singletonMap(chocolateId, null)));
+    }
+
+    public void updateEstateAfterCommit(Estate estate) {
+        Estate copy = copyOf(estate);
+        afterCommit(() -> replaceEstate(copy.getId(), copy));
+    }
+
+    public void removeEstateAfterCommit(Long estateId) {
+        afterCommit(() -> replaceEstate(estateId, null));
+    }
+
+//    Rebuilds only the buckets the changes touch, once each however many
+//    chocolates land in them. A null chocolate is a delete.
+    private synchronized void apply(Map<Long, Chocolate> changes) {
+        if (writesDuringLoad != null) {
+            writesDuringLoad.putAll(changes);
+        }
+        Map<Integer, List<Chocolate>> added = new HashMap<>();
+        Set<Integer> touched = new HashSet<>();
+        for (Map.Entry<Long, Chocolate> change : changes.entrySet()) {
+            Integer previous = bucketsById.remove(change.getKey());
+            if (previous != null) {
+                touched.add(previous);
+            }
+            Chocolate chocolate = change.getValue();
+            if (chocolate != null) {
+                int bucket = bucketFor(chocolate.getCocoaPercentage());
+                added.computeIfAbsent(bucket, key -> new ArrayList<>()).add(chocolate);
+                bucketsById.put(change.getKey(), bucket);
+                touched.add(bucket);
+            }
+        }
+        Chocolate[][] updated = buckets.clone();
+        for (int bucket : touched) {
+            List<Chocolate> rebuilt = new ArrayList<>();
+            for (Chocolate chocolate : updated[bucket]) {
+                if (!changes.containsKey(chocolate.getId())) {
+                    rebuilt.add(chocolate);
+                }
+            }
+            rebuilt.addAll(added.getOrDefault(bucket, List.of()));
+            Chocolate[] array = rebuilt.toArray(EMPTY);
+            Arrays.sort(array, (a, b) -> Long.compare(a.getId(), b.getId()));
+            updated[bucket] = array;
+        }
+        buckets = updated;
+    }
+
+//    Rare enough to scan for: an estate is only renamed or deleted by hand
+    private synchronized void replaceEstate(Long estateId, Estate estate) {
+        Map<Long, Chocolate> changed = new HashMap<>();
+        for (Chocolate[] bucket : buckets) {
+            for (Chocolate chocolate : bucket) {
+                List<Estate> estates = new ArrayList<>();
+                boolean linked = false;
+                for (Estate existing : chocolate.getEstates()) {
+                    if (existing.getId().equals(estateId)) {
+                        linked = true;
+                        if (estate != null) {
+                            estates.add(estate);
+                        }
+                    } else {
+                        estates.add(existing);
+                    }
+                }
+                if (linked) {
+                    changed.put(chocolate.getId(), copyOf(chocolate, estates));
+                }
+            }
+        }
+        apply(changed);
+    }
+
+    private static int bucketFor(long cocoaPercentage) {
+        return (int) Math.max(0, Math.min(BUCKETS - 1, cocoaPercentage));
+    }
+
+    private static Chocolate copyOf(Chocolate chocolate, Collection<Estate> estates) {
+        Chocolate copy = new Chocolate(chocolate.getName(), chocolate.getCocoaPercentage());
+        copy.setId(chocolate.getId());
+        if (estates != null) {
+            for (Estate estate : estates) {
+                copy.addEstate(copyOf(estate));
+            }
+        }
+        return copy;
+    }
+
+    private static Estate copyOf(Estate estate) {
+        Estate copy = new Estate(estate.getName(), estate.getCountry());
+        copy.setId(estate.getId());
+        return copy;
+    }
+
+    private static Chocolate[][] emptyBuckets() {
+        Chocolate[][] empty = new Chocolate[BUCKETS][];
+        Arrays.fill(empty, EMPTY);
+        return empty;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+}
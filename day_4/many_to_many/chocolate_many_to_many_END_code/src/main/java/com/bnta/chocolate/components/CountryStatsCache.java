@@ -0,0 +1,75 @@
+package com.bnta.chocolate.components;
+
+import com.bnta.chocolate.models.CountryStats;
+import com.bnta.chocolate.repositories.EstateRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The last result of the country aggregation, kept until a catalog write
+// commits. Every write moves the generation on; a result is only kept if no
+// write committed while it was being worked out, so a slow query can't
+// cache numbers from before a write. Turned off with app.estate-stats.cache.
+@Component
+public class CountryStatsCache {
+
+    @Autowired
+    EstateRepository estateRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Value("${app.estate-stats.cache:true}")
+    boolean enabled;
+
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    public List<CountryStats> getStats() {
+        long current = generation.get();
+        Snapshot cached = snapshot;
+        if (enabled && cached != null && cached.generation == current) {
+            return cached.stats;
+        }
+//        Read-write so it runs on the primary: a lagging replica's numbers
+//        would otherwise be cached as current
+        List<CountryStats> stats = new TransactionTemplate(transactionManager)
+                .execute(status -> estateRepository.findCountryStats());
+        if (enabled && generation.get() == current) {
+            snapshot = new Snapshot(current, stats);
+        }
+        return stats;
+    }
+
+    public void invalidateAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            generation.incrementAndGet();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                generation.incrementAndGet();
+            }
+        });
+    }
+
+    private static final class Snapshot {
+
+        private final long generation;
+        private final List<CountryStats> stats;
+
+        private Snapshot(long generation, List<CountryStats> stats) {
+            this.generation = generation;
+            this.stats = stats;
+        }
+    }
+
+}
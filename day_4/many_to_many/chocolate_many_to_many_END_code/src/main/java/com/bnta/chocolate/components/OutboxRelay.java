@@ -0,0 +1,205 @@
+package com.bnta.chocolate.components;
+
+import com.bnta.chocolate.models.CatalogEvent;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Drains catalog_outbox to the CatalogEventListeners, app.outbox.batch-size
+// rows at a time, oldest first. Each pass pages through the table by id, so
+// rows held back or failing at the head don't stop the rows behind them
+// being read.
+//
+// A row is deleted only once every listener has taken all of its events,
+// so a crash or a failing listener means events are delivered again rather
+// than lost. When a row fails, the entities it touches are held back for
+// the rest of the pass, so no listener sees a later event for one of them
+// before the earlier one has gone through; rows for other entities carry
+// on. Failed rows are retried on the next pass. A row that can't be read
+// at all is moved to catalog_outbox_dead_letters with the error.
+//
+// Plain JDBC outside any transaction, like the purger, so relaying shows up
+// in neither Hibernate's statistics nor anyone else's transaction.
+@Component
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private static final TypeReference<List<CatalogEvent>> EVENTS = new TypeReference<>() {
+    };
+
+    @Autowired
+    NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired(required = false)
+    List<CatalogEventListener> listenerBeans;
+
+    @Value("${app.outbox.batch-size:100}")
+    int batchSize;
+
+    private final List<CatalogEventListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong eventsDelivered = new AtomicLong();
+    private final AtomicLong failedDeliveries = new AtomicLong();
+
+//    Straight on the DataSource, so moving a row aside stays out of Hibernate
+//    as well
+    private TransactionTemplate deadLetterTransaction;
+
+    @PostConstruct
+    void registerBeans() {
+        if (listenerBeans != null) {
+            listeners.addAll(listenerBeans);
+        }
+        deadLetterTransaction = new TransactionTemplate(
+                new DataSourceTransactionManager(namedParameterJdbcTemplate.getJdbcTemplate().getDataSource()));
+    }
+
+    public void register(CatalogEventListener listener) {
+        listeners.add(listener);
+    }
+
+    public void unregister(CatalogEventListener listener) {
+        listeners.remove(listener);
+    }
+
+//    Returns how many rows were delivered
+    @Scheduled(fixedDelayString = "${app.outbox.relay-interval:500}")
+    public synchronized int relay() {
+        Set<String> heldBack = new HashSet<>();
+        List<Long> ids = new ArrayList<>();
+        List<String> rows = new ArrayList<>();
+        long lastSeen = 0;
+        int relayed = 0;
+        do {
+            ids.clear();
+            rows.clear();
+            namedParameterJdbcTemplate.query("SELECT id, events FROM catalog_outbox WHERE id > :lastSeen ORDER BY id LIMIT :limit",
+                    Map.of("lastSeen", lastSeen, "limit", batchSize), (RowCallbackHandler) row -> {
+                        ids.add(row.getLong("id"));
+                        rows.add(row.getString("events"));
+                    });
+            if (ids.isEmpty()) {
+                break;
+            }
+            relayed += relayBatch(ids, rows, heldBack);
+            lastSeen = ids.get(ids.size() - 1);
+        } while (ids.size() == batchSize);
+        if (relayed > 0) {
+            log.debug("Relayed {} catalog outbox rows", relayed);
+        }
+        return relayed;
+    }
+
+//    Pending rows, the age in milliseconds of the oldest of them (0 when
+//    there are none), the rows moved aside as unreadable, and the running
+//    totals since startup
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        Map<String, Object> oldest = namedParameterJdbcTemplate.queryForMap(
+                "SELECT COUNT(*) AS pending, MIN(created_at) AS oldest FROM catalog_outbox", Map.of());
+        Number pending = (Number) oldest.get("pending");
+        Number createdAt = (Number) oldest.get("oldest");
+        stats.put("pending", pending.longValue());
+        stats.put("lagMillis", createdAt == null ? 0 : Math.max(0, System.currentTimeMillis() - createdAt.longValue()));
+        stats.put("deadLetters", namedParameterJdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM catalog_outbox_dead_letters", Map.of(), Long.class));
+        stats.put("eventsDelivered", eventsDelivered.get());
+        stats.put("failedDeliveries", failedDeliveries.get());
+        stats.put("listeners", (long) listeners.size());
+        return stats;
+    }
+
+//    Returns how many of the rows were delivered
+    private int relayBatch(List<Long> ids, List<String> rows, Set<String> heldBack) {
+        List<Long> delivered = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            List<CatalogEvent> events = decode(ids.get(i), rows.get(i));
+            if (events == null) {
+                continue;
+            }
+            boolean waiting = false;
+            for (CatalogEvent event : events) {
+                waiting |= heldBack.contains(event.entityKey());
+            }
+            if (waiting || !deliver(events)) {
+                for (CatalogEvent event : events) {
+                    heldBack.add(event.entityKey());
+                }
+                continue;
+            }
+            delivered.add(ids.get(i));
+        }
+        if (!delivered.isEmpty()) {
+            namedParameterJdbcTemplate.update("DELETE FROM catalog_outbox WHERE id IN (:ids)", Map.of("ids", delivered));
+        }
+        return delivered.size();
+    }
+
+    private boolean deliver(List<CatalogEvent> events) {
+        for (CatalogEventListener listener : listeners) {
+            try {
+                for (CatalogEvent event : events) {
+                    listener.onCatalogEvent(event);
+                }
+            } catch (RuntimeException e) {
+                failedDeliveries.incrementAndGet();
+                log.warn("Catalog event listener {} failed on outbox row {}; retrying later",
+                        listener, events.get(0).getOutboxId(), e);
+                return false;
+            }
+        }
+        eventsDelivered.addAndGet(events.size());
+        return true;
+    }
+
+//    A row that can't be read would fail the same way on every pass, and
+//    can't be held back by entity, so it's moved aside rather than left to
+//    block or be retried forever
+    private List<CatalogEvent> decode(long id, String json) {
+        try {
+            List<CatalogEvent> events = objectMapper.readValue(json, EVENTS);
+            for (CatalogEvent event : events) {
+                event.setOutboxId(id);
+            }
+            return events;
+        } catch (IOException e) {
+            log.error("Could not read catalog outbox row {}; moving it to catalog_outbox_dead_letters", id, e);
+            deadLetter(id, e);
+            return null;
+        }
+    }
+
+    private void deadLetter(long id, IOException error) {
+        Map<String, Object> params = Map.of("id", id, "error", String.valueOf(error.getMessage()),
+                "failedAt", System.currentTimeMillis());
+        deadLetterTransaction.executeWithoutResult(status -> {
+            namedParameterJdbcTemplate.update("INSERT INTO catalog_outbox_dead_letters (id, created_at, events, error, failed_at) "
+                    + "SELECT id, created_at, events, :error, :failedAt FROM catalog_outbox WHERE id = :id", params);
+            namedParameterJdbcTemplate.update("DELETE FROM catalog_outbox WHERE id = :id", params);
+        });
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.bnta.chocolate.components;
+
+import com.bnta.chocolate.config.ReplicaProperties;
+import com.bnta.chocolate.config.ReplicaRoutingDataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+@Component
+public class ReplicaLagMonitor {
+
+    @Autowired
+    ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @Autowired
+    ReplicaProperties replicaProperties;
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica-check-interval:1000}")
+    public void checkReplicaLag(){
+        List<DataSource> replicas = replicaRoutingDataSource.getReplicas();
+        for (int i = 0; i < replicas.size(); i++) {
+            long lag;
+            try {
+                Long measured = new JdbcTemplate(replicas.get(i))
+                        .queryForObject(replicaProperties.getReplicaLagQuery(), Long.class);
+                lag = measured == null ? 0 : measured;
+            } catch (DataAccessException e) {
+//                An unreachable replica is treated as infinitely behind
+                lag = ReplicaRoutingDataSource.UNKNOWN_LAG;
+            }
+            replicaRoutingDataSource.recordReplicaLag(i, lag);
+        }
+    }
+
+}
@@ -0,0 +1,145 @@
+package com.bnta.chocolate.config;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Sends read-only transactions opted in with @ReplicaRead to a replica that
+// is within the allowed lag, and everything else to the primary. Read-only
+// alone isn't enough: Spring Data marks every bare repository read
+// read-only, and those callers never agreed to see stale data. Must sit
+// behind a LazyConnectionDataSourceProxy so the connection is only fetched
+// once the transaction's read-only flag has been set.
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    public static final String PRIMARY = "primary";
+    public static final String FALLBACK = "fallback";
+
+//    Replicas count as lagging until the first lag check has run
+    public static final long UNKNOWN_LAG = Long.MAX_VALUE;
+
+    private final List<String> replicaKeys = new ArrayList<>();
+    private final List<DataSource> replicas;
+    private final AtomicLongArray replicaLagMillis;
+    private final long maxLagMillis;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final Map<String, LongAdder> routeCounters = new ConcurrentHashMap<>();
+
+//    Set while a @ReplicaRead method is running on this thread
+    private static final ThreadLocal<Boolean> replicaReads = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration maxLag) {
+        this.replicas = replicas;
+        this.replicaLagMillis = new AtomicLongArray(replicas.size());
+        this.maxLagMillis = maxLag.toMillis();
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        routeCounters.put(PRIMARY, new LongAdder());
+        for (int i = 0; i < replicas.size(); i++) {
+            String key = "replica-" + i;
+            replicaKeys.add(key);
+            targets.put(key, replicas.get(i));
+            routeCounters.put(key, new LongAdder());
+            replicaLagMillis.set(i, UNKNOWN_LAG);
+        }
+        routeCounters.put(FALLBACK, new LongAdder());
+
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String route = chooseRoute();
+        routeCounters.get(route).increment();
+        return route;
+    }
+
+    private String chooseRoute() {
+        if (replicaKeys.isEmpty() || !replicaReads.get() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+//        Round robin across replicas, skipping any that are too far behind
+        int replicaCount = replicaKeys.size();
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicaCount);
+        for (int i = 0; i < replicaCount; i++) {
+            int candidate = (start + i) % replicaCount;
+            if (replicaLagMillis.get(candidate) <= maxLagMillis) {
+                return replicaKeys.get(candidate);
+            }
+        }
+        routeCounters.get(FALLBACK).increment();
+        return PRIMARY;
+    }
+
+//    For reads that can't carry @ReplicaRead
+    public static <T> T readingFromReplicas(Supplier<T> read) {
+        boolean previous = replicaReads.get();
+        replicaReads.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            replicaReads.set(previous);
+        }
+    }
+
+//    Advice around @ReplicaRead methods
+    static Object invokeReadingFromReplicas(MethodInvocation invocation) throws Throwable {
+        boolean previous = replicaReads.get();
+        replicaReads.set(Boolean.TRUE);
+        try {
+            return invocation.proceed();
+        } finally {
+            replicaReads.set(previous);
+        }
+    }
+
+    public List<DataSource> getReplicas() {
+        return replicas;
+    }
+
+    public void recordReplicaLag(int replica, long lagMillis) {
+        replicaLagMillis.set(replica, lagMillis);
+    }
+
+    public long getReplicaLag(int replica) {
+        return replicaLagMillis.get(replica);
+    }
+
+//    Connections handed out per route, plus how many read-only
+//    transactions fell back to the primary, plus current replica lag
+    public Map<String, Long> getRoutingStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put(PRIMARY, routeCounters.get(PRIMARY).sum());
+        for (String key : replicaKeys) {
+            stats.put(key, routeCounters.get(key).sum());
+        }
+        stats.put(FALLBACK, routeCounters.get(FALLBACK).sum());
+        for (int i = 0; i < replicaKeys.size(); i++) {
+            stats.put(replicaKeys.get(i) + ".lagMillis", replicaLagMillis.get(i));
+        }
+        return stats;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        for (DataSource replica : replicas) {
+            if (replica instanceof Closeable) {
+                ((Closeable) replica).close();
+            }
+        }
+    }
+}
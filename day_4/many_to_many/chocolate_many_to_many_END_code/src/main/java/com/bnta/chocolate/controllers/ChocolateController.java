@@ -1,13 +1,27 @@
 package com.bnta.chocolate.controllers;
 
+import com.bnta.chocolate.components.CatalogGraph;
+import com.bnta.chocolate.components.CatalogSnapshot;
+import com.bnta.chocolate.components.EntityVersions;
 import com.bnta.chocolate.models.Chocolate;
+import com.bnta.chocolate.models.ChocolateChanges;
+import com.bnta.chocolate.models.ImportFormat;
+import com.bnta.chocolate.models.ImportReport;
+import com.bnta.chocolate.models.SimilarChocolate;
 import com.bnta.chocolate.repositories.ChocolateRepository;
+import com.bnta.chocolate.services.ChocolateImportService;
 import com.bnta.chocolate.services.ChocolateService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.net.URI;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,34 +32,151 @@ public class ChocolateController {
     @Autowired
     ChocolateService chocolateService;
 
+    @Autowired
+    EntityVersions entityVersions;
+
+    @Autowired
+    ChocolateImportService chocolateImportService;
+
+    @Autowired
+    CatalogGraph catalogGraph;
+
+    @Autowired
+    CatalogSnapshot catalogSnapshot;
+
 //    Handles following:
 //    * GET /chocolates
 //    * GET /chocolates?cocoaPercentage=69
+//    * GET /chocolates?min=55&max=72
+//    * GET /chocolates?page=0&size=20&sort=cocoaPercentage,desc&fields=name,estates
 //    INDEX
     @GetMapping
-    public ResponseEntity<List<Chocolate>> getAllChocolatesAndFilters(
-            @RequestParam(required = false, name = "cocoaPercentage") Integer cocoaPercentage
+    public ResponseEntity<?> getAllChocolatesAndFilters(
+            @RequestParam(required = false, name = "cocoaPercentage") Integer cocoaPercentage,
+            @RequestParam(required = false, name = "min") Integer min,
+            @RequestParam(required = false, name = "max") Integer max,
+            @RequestParam(required = false, name = "page") Integer page,
+            @RequestParam(required = false, name = "size") Integer size,
+            @RequestParam(required = false, name = "sort") String sort,
+            @RequestParam(required = false, name = "fields") String fields
     ){
+//        Any of page, size, sort or fields asks for one page, with only the
+//        fields listed (all by default) and the same filters
+        if(page != null || size != null || sort != null || fields != null){
+            Integer from = min == null && max == null && cocoaPercentage != null ? Integer.valueOf(cocoaPercentage + 1) : min;
+            try {
+                return new ResponseEntity<>(chocolateService.findChocolatePage(from, max, page, size, sort, fields), HttpStatus.OK);
+            } catch (IllegalArgumentException e) {
+                return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            }
+        }
+//        GET /chocolates?min=55&max=72 (either bound can be left out)
+        if(min != null || max != null){
+            return new ResponseEntity<>(chocolateService.findAllChocolatesInCocoaRange(min, max), HttpStatus.OK);
+        }
 //        GET /chocolates?cocoaPercentage=69
         if(cocoaPercentage != null){
             return new ResponseEntity<>(chocolateService.findAllChocolatesOverCocoaPercentage(cocoaPercentage), HttpStatus.OK);
         }
-//        GET /chocolates
+//        GET /chocolates, as JSON encoded ahead of time unless that has
+//        fallen too far behind the database
+        CatalogSnapshot.Snapshot snapshot = catalogSnapshot.getFresh();
+        if (snapshot != null) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(CatalogSnapshot.STALENESS_HEADER, String.valueOf(catalogSnapshot.getStalenessMillis()))
+                    .body(snapshot.getChocolatesJson());
+        }
         return new ResponseEntity<>(chocolateService.findAllChocolates(), HttpStatus.OK);
     }
 
+//    CHANGES
+//    * GET /chocolates/changes for the whole catalog and a version
+//    * GET /chocolates/changes?since=<version> for what changed after it
+    @GetMapping(value = "/changes")
+    public ResponseEntity<ChocolateChanges> getChanges(@RequestParam(required = false, name = "since") Long since){
+        return new ResponseEntity<>(chocolateService.findChangesSince(since), HttpStatus.OK);
+    }
+
 //    SHOW
+//    Revalidations against the latest known version are answered with a 304
+//    without touching the database
     @GetMapping(value = "/{id}")
-    public ResponseEntity<Optional<Chocolate>> getChocolate(@PathVariable Long id){
+    public ResponseEntity<Chocolate> getChocolate(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ){
+        Long knownVersion = entityVersions.getVersion(Chocolate.class, id);
+        if (knownVersion != null && EntityVersions.matches(ifNoneMatch, knownVersion)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(EntityVersions.etag(knownVersion)).build();
+        }
         Chocolate foundChocolate = chocolateService.findChocolate(id);
-        return new ResponseEntity(foundChocolate, HttpStatus.OK);
+        return ResponseEntity.ok().eTag(EntityVersions.etag(foundChocolate.getVersion())).body(foundChocolate);
+    }
+
+//    GRAPH (ids only, served from the in-memory catalog graph)
+//    * GET /chocolates/{id}/estates
+//    * GET /chocolates/{id}/related for chocolates sharing an estate
+    @GetMapping(value = "/{id}/estates")
+    public ResponseEntity<List<Long>> getEstateIds(@PathVariable Long id){
+        CatalogGraph.Snapshot graph = catalogGraph.getSnapshot();
+        if (!graph.hasChocolate(id)) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(graph.estatesOf(id), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/{id}/related")
+    public ResponseEntity<List<Long>> getRelatedChocolateIds(@PathVariable Long id){
+        CatalogGraph.Snapshot graph = catalogGraph.getSnapshot();
+        if (!graph.hasChocolate(id)) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(graph.relatedChocolates(id), HttpStatus.OK);
+    }
+
+//    SIMILAR
+//    * GET /chocolates/{id}/similar?limit=5
+//    Ranked by estates in common, then by closeness of cocoa percentage; at
+//    most 100 and 10 unless asked
+    @GetMapping(value = "/{id}/similar")
+    public ResponseEntity<List<SimilarChocolate>> getSimilarChocolates(
+            @PathVariable Long id,
+            @RequestParam(required = false, name = "limit", defaultValue = "10") int limit
+    ){
+        CatalogGraph.Snapshot graph = catalogGraph.getSnapshot();
+        if (!graph.hasChocolate(id)) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        if (limit < 1) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(graph.similarChocolates(id, Math.min(limit, CatalogGraph.Snapshot.MAX_SIMILAR)), HttpStatus.OK);
     }
 
 //    CREATE (chocolate can be created with or without estates)
     @PostMapping
-    public ResponseEntity<List<Chocolate>> postChocolate(@RequestBody Chocolate chocolate){
-        chocolateService.saveChocolate(chocolate);
-        return new ResponseEntity<>(chocolateService.findAllChocolates(), HttpStatus.CREATED);
+    public ResponseEntity<Chocolate> postChocolate(@RequestBody Chocolate chocolate){
+        Chocolate savedChocolate = chocolateService.saveChocolate(chocolate);
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/{id}")
+                .buildAndExpand(savedChocolate.getId())
+                .toUri();
+        return ResponseEntity.created(location).eTag(EntityVersions.etag(savedChocolate.getVersion())).body(savedChocolate);
+    }
+
+//    BULK IMPORT
+//    * POST /chocolates/import?id=feed-2024 with an application/x-ndjson or text/csv body
+//    The body is streamed rather than bound, so a large feed is never held in memory
+    @PostMapping(value = "/import", consumes = {ImportFormat.NDJSON_VALUE, ImportFormat.CSV_VALUE})
+    public ResponseEntity<ImportReport> importChocolates(
+            @RequestParam(name = "id") String importId,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            HttpServletRequest request
+    ) throws IOException {
+        ImportReport report = chocolateImportService.importChocolates(
+                importId, request.getInputStream(), ImportFormat.fromContentType(contentType));
+        return new ResponseEntity<>(report, report.isCompleted() ? HttpStatus.OK : HttpStatus.UNPROCESSABLE_ENTITY);
     }
 
 //    UPDATE
@@ -58,7 +189,9 @@ public class ChocolateController {
 //    DELETE
     @DeleteMapping(value = "/{id}")
     public ResponseEntity<Long> deleteChocolate(@PathVariable Long id){
-        chocolateService.deleteChocolate(id);
+        if (!chocolateService.deleteChocolate(id)) {
+            return new ResponseEntity<>(id, HttpStatus.NOT_FOUND);
+        }
         return new ResponseEntity<>(id, HttpStatus.OK);
     }
 
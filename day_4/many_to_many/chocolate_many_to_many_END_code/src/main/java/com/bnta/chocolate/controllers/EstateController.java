@@ -1,14 +1,22 @@
 package com.bnta.chocolate.controllers;
 
+import com.bnta.chocolate.components.CatalogGraph;
+import com.bnta.chocolate.components.CatalogSnapshot;
+import com.bnta.chocolate.components.EntityVersions;
 import com.bnta.chocolate.models.Chocolate;
+import com.bnta.chocolate.models.CountryStats;
 import com.bnta.chocolate.models.Estate;
 import com.bnta.chocolate.repositories.EstateRepository;
 import com.bnta.chocolate.services.EstateService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.net.URI;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,29 +27,105 @@ public class EstateController {
     @Autowired
     EstateService estateService;
 
+    @Autowired
+    EntityVersions entityVersions;
+
+    @Autowired
+    CatalogGraph catalogGraph;
+
+    @Autowired
+    CatalogSnapshot catalogSnapshot;
+
 //    INDEX
+//    * GET /estates, served as JSON encoded ahead of time unless that has
+//      fallen too far behind the database
+//    * GET /estates?page=0&size=20&sort=country&fields=name,country for one
+//      page with only the fields listed (all by default)
     @GetMapping
-    public ResponseEntity<List<Estate>> getAllEstates(){
-        return new ResponseEntity(estateService.findAllEstates(), HttpStatus.OK);
+    public ResponseEntity<?> getAllEstates(
+            @RequestParam(required = false, name = "page") Integer page,
+            @RequestParam(required = false, name = "size") Integer size,
+            @RequestParam(required = false, name = "sort") String sort,
+            @RequestParam(required = false, name = "fields") String fields
+    ){
+        if (page != null || size != null || sort != null || fields != null) {
+            try {
+                return new ResponseEntity<>(estateService.findEstatePage(page, size, sort, fields), HttpStatus.OK);
+            } catch (IllegalArgumentException e) {
+                return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            }
+        }
+        CatalogSnapshot.Snapshot snapshot = catalogSnapshot.getFresh();
+        if (snapshot != null) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(CatalogSnapshot.STALENESS_HEADER, String.valueOf(catalogSnapshot.getStalenessMillis()))
+                    .body(snapshot.getEstatesJson());
+        }
+        return new ResponseEntity<>(estateService.findAllEstates(), HttpStatus.OK);
+    }
+
+//    STATS
+//    GET /estates/stats: chocolates, estates and average cocoa percentage per country
+    @GetMapping(value = "/stats")
+    public ResponseEntity<List<CountryStats>> getCountryStats(){
+        return new ResponseEntity<>(estateService.findCountryStats(), HttpStatus.OK);
     }
 
 //    SHOW
+//    Revalidations against the latest known version are answered with a 304
+//    without touching the database
     @GetMapping(value = "/{id}")
-    public ResponseEntity<Optional<Estate>> getEstate(@PathVariable Long id){
-        return new ResponseEntity(estateService.findEstate(id), HttpStatus.OK);
+    public ResponseEntity<Estate> getEstate(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ){
+        Long knownVersion = entityVersions.getVersion(Estate.class, id);
+        if (knownVersion != null && EntityVersions.matches(ifNoneMatch, knownVersion)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(EntityVersions.etag(knownVersion)).build();
+        }
+        Estate foundEstate = estateService.findEstate(id);
+        return ResponseEntity.ok().eTag(EntityVersions.etag(foundEstate.getVersion())).body(foundEstate);
+    }
+
+//    GRAPH (ids only, served from the in-memory catalog graph)
+//    * GET /estates/{id}/chocolates
+//    * GET /estates/{id}/related for estates sharing a chocolate
+    @GetMapping(value = "/{id}/chocolates")
+    public ResponseEntity<List<Long>> getChocolateIds(@PathVariable Long id){
+        CatalogGraph.Snapshot graph = catalogGraph.getSnapshot();
+        if (!graph.hasEstate(id)) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(graph.chocolatesOf(id), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/{id}/related")
+    public ResponseEntity<List<Long>> getRelatedEstateIds(@PathVariable Long id){
+        CatalogGraph.Snapshot graph = catalogGraph.getSnapshot();
+        if (!graph.hasEstate(id)) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(graph.relatedEstates(id), HttpStatus.OK);
     }
 
 //    CREATE
     @PostMapping
     public ResponseEntity<Estate> postEstate(@RequestBody Estate estate){
-        estateService.saveEstate(estate);
-        return new ResponseEntity(estateService.findAllEstates(), HttpStatus.CREATED);
+        Estate savedEstate = estateService.saveEstate(estate);
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/{id}")
+                .buildAndExpand(savedEstate.getId())
+                .toUri();
+        return ResponseEntity.created(location).eTag(EntityVersions.etag(savedEstate.getVersion())).body(savedEstate);
     }
 
 //    DELETE
     @DeleteMapping(value = "/{id}")
     public ResponseEntity<Long> deleteEstate(@PathVariable Long id){
-        estateService.removeEstatesFromChocolates(id);
+        if (!estateService.deleteEstate(id)) {
+            return new ResponseEntity<>(id, HttpStatus.NOT_FOUND);
+        }
         return new ResponseEntity<>(id, HttpStatus.OK);
     }
 
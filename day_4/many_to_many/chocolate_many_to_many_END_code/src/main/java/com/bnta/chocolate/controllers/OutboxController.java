@@ -0,0 +1,25 @@
+package com.bnta.chocolate.controllers;
+
+import com.bnta.chocolate.components.OutboxRelay;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("outbox")
+public class OutboxController {
+
+    @Autowired
+    OutboxRelay outboxRelay;
+
+    @GetMapping
+    public ResponseEntity<Map<String, Long>> getRelayStats(){
+        return new ResponseEntity<>(outboxRelay.getStats(), HttpStatus.OK);
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.bnta.chocolate.models;
+
+// A change to one chocolate or estate, as handed to CatalogEventListeners.
+//
+// Delivery is at least once, so a listener can see the same event again;
+// version is the entity's version after the change and only ever goes up,
+// so a listener can drop anything at or below a version it has already
+// applied. A deleted entity has no version.
+public class CatalogEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+//    The outbox row the event was written in; events of one write share it
+    private long outboxId;
+    private Type type;
+    private String entity;
+    private long entityId;
+    private Long version;
+    private long occurredAt;
+
+    public CatalogEvent(Type type, String entity, long entityId, Long version) {
+        this.type = type;
+        this.entity = entity;
+        this.entityId = entityId;
+        this.version = version;
+    }
+
+    public CatalogEvent() {
+    }
+
+//    Events of one entity are delivered in order; those of different
+//    entities may not be
+    public String entityKey() {
+        return entity + ":" + entityId;
+    }
+
+    public long getOutboxId() {
+        return outboxId;
+    }
+
+    public void setOutboxId(long outboxId) {
+        this.outboxId = outboxId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public String getEntity() {
+        return entity;
+    }
+
+    public void setEntity(String entity) {
+        this.entity = entity;
+    }
+
+    public long getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(long entityId) {
+        this.entityId = entityId;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public long getOccurredAt() {
+        return occurredAt;
+    }
+
+    public void setOccurredAt(long occurredAt) {
+        this.occurredAt = occurredAt;
+    }
+}
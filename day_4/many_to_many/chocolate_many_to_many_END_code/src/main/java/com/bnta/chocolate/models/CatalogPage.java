@@ -0,0 +1,56 @@
+package com.bnta.chocolate.models;
+
+import java.util.List;
+import java.util.Map;
+
+// One page of GET /chocolates or GET /estates with paging or fields asked
+// for: just the requested fields of each row, and whether a next page exists
+public class CatalogPage {
+
+    private int page;
+    private int size;
+    private boolean hasNext;
+    private List<Map<String, Object>> items;
+
+    public CatalogPage(int page, int size, boolean hasNext, List<Map<String, Object>> items) {
+        this.page = page;
+        this.size = size;
+        this.hasNext = hasNext;
+        this.items = items;
+    }
+
+    public CatalogPage() {
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+
+    public List<Map<String, Object>> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Map<String, Object>> items) {
+        this.items = items;
+    }
+}
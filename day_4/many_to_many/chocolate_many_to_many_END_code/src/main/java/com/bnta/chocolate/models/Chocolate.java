@@ -1,32 +1,64 @@
 package com.bnta.chocolate.models;
 
+import com.bnta.chocolate.components.CatalogVersionListener;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.Where;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
+// Deleted chocolates are tombstoned and purged later by ChocolatePurger;
+// every entity query, and the estates' chocolate lists, leave them out
 @Entity
-@Table(name = "chocolates")
+@DynamicUpdate
+@Where(clause = "deleted = false")
+@EntityListeners(CatalogVersionListener.class)
+// The name and cocoa percentage indexes serve sorted pages of the catalog,
+// and lead with deleted so they serve the tombstone filter as well
+@Table(name = "chocolates", indexes = {
+        @Index(name = "chocolates_change_id_idx", columnList = "change_id"),
+        @Index(name = "chocolates_deleted_idx", columnList = "deleted, id"),
+        @Index(name = "chocolates_name_idx", columnList = "deleted, name, id"),
+        @Index(name = "chocolates_cocoa_percentage_idx", columnList = "deleted, cocoa_percentage, id")
+})
 public class Chocolate {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chocolate_generator")
+    @SequenceGenerator(name = "chocolate_generator", sequenceName = "chocolates_id_seq", allocationSize = 50)
     @Column
     private Long id;
 
     @Column
     private String name;
 
+    @Version
+    @Column
+    private long version;
+
+//    The chocolate_changes entry of the last write to touch this chocolate
+    @Column(name = "change_id")
+    private Long changeId;
+
     @Column(name = "cocoa_percentage")
     private int cocoaPercentage;
 
+    @Column(nullable = false)
+    private boolean deleted;
+
     @JsonIgnoreProperties({"chocolates"})
     @ManyToMany
     @JoinTable(
             name = "chocolates_estates",
             joinColumns = @JoinColumn(name = "chocolate_id"),
-            inverseJoinColumns = @JoinColumn(name = "estate_id")
+            inverseJoinColumns = @JoinColumn(name = "estate_id"),
+            indexes = {
+                    @Index(name = "chocolates_estates_chocolate_id_idx", columnList = "chocolate_id"),
+                    @Index(name = "chocolates_estates_estate_id_idx", columnList = "estate_id")
+            }
     )
     private List<Estate> estates;
 
@@ -47,6 +79,25 @@ public class Chocolate {
         this.estates.remove(estate);
     }
 
+    @JsonIgnore
+    public long getVersion() {
+        return version;
+    }
+
+    @JsonIgnore
+    public Long getChangeId() {
+        return changeId;
+    }
+
+    public void setChangeId(Long changeId) {
+        this.changeId = changeId;
+    }
+
+    @JsonIgnore
+    public boolean isDeleted() {
+        return deleted;
+    }
+
     public Long getId() {
         return id;
     }
@@ -0,0 +1,42 @@
+package com.bnta.chocolate.models;
+
+import javax.persistence.*;
+
+// One row per write to the catalog. Its id is stamped on every chocolate
+// the write touched; a delete leaves the deleted chocolate's id here instead.
+@Entity
+@Table(name = "chocolate_changes")
+public class ChocolateChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chocolate_change_generator")
+    @SequenceGenerator(name = "chocolate_change_generator", sequenceName = "chocolate_changes_id_seq", allocationSize = 50)
+    @Column
+    private Long id;
+
+    @Column(name = "deleted_chocolate_id")
+    private Long deletedChocolateId;
+
+    public ChocolateChange(Long deletedChocolateId) {
+        this.deletedChocolateId = deletedChocolateId;
+    }
+
+    public ChocolateChange() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getDeletedChocolateId() {
+        return deletedChocolateId;
+    }
+
+    public void setDeletedChocolateId(Long deletedChocolateId) {
+        this.deletedChocolateId = deletedChocolateId;
+    }
+}
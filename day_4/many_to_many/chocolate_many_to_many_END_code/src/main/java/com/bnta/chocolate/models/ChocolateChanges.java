@@ -0,0 +1,44 @@
+package com.bnta.chocolate.models;
+
+import java.util.List;
+
+// What GET /chocolates/changes hands back: pass version as since next time
+public class ChocolateChanges {
+
+    private long version;
+    private List<Chocolate> changed;
+    private List<Long> deleted;
+
+    public ChocolateChanges(long version, List<Chocolate> changed, List<Long> deleted) {
+        this.version = version;
+        this.changed = changed;
+        this.deleted = deleted;
+    }
+
+    public ChocolateChanges() {
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public List<Chocolate> getChanged() {
+        return changed;
+    }
+
+    public void setChanged(List<Chocolate> changed) {
+        this.changed = changed;
+    }
+
+    public List<Long> getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(List<Long> deleted) {
+        this.deleted = deleted;
+    }
+}
@@ -0,0 +1,14 @@
+package com.bnta.chocolate.models;
+
+// One row of GET /estates/stats, projected straight from the aggregate query
+public interface CountryStats {
+
+    String getCountry();
+
+    Long getEstates();
+
+    Long getChocolates();
+
+    Double getAverageCocoaPercentage();
+
+}
@@ -1,6 +1,10 @@
 package com.bnta.chocolate.models;
 
+import com.bnta.chocolate.components.CatalogVersionListener;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.WhereJoinTable;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -8,22 +12,37 @@ import java.util.List;
 
 
 @Entity
-@Table(name = "estates")
+@DynamicUpdate
+@EntityListeners(CatalogVersionListener.class)
+// The name and country indexes serve sorted pages of the estates
+@Table(name = "estates", indexes = {
+        @Index(name = "estates_name_idx", columnList = "name, id"),
+        @Index(name = "estates_country_idx", columnList = "country, id")
+})
 public class Estate {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "estate_generator")
+    @SequenceGenerator(name = "estate_generator", sequenceName = "estates_id_seq", allocationSize = 50)
     @Column
     private Long id;
 
     @Column
     private String name;
 
+    @Version
+    @Column
+    private long version;
+
     @Column
     private String country;
 
+//    Deleted chocolates keep their join rows until ChocolatePurger gets to
+//    them, and Chocolate's own @Where would leave those rows pointing at a
+//    chocolate that can't be loaded, so they're dropped from the join table
     @JsonIgnoreProperties({"estates"})
     @ManyToMany(mappedBy = "estates")
+    @WhereJoinTable(clause = "chocolate_id IN (SELECT c.id FROM chocolates c WHERE c.deleted = false)")
     private List<Chocolate> chocolates;
 
     public Estate(String name, String country) {
@@ -47,6 +66,11 @@ public class Estate {
         this.country = country;
     }
 
+    @JsonIgnore
+    public long getVersion() {
+        return version;
+    }
+
     public Long getId() {
         return id;
     }
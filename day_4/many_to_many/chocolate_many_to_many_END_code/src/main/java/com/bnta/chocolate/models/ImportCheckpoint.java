@@ -0,0 +1,41 @@
+package com.bnta.chocolate.models;
+
+import javax.persistence.*;
+
+// How many records of a named import have been committed, so a failed
+// import can pick up where it stopped
+@Entity
+@Table(name = "import_checkpoints")
+public class ImportCheckpoint {
+
+    @Id
+    @Column(name = "import_id")
+    private String importId;
+
+    @Column(name = "records_done")
+    private long recordsDone;
+
+    public ImportCheckpoint(String importId, long recordsDone) {
+        this.importId = importId;
+        this.recordsDone = recordsDone;
+    }
+
+    public ImportCheckpoint() {
+    }
+
+    public String getImportId() {
+        return importId;
+    }
+
+    public void setImportId(String importId) {
+        this.importId = importId;
+    }
+
+    public long getRecordsDone() {
+        return recordsDone;
+    }
+
+    public void setRecordsDone(long recordsDone) {
+        this.recordsDone = recordsDone;
+    }
+}
@@ -0,0 +1,32 @@
+package com.bnta.chocolate.models;
+
+// The two shapes a catalog feed can come in.
+//
+// NDJSON has one chocolate per line:
+//   {"name":"Salted Dark","cocoaPercentage":70,"estates":[{"name":"Rabot Estate","country":"St Lucia"}]}
+//
+// CSV has a header and one row per estate link, with the rows for one
+// chocolate next to each other and the estate columns left empty for a
+// chocolate without estates:
+//   name,cocoa_percentage,estate_name,estate_country
+//   Salted Dark,70,Rabot Estate,St Lucia
+public enum ImportFormat {
+
+    NDJSON,
+    CSV;
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+    public static final String CSV_VALUE = "text/csv";
+
+    public static ImportFormat fromContentType(String contentType) {
+        if (contentType != null && contentType.toLowerCase().startsWith(CSV_VALUE)) {
+            return CSV;
+        }
+        return NDJSON;
+    }
+
+    public static ImportFormat fromFileName(String fileName) {
+        return fileName.toLowerCase().endsWith(".csv") ? CSV : NDJSON;
+    }
+
+}
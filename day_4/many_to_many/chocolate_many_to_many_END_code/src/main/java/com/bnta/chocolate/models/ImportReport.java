@@ -0,0 +1,100 @@
+package com.bnta.chocolate.models;
+
+// The outcome of a bulk import. A failed import reports how far it got;
+// sending the same file again under the same import id resumes from there.
+public class ImportReport {
+
+    private String importId;
+    private long resumedFrom;
+    private long recordsImported;
+    private long chocolatesCreated;
+    private long chocolatesUpdated;
+    private long estatesCreated;
+    private long millis;
+    private boolean completed;
+    private String error;
+
+    public ImportReport(String importId, long resumedFrom) {
+        this.importId = importId;
+        this.resumedFrom = resumedFrom;
+    }
+
+    public ImportReport() {
+    }
+
+    public double getRecordsPerSecond() {
+        return millis == 0 ? recordsImported : recordsImported * 1000.0 / millis;
+    }
+
+    public String getImportId() {
+        return importId;
+    }
+
+    public void setImportId(String importId) {
+        this.importId = importId;
+    }
+
+    public long getResumedFrom() {
+        return resumedFrom;
+    }
+
+    public void setResumedFrom(long resumedFrom) {
+        this.resumedFrom = resumedFrom;
+    }
+
+    public long getRecordsImported() {
+        return recordsImported;
+    }
+
+    public void setRecordsImported(long recordsImported) {
+        this.recordsImported = recordsImported;
+    }
+
+    public long getChocolatesCreated() {
+        return chocolatesCreated;
+    }
+
+    public void setChocolatesCreated(long chocolatesCreated) {
+        this.chocolatesCreated = chocolatesCreated;
+    }
+
+    public long getChocolatesUpdated() {
+        return chocolatesUpdated;
+    }
+
+    public void setChocolatesUpdated(long chocolatesUpdated) {
+        this.chocolatesUpdated = chocolatesUpdated;
+    }
+
+    public long getEstatesCreated() {
+        return estatesCreated;
+    }
+
+    public void setEstatesCreated(long estatesCreated) {
+        this.estatesCreated = estatesCreated;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    public void setMillis(long millis) {
+        this.millis = millis;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
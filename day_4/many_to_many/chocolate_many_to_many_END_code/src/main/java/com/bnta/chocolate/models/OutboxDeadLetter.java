@@ -0,0 +1,71 @@
+package com.bnta.chocolate.models;
+
+import javax.persistence.*;
+
+// A catalog_outbox row OutboxRelay couldn't read, moved aside with the error
+// so the rows behind it keep flowing. Keeps the outbox row's id, so the
+// events can be put back in their place once fixed. Only mapped so the
+// table is created, like OutboxEntry.
+@Entity
+@Table(name = "catalog_outbox_dead_letters")
+public class OutboxDeadLetter {
+
+    @Id
+    @Column
+    private Long id;
+
+    @Column(name = "created_at", nullable = false)
+    private long createdAt;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String events;
+
+    @Column(columnDefinition = "TEXT")
+    private String error;
+
+    @Column(name = "failed_at", nullable = false)
+    private long failedAt;
+
+    public OutboxDeadLetter() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public String getEvents() {
+        return events;
+    }
+
+    public void setEvents(String events) {
+        this.events = events;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public long getFailedAt() {
+        return failedAt;
+    }
+
+    public void setFailedAt(long failedAt) {
+        this.failedAt = failedAt;
+    }
+}
@@ -0,0 +1,58 @@
+package com.bnta.chocolate.models;
+
+import javax.persistence.*;
+
+// One row per committed write to the catalog, holding the events it raised
+// as a JSON array of CatalogEvents. Written by CatalogOutbox in the write's
+// own transaction and deleted by OutboxRelay once every listener has had
+// them, or moved to OutboxDeadLetter if it can't be read. Only mapped so the
+// table is created; neither side goes through Hibernate.
+@Entity
+@Table(name = "catalog_outbox")
+public class OutboxEntry {
+
+//    One id per row, taken straight from the sequence
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "catalog_outbox_generator")
+    @SequenceGenerator(name = "catalog_outbox_generator", sequenceName = "catalog_outbox_id_seq", allocationSize = 1)
+    @Column
+    private Long id;
+
+    @Column(name = "created_at", nullable = false)
+    private long createdAt;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String events;
+
+    public OutboxEntry(long createdAt, String events) {
+        this.createdAt = createdAt;
+        this.events = events;
+    }
+
+    public OutboxEntry() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public String getEvents() {
+        return events;
+    }
+
+    public void setEvents(String events) {
+        this.events = events;
+    }
+}
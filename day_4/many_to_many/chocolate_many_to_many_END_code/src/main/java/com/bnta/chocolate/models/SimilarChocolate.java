@@ -0,0 +1,53 @@
+package com.bnta.chocolate.models;
+
+// One entry of GET /chocolates/{id}/similar. similarity is the Jaccard index
+// of the two chocolates' estates: shared estates over estates of either.
+public class SimilarChocolate {
+
+    private long id;
+    private int cocoaPercentage;
+    private int sharedEstates;
+    private double similarity;
+
+    public SimilarChocolate(long id, int cocoaPercentage, int sharedEstates, double similarity) {
+        this.id = id;
+        this.cocoaPercentage = cocoaPercentage;
+        this.sharedEstates = sharedEstates;
+        this.similarity = similarity;
+    }
+
+    public SimilarChocolate() {
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public int getCocoaPercentage() {
+        return cocoaPercentage;
+    }
+
+    public void setCocoaPercentage(int cocoaPercentage) {
+        this.cocoaPercentage = cocoaPercentage;
+    }
+
+    public int getSharedEstates() {
+        return sharedEstates;
+    }
+
+    public void setSharedEstates(int sharedEstates) {
+        this.sharedEstates = sharedEstates;
+    }
+
+    public double getSimilarity() {
+        return similarity;
+    }
+
+    public void setSimilarity(double similarity) {
+        this.similarity = similarity;
+    }
+}
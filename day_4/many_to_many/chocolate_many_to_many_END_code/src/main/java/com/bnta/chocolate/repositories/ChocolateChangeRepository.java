@@ -0,0 +1,21 @@
+package com.bnta.chocolate.repositories;
+
+import com.bnta.chocolate.models.ChocolateChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ChocolateChangeRepository extends JpaRepository<ChocolateChange, Long> {
+
+    @Query("SELECT COALESCE(MAX(c.id), 0) FROM ChocolateChange c")
+    long findLatestId();
+
+    @Query("SELECT c.deletedChocolateId FROM ChocolateChange c "
+            + "WHERE c.id > :since AND c.id <= :upTo AND c.deletedChocolateId IS NOT NULL")
+    List<Long> findDeletedChocolateIds(@Param("since") long since, @Param("upTo") long upTo);
+
+}
@@ -2,9 +2,14 @@ package com.bnta.chocolate.repositories;
 
 import com.bnta.chocolate.models.Chocolate;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ChocolateRepository extends JpaRepository<Chocolate, Long> {
@@ -12,4 +17,54 @@ public interface ChocolateRepository extends JpaRepository<Chocolate, Long> {
 //    find all chocolates with 70% or more cocoa content
     List<Chocolate> findByCocoaPercentageGreaterThan(int cocoaPercentage);
 
+    @Query("SELECT DISTINCT c FROM Chocolate c LEFT JOIN FETCH c.estates WHERE c.cocoaPercentage > :cocoaPercentage")
+    List<Chocolate> findWithEstatesByCocoaPercentageGreaterThan(@Param("cocoaPercentage") int cocoaPercentage);
+
+    @Query("SELECT DISTINCT c FROM Chocolate c LEFT JOIN FETCH c.estates "
+            + "WHERE c.cocoaPercentage BETWEEN :min AND :max ORDER BY c.cocoaPercentage, c.id")
+    List<Chocolate> findWithEstatesByCocoaPercentageBetween(@Param("min") int min, @Param("max") int max);
+
+    @Query("SELECT c FROM Chocolate c LEFT JOIN FETCH c.estates WHERE c.id = :id")
+    Optional<Chocolate> findWithEstatesById(@Param("id") Long id);
+
+    @Query("SELECT DISTINCT c FROM Chocolate c LEFT JOIN FETCH c.estates")
+    List<Chocolate> findAllWithEstates();
+
+    @Query("SELECT DISTINCT c FROM Chocolate c LEFT JOIN FETCH c.estates "
+            + "WHERE c.changeId > :since AND c.changeId <= :upTo")
+    List<Chocolate> findAllWithEstatesChangedBetween(@Param("since") long since, @Param("upTo") long upTo);
+
+    @Modifying
+    @Query("UPDATE Chocolate c SET c.version = c.version + 1, c.changeId = :changeId WHERE c.id IN :ids")
+    int incrementVersions(@Param("ids") Collection<Long> ids, @Param("changeId") long changeId);
+
+    @Query("SELECT c.id, c.version FROM Chocolate c WHERE c.id IN :ids")
+    List<Object[]> findVersionsByIds(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE Chocolate c SET c.version = c.version + 1, c.changeId = :changeId "
+            + "WHERE c.id IN (SELECT linked.id FROM Chocolate linked JOIN linked.estates e WHERE e.id = :estateId)")
+    int incrementVersionsByEstateId(@Param("estateId") Long estateId, @Param("changeId") long changeId);
+
+    @Query("SELECT c.id, c.version FROM Chocolate c JOIN c.estates e WHERE e.id = :estateId")
+    List<Object[]> findVersionsByEstateId(@Param("estateId") Long estateId);
+
+//    One indexed UPDATE however big the catalog; the row and its links are
+//    left for ChocolatePurger
+    @Modifying
+    @Query("UPDATE Chocolate c SET c.deleted = true, c.version = c.version + 1 WHERE c.id = :id AND c.deleted = false")
+    int tombstone(@Param("id") Long id);
+
+//    For updates that add or drop a few estates: only those join rows are
+//    written, where replacing the estate list would rewrite every one.
+//    Estates that don't exist are skipped.
+    @Modifying
+    @Query(value = "INSERT INTO chocolates_estates (chocolate_id, estate_id) "
+            + "SELECT CAST(:chocolateId AS BIGINT), e.id FROM estates e WHERE e.id IN (:estateIds)", nativeQuery = true)
+    int linkEstates(@Param("chocolateId") Long chocolateId, @Param("estateIds") Collection<Long> estateIds);
+
+    @Modifying
+    @Query(value = "DELETE FROM chocolates_estates WHERE chocolate_id = :chocolateId AND estate_id IN (:estateIds)", nativeQuery = true)
+    int unlinkEstates(@Param("chocolateId") Long chocolateId, @Param("estateIds") Collection<Long> estateIds);
+
 }
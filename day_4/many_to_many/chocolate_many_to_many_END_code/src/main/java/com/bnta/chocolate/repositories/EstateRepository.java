@@ -1,9 +1,59 @@
 package com.bnta.chocolate.repositories;
 
+import com.bnta.chocolate.models.CountryStats;
 import com.bnta.chocolate.models.Estate;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface EstateRepository extends JpaRepository<Estate, Long> {
+
+    @Query("SELECT DISTINCT e FROM Estate e LEFT JOIN FETCH e.chocolates")
+    List<Estate> findAllWithChocolates();
+
+    @Query("SELECT e FROM Estate e LEFT JOIN FETCH e.chocolates WHERE e.id = :id")
+    Optional<Estate> findWithChocolatesById(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE Estate e SET e.version = e.version + 1 WHERE e.id IN :ids")
+    int incrementVersions(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT e.id, e.version FROM Estate e WHERE e.id IN :ids")
+    List<Object[]> findVersionsByIds(@Param("ids") Collection<Long> ids);
+
+//    The estates listing a chocolate, found through the join table directly
+//    since a tombstoned chocolate is invisible to entity queries
+    @Modifying
+    @Query(value = "UPDATE estates SET version = version + 1 "
+            + "WHERE id IN (SELECT estate_id FROM chocolates_estates WHERE chocolate_id = :chocolateId)", nativeQuery = true)
+    int incrementVersionsByChocolateId(@Param("chocolateId") Long chocolateId);
+
+    @Query(value = "SELECT e.id, e.version FROM estates e "
+            + "WHERE e.id IN (SELECT estate_id FROM chocolates_estates WHERE chocolate_id = :chocolateId)", nativeQuery = true)
+    List<Object[]> findVersionsByChocolateId(@Param("chocolateId") Long chocolateId);
+
+    @Modifying
+    @Query("DELETE FROM Estate e WHERE e.id = :id")
+    int deleteEstateById(@Param("id") Long id);
+
+//    A chocolate from two estates in the same country is counted, and
+//    averaged, once for that country. Aliases are quoted so the projection
+//    sees the same names on every database.
+    @Query(value = "SELECT s.country AS \"country\", s.estates AS \"estates\", "
+            + "COUNT(c.id) AS \"chocolates\", AVG(CAST(c.cocoa_percentage AS DOUBLE PRECISION)) AS \"averageCocoaPercentage\" "
+            + "FROM (SELECT country, COUNT(*) AS estates FROM estates GROUP BY country) s "
+            + "LEFT JOIN (SELECT DISTINCT e.country, ce.chocolate_id FROM estates e "
+            + "JOIN chocolates_estates ce ON ce.estate_id = e.id) linked ON linked.country = s.country "
+            + "LEFT JOIN chocolates c ON c.id = linked.chocolate_id AND c.deleted = FALSE "
+            + "GROUP BY s.country, s.estates "
+            + "ORDER BY s.country", nativeQuery = true)
+    List<CountryStats> findCountryStats();
+
 }
@@ -0,0 +1,9 @@
+package com.bnta.chocolate.repositories;
+
+import com.bnta.chocolate.models.ImportCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ImportCheckpointRepository extends JpaRepository<ImportCheckpoint, String> {
+}
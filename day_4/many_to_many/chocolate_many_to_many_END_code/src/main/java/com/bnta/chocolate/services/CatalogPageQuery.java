@@ -0,0 +1,156 @@
+package com.bnta.chocolate.services;
+
+import com.bnta.chocolate.models.CatalogPage;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// The query behind one page of a sparse list: only the columns of the
+// fields asked for, sorted on a whitelisted field with the id as tiebreak,
+// and one row past the page to tell whether another follows. Field and sort
+// names are checked against the whitelist before any SQL is built; anything
+// else is an IllegalArgumentException.
+class CatalogPageQuery {
+
+    static final int DEFAULT_SIZE = 20;
+    static final int MAX_SIZE = 100;
+
+    private final String table;
+    private final Map<String, String> columns;
+    private final String association;
+
+    private final List<String> fields;
+    private final String orderBy;
+    private final int page;
+    private final int size;
+
+//    columns maps field names to columns in the order they are written out,
+//    starting with id; association names the one field loaded separately
+    CatalogPageQuery(String table, Map<String, String> columns, String association,
+                     String fields, String sort, Integer page, Integer size) {
+        this.table = table;
+        this.columns = columns;
+        this.association = association;
+        this.fields = parseFields(fields);
+        this.orderBy = parseSort(sort);
+        this.page = page == null ? 0 : page;
+        this.size = size == null ? DEFAULT_SIZE : size;
+        if (this.page < 0) {
+            throw new IllegalArgumentException("page must not be negative");
+        }
+        if (this.size < 1 || this.size > MAX_SIZE) {
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_SIZE);
+        }
+    }
+
+    boolean wants(String field) {
+        return fields.contains(field);
+    }
+
+//    where is a condition on the table's own columns, or null
+    CatalogPage fetch(NamedParameterJdbcTemplate jdbcTemplate, String where, MapSqlParameterSource parameters) {
+        StringBuilder sql = new StringBuilder("SELECT ");
+        List<String> selected = new ArrayList<>();
+        for (Map.Entry<String, String> column : columns.entrySet()) {
+            if (fields.contains(column.getKey())) {
+                selected.add(column.getValue());
+            }
+        }
+        sql.append(String.join(", ", selected)).append(" FROM ").append(table);
+        if (where != null) {
+            sql.append(" WHERE ").append(where);
+        }
+        sql.append(" ORDER BY ").append(orderBy).append(" LIMIT :limit OFFSET :offset");
+        parameters.addValue("limit", size + 1);
+        parameters.addValue("offset", (long) page * size);
+
+        List<Map<String, Object>> items = new ArrayList<>();
+        jdbcTemplate.query(sql.toString(), parameters, (RowCallbackHandler) row -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            for (Map.Entry<String, String> column : columns.entrySet()) {
+                if (fields.contains(column.getKey())) {
+                    item.put(column.getKey(), row.getObject(column.getValue()));
+                }
+            }
+            items.add(item);
+        });
+        boolean hasNext = items.size() > size;
+        if (hasNext) {
+            items.remove(size);
+        }
+        return new CatalogPage(page, size, hasNext, items);
+    }
+
+    static List<Long> ids(CatalogPage catalogPage) {
+        List<Long> ids = new ArrayList<>();
+        for (Map<String, Object> item : catalogPage.getItems()) {
+            ids.add(((Number) item.get("id")).longValue());
+        }
+        return ids;
+    }
+
+//    Field names paired with their columns, in the order written out
+    static Map<String, String> columns(String... fieldsAndColumns) {
+        Map<String, String> columns = new LinkedHashMap<>();
+        for (int i = 0; i < fieldsAndColumns.length; i += 2) {
+            columns.put(fieldsAndColumns[i], fieldsAndColumns[i + 1]);
+        }
+        return columns;
+    }
+
+//    Attaches the association to each item, keyed by the item's id; items
+//    without any get an empty list
+    void attach(CatalogPage catalogPage, Map<Long, List<Map<String, Object>>> linked) {
+        for (Map<String, Object> item : catalogPage.getItems()) {
+            item.put(association, linked.getOrDefault(((Number) item.get("id")).longValue(), List.of()));
+        }
+    }
+
+//    Comma separated; without any, every field. The id is always included.
+    private List<String> parseFields(String fields) {
+        List<String> parsed = new ArrayList<>();
+        parsed.add("id");
+        if (fields == null) {
+            for (String field : columns.keySet()) {
+                if (!parsed.contains(field)) {
+                    parsed.add(field);
+                }
+            }
+            parsed.add(association);
+            return parsed;
+        }
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (!columns.containsKey(name) && !name.equals(association)) {
+                throw new IllegalArgumentException("Unknown field: " + name);
+            }
+            if (!parsed.contains(name)) {
+                parsed.add(name);
+            }
+        }
+        return parsed;
+    }
+
+//    A field, optionally followed by ,asc or ,desc
+    private String parseSort(String sort) {
+        if (sort == null) {
+            return "id";
+        }
+        String[] parts = sort.split(",");
+        String column = columns.get(parts[0].trim());
+        if (column == null || parts.length > 2) {
+            throw new IllegalArgumentException("Cannot sort on: " + sort);
+        }
+        String direction = parts.length == 2 ? parts[1].trim().toUpperCase() : "ASC";
+        if (!direction.equals("ASC") && !direction.equals("DESC")) {
+            throw new IllegalArgumentException("Unknown sort direction: " + parts[1]);
+        }
+        return column.equals("id") ? "id " + direction : column + " " + direction + ", id " + direction;
+    }
+
+}
@@ -0,0 +1,187 @@
+package com.bnta.chocolate.services;
+
+import com.bnta.chocolate.models.Chocolate;
+import com.bnta.chocolate.models.Estate;
+import com.bnta.chocolate.models.ImportFormat;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reads a feed one chocolate at a time, so an import never holds more than
+// a chunk of it in memory. Bad input fails with the line it was on.
+class ChocolateFeedReader implements Closeable {
+
+    private final BufferedReader reader;
+    private final ImportFormat format;
+    private final ObjectMapper objectMapper;
+    private long lineNumber;
+
+    private int nameColumn = -1;
+    private int cocoaPercentageColumn = -1;
+    private int estateNameColumn = -1;
+    private int estateCountryColumn = -1;
+
+//    The first CSV row of the next chocolate, read while finishing this one
+    private List<String> pendingRow;
+
+    ChocolateFeedReader(InputStream in, ImportFormat format, ObjectMapper objectMapper) throws IOException {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.format = format;
+        this.objectMapper = objectMapper;
+        if (format == ImportFormat.CSV) {
+            readHeader();
+        }
+    }
+
+//    Null once the feed runs out
+    Chocolate next() throws IOException {
+        return format == ImportFormat.CSV ? nextFromCsv() : nextFromNdjson();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private Chocolate nextFromNdjson() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            Chocolate chocolate;
+            try {
+                chocolate = objectMapper.readValue(line, Chocolate.class);
+            } catch (JsonProcessingException e) {
+                throw invalid(e.getOriginalMessage());
+            }
+            if (chocolate.getEstates() == null) {
+                chocolate.setEstates(new ArrayList<>());
+            }
+            return validated(chocolate);
+        }
+        return null;
+    }
+
+    private void readHeader() throws IOException {
+        String header = reader.readLine();
+        lineNumber++;
+        if (header == null) {
+            throw invalid("the CSV header is missing");
+        }
+        List<String> columns = parseCsvLine(header);
+        for (int i = 0; i < columns.size(); i++) {
+            switch (columns.get(i).trim().toLowerCase()) {
+                case "name" -> nameColumn = i;
+                case "cocoa_percentage" -> cocoaPercentageColumn = i;
+                case "estate_name" -> estateNameColumn = i;
+                case "estate_country" -> estateCountryColumn = i;
+                default -> {
+                }
+            }
+        }
+        if (nameColumn < 0 || cocoaPercentageColumn < 0) {
+            throw invalid("the CSV header needs name and cocoa_percentage columns");
+        }
+    }
+
+    private Chocolate nextFromCsv() throws IOException {
+        List<String> row = pendingRow != null ? pendingRow : readCsvRow();
+        pendingRow = null;
+        if (row == null) {
+            return null;
+        }
+        Chocolate chocolate;
+        try {
+            chocolate = new Chocolate(column(row, nameColumn), Integer.parseInt(column(row, cocoaPercentageColumn).trim()));
+        } catch (NumberFormatException e) {
+            throw invalid("cocoa_percentage is not a number");
+        }
+        addEstate(chocolate, row);
+        while ((row = readCsvRow()) != null) {
+            if (!column(row, nameColumn).equals(chocolate.getName())) {
+                pendingRow = row;
+                break;
+            }
+            addEstate(chocolate, row);
+        }
+        return validated(chocolate);
+    }
+
+    private List<String> readCsvRow() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (!line.isBlank()) {
+                return parseCsvLine(line);
+            }
+        }
+        return null;
+    }
+
+    private void addEstate(Chocolate chocolate, List<String> row) {
+        String estateName = column(row, estateNameColumn);
+        if (!estateName.isEmpty()) {
+            chocolate.addEstate(new Estate(estateName, column(row, estateCountryColumn)));
+        }
+    }
+
+    private Chocolate validated(Chocolate chocolate) {
+        if (chocolate.getName() == null || chocolate.getName().isBlank()) {
+            throw invalid("a chocolate needs a name");
+        }
+        for (Estate estate : chocolate.getEstates()) {
+            if (estate.getName() == null || estate.getName().isBlank()) {
+                throw invalid("an estate needs a name");
+            }
+        }
+        return chocolate;
+    }
+
+    private IllegalArgumentException invalid(String reason) {
+        return new IllegalArgumentException("Line " + lineNumber + ": " + reason);
+    }
+
+    private static String column(List<String> row, int column) {
+        return column >= 0 && column < row.size() ? row.get(column) : "";
+    }
+
+//    Quoted fields may hold commas and doubled quotes, but not line breaks
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+}
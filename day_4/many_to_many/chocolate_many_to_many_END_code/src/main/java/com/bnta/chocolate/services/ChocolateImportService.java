@@ -0,0 +1,326 @@
+package com.bnta.chocolate.services;
+
+import com.bnta.chocolate.components.CatalogGraph;
+import com.bnta.chocolate.components.CatalogOutbox;
+import com.bnta.chocolate.components.CatalogSnapshot;
+import com.bnta.chocolate.components.ChocolateChangeLog;
+import com.bnta.chocolate.components.CocoaIndex;
+import com.bnta.chocolate.components.CountryStatsCache;
+import com.bnta.chocolate.components.EntityVersions;
+import com.bnta.chocolate.models.CatalogEvent;
+import com.bnta.chocolate.models.Chocolate;
+import com.bnta.chocolate.models.Estate;
+import com.bnta.chocolate.models.ImportCheckpoint;
+import com.bnta.chocolate.models.ImportFormat;
+import com.bnta.chocolate.models.ImportReport;
+import com.bnta.chocolate.repositories.ImportCheckpointRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Upserts a catalog feed straight through JDBC batches.
+//
+// Chocolates are matched by name and estates by name and country, both
+// through lookups loaded once per import, so a record costs no queries of
+// its own. The feed is written in chunks of app.import.chunk-size records,
+// each in its own transaction along with a checkpoint of how far the import
+// has got. An import that fails partway can be sent again under the same id
+// and carries on after the last committed chunk; chunks are upserts, so
+// redoing one is harmless.
+//
+// An imported chocolate's estates replace the ones it had.
+@Service
+public class ChocolateImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChocolateImportService.class);
+
+//    Must match the allocationSize of the entities' sequence generators
+    private static final int ID_BLOCK_SIZE = 50;
+
+    private static final String INSERT_ESTATE = "INSERT INTO estates (id, name, country, version) VALUES (?, ?, ?, 0)";
+    private static final String INSERT_CHOCOLATE = "INSERT INTO chocolates (id, name, cocoa_percentage, version, change_id, deleted) VALUES (?, ?, ?, 0, ?, FALSE)";
+    private static final String UPDATE_CHOCOLATE = "UPDATE chocolates SET cocoa_percentage = ?, version = version + 1, change_id = ? WHERE id = ?";
+    private static final String DELETE_LINKS = "DELETE FROM chocolates_estates WHERE chocolate_id = ?";
+    private static final String INSERT_LINK = "INSERT INTO chocolates_estates (chocolate_id, estate_id) VALUES (?, ?)";
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    ImportCheckpointRepository importCheckpointRepository;
+
+    @Autowired
+    ChocolateChangeLog chocolateChangeLog;
+
+    @Autowired
+    EntityVersions entityVersions;
+
+    @Autowired
+    CocoaIndex cocoaIndex;
+
+    @Autowired
+    CountryStatsCache countryStatsCache;
+
+    @Autowired
+    CatalogGraph catalogGraph;
+
+    @Autowired
+    CatalogSnapshot catalogSnapshot;
+
+    @Autowired
+    CatalogOutbox catalogOutbox;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Value("${app.import.chunk-size:1000}")
+    int chunkSize;
+
+    public ImportReport importChocolates(String importId, InputStream in, ImportFormat format) {
+        long resumeFrom = importCheckpointRepository.findById(importId)
+                .map(ImportCheckpoint::getRecordsDone)
+                .orElse(0L);
+        ImportReport report = new ImportReport(importId, resumeFrom);
+        long start = System.currentTimeMillis();
+        try (ChocolateFeedReader reader = new ChocolateFeedReader(in, format, objectMapper)) {
+            long recordsDone = 0;
+            while (recordsDone < resumeFrom && reader.next() != null) {
+                recordsDone++;
+            }
+            Catalog catalog = new Catalog();
+//            Keyed by name, so a chocolate listed twice in a chunk is written once
+            Map<String, Chocolate> chunk = new LinkedHashMap<>();
+            int recordsInChunk = 0;
+            Chocolate record;
+            while ((record = reader.next()) != null) {
+                chunk.put(record.getName(), record);
+                if (++recordsInChunk == chunkSize) {
+                    recordsDone += recordsInChunk;
+                    writeChunk(importId, recordsDone, chunk.values(), catalog, report);
+                    report.setRecordsImported(recordsDone - resumeFrom);
+                    chunk.clear();
+                    recordsInChunk = 0;
+                }
+            }
+            if (recordsInChunk > 0) {
+                recordsDone += recordsInChunk;
+                writeChunk(importId, recordsDone, chunk.values(), catalog, report);
+                report.setRecordsImported(recordsDone - resumeFrom);
+            }
+            if (importCheckpointRepository.existsById(importId)) {
+                importCheckpointRepository.deleteById(importId);
+            }
+            report.setCompleted(true);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Import {} stopped after {} records: {}", importId, resumeFrom + report.getRecordsImported(), e.getMessage());
+            report.setError(e.getMessage());
+        }
+        report.setMillis(System.currentTimeMillis() - start);
+        log.info("Import {} wrote {} records in {} ms ({} records/s)",
+                importId, report.getRecordsImported(), report.getMillis(), Math.round(report.getRecordsPerSecond()));
+        return report;
+    }
+
+    private void writeChunk(String importId, long recordsDone, Collection<Chocolate> records, Catalog catalog, ImportReport report) {
+        Map<String, Estate> newEstates = new HashMap<>();
+        Map<String, Long> newChocolates = new HashMap<>();
+        int[] updated = new int[1];
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            long changeId = chocolateChangeLog.nextChangeId();
+            List<Object[]> estateInserts = new ArrayList<>();
+            List<Object[]> chocolateInserts = new ArrayList<>();
+            List<Object[]> chocolateUpdates = new ArrayList<>();
+            List<Object[]> linkInserts = new ArrayList<>();
+            List<Long> updatedIds = new ArrayList<>();
+            Set<Long> changedEstates = new HashSet<>();
+
+            for (Chocolate record : records) {
+                List<Estate> estates = new ArrayList<>();
+                for (Estate listed : record.getEstates()) {
+                    String key = estateKey(listed);
+                    Estate estate = catalog.estatesByKey.getOrDefault(key, newEstates.get(key));
+                    if (estate == null) {
+                        estate = new Estate(listed.getName(), listed.getCountry());
+                        estate.setId(catalog.estateIds.next());
+                        newEstates.put(key, estate);
+                        estateInserts.add(new Object[]{estate.getId(), estate.getName(), estate.getCountry()});
+                    }
+                    if (!estates.contains(estate)) {
+                        estates.add(estate);
+                        changedEstates.add(estate.getId());
+                    }
+                }
+
+                Long id = catalog.chocolateIdsByName.get(record.getName());
+                if (id == null) {
+                    id = catalog.chocolateIds.next();
+                    newChocolates.put(record.getName(), id);
+                    chocolateInserts.add(new Object[]{id, record.getName(), record.getCocoaPercentage(), changeId});
+                } else {
+                    updatedIds.add(id);
+                    chocolateUpdates.add(new Object[]{record.getCocoaPercentage(), changeId, id});
+                }
+                record.setId(id);
+                record.setEstates(estates);
+                for (Estate estate : estates) {
+                    linkInserts.add(new Object[]{id, estate.getId()});
+                }
+            }
+
+//            Estates that lose a chocolate change as well as those that gain one
+            if (!updatedIds.isEmpty()) {
+                changedEstates.addAll(namedParameterJdbcTemplate.queryForList(
+                        "SELECT DISTINCT estate_id FROM chocolates_estates WHERE chocolate_id IN (:ids)",
+                        Map.of("ids", updatedIds), Long.class));
+            }
+
+            jdbcTemplate.batchUpdate(INSERT_ESTATE, estateInserts);
+            jdbcTemplate.batchUpdate(INSERT_CHOCOLATE, chocolateInserts);
+            jdbcTemplate.batchUpdate(UPDATE_CHOCOLATE, chocolateUpdates);
+            jdbcTemplate.batchUpdate(DELETE_LINKS, updatedIds, updatedIds.size(), (statement, id) -> statement.setLong(1, id));
+            jdbcTemplate.batchUpdate(INSERT_LINK, linkInserts);
+            if (!changedEstates.isEmpty()) {
+                namedParameterJdbcTemplate.update(
+                        "UPDATE estates SET version = version + 1 WHERE id IN (:ids)", Map.of("ids", changedEstates));
+            }
+            importCheckpointRepository.save(new ImportCheckpoint(importId, recordsDone));
+            recordEvents(records, newChocolates.values(), changedEstates, newEstates.values());
+
+//            The new versions weren't read back, so the next conditional GET
+//            of any of these goes to the database
+            for (Long id : updatedIds) {
+                entityVersions.forgetAfterCommit(Chocolate.class, id);
+            }
+            for (Long id : changedEstates) {
+                entityVersions.forgetAfterCommit(Estate.class, id);
+            }
+            cocoaIndex.putAllAfterCommit(records);
+            countryStatsCache.invalidateAfterCommit();
+            catalogGraph.rebuildAfterCommit();
+            catalogSnapshot.rebuildAfterCommit();
+            updated[0] = updatedIds.size();
+        });
+
+//        Only known to exist once the chunk has committed
+        catalog.estatesByKey.putAll(newEstates);
+        catalog.chocolateIdsByName.putAll(newChocolates);
+        report.setEstatesCreated(report.getEstatesCreated() + newEstates.size());
+        report.setChocolatesCreated(report.getChocolatesCreated() + newChocolates.size());
+        report.setChocolatesUpdated(report.getChocolatesUpdated() + updated[0]);
+    }
+
+//    Versions are read back, two queries a chunk, so listeners get the same
+//    versions a GET would
+    private void recordEvents(Collection<Chocolate> records, Collection<Long> createdChocolates,
+                              Set<Long> changedEstates, Collection<Estate> createdEstates) {
+        Set<Long> created = new HashSet<>(createdChocolates);
+        List<Long> ids = new ArrayList<>();
+        for (Chocolate record : records) {
+            ids.add(record.getId());
+        }
+        namedParameterJdbcTemplate.query("SELECT id, version FROM chocolates WHERE id IN (:ids)",
+                Map.of("ids", ids), (RowCallbackHandler) row -> {
+                    long id = row.getLong("id");
+                    CatalogEvent.Type type = created.contains(id) ? CatalogEvent.Type.CREATED : CatalogEvent.Type.UPDATED;
+                    catalogOutbox.record(type, Chocolate.class, id, row.getLong("version"));
+                });
+        if (changedEstates.isEmpty()) {
+            return;
+        }
+        Set<Long> createdEstateIds = new HashSet<>();
+        for (Estate estate : createdEstates) {
+            createdEstateIds.add(estate.getId());
+        }
+        namedParameterJdbcTemplate.query("SELECT id, version FROM estates WHERE id IN (:ids)",
+                Map.of("ids", changedEstates), (RowCallbackHandler) row -> {
+                    long id = row.getLong("id");
+                    CatalogEvent.Type type = createdEstateIds.contains(id) ? CatalogEvent.Type.CREATED : CatalogEvent.Type.UPDATED;
+                    catalogOutbox.record(type, Estate.class, id, row.getLong("version"));
+                });
+    }
+
+    private static String estateKey(Estate estate) {
+        return estate.getName() + '\u0000' + estate.getCountry();
+    }
+
+//    The chocolates and estates already stored, plus id blocks for new ones
+    private final class Catalog {
+
+        private final Map<String, Estate> estatesByKey = new HashMap<>();
+        private final Map<String, Long> chocolateIdsByName = new HashMap<>();
+        private final IdBlock estateIds = new IdBlock("estates_id_seq");
+        private final IdBlock chocolateIds = new IdBlock("chocolates_id_seq");
+
+        private Catalog() {
+            jdbcTemplate.query("SELECT id, name, country FROM estates", (RowCallbackHandler) row -> {
+                Estate estate = new Estate(row.getString("name"), row.getString("country"));
+                estate.setId(row.getLong("id"));
+                estatesByKey.putIfAbsent(estateKey(estate), estate);
+            });
+//            A tombstoned chocolate is gone as far as the feed is concerned
+            jdbcTemplate.query("SELECT id, name FROM chocolates WHERE deleted = FALSE", (RowCallbackHandler) row ->
+                    chocolateIdsByName.putIfAbsent(row.getString("name"), row.getLong("id")));
+        }
+    }
+
+//    Hands out ids the way Hibernate's pooled optimizer does, one sequence
+//    call per block, so ids taken here never collide with the entities' own
+    private final class IdBlock {
+
+        private final String nextValueSql;
+        private long next;
+        private long last = -1;
+
+        private IdBlock(String sequence) {
+            this.nextValueSql = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices().getDialect().getSequenceNextValString(sequence);
+        }
+
+        private long next() {
+            if (next > last) {
+                long high = jdbcTemplate.queryForObject(nextValueSql, Long.class);
+//                A fresh sequence starts at 1 rather than at the top of a block
+                if (high < ID_BLOCK_SIZE) {
+                    next = high;
+                    last = jdbcTemplate.queryForObject(nextValueSql, Long.class);
+                } else {
+                    next = high - ID_BLOCK_SIZE + 1;
+                    last = high;
+                }
+            }
+            return next++;
+        }
+    }
+
+}
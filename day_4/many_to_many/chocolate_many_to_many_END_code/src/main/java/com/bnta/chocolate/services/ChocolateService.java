@@ -1,44 +1,290 @@
 package com.bnta.chocolate.services;
 
+import com.bnta.chocolate.components.CatalogGraph;
+import com.bnta.chocolate.components.CatalogOutbox;
+import com.bnta.chocolate.components.CatalogSnapshot;
+import com.bnta.chocolate.components.ChocolateChangeLog;
+import com.bnta.chocolate.components.CocoaIndex;
+import com.bnta.chocolate.components.CountryStatsCache;
+import com.bnta.chocolate.components.EntityVersions;
+import com.bnta.chocolate.config.ReplicaRead;
+import com.bnta.chocolate.models.CatalogEvent;
+import com.bnta.chocolate.models.CatalogPage;
 import com.bnta.chocolate.models.Chocolate;
+import com.bnta.chocolate.models.ChocolateChanges;
+import com.bnta.chocolate.models.Estate;
+import com.bnta.chocolate.repositories.ChocolateChangeRepository;
 import com.bnta.chocolate.repositories.ChocolateRepository;
+import com.bnta.chocolate.repositories.EstateRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 @Service
 public class ChocolateService {
 
+    private static final Map<String, String> PAGE_COLUMNS = CatalogPageQuery.columns(
+            "id", "id", "name", "name", "cocoaPercentage", "cocoa_percentage");
+
     @Autowired
     ChocolateRepository chocolateRepository;
 
+    @Autowired
+    EstateRepository estateRepository;
+
+    @Autowired
+    EntityVersions entityVersions;
+
+    @Autowired
+    CocoaIndex cocoaIndex;
+
+    @Autowired
+    ChocolateChangeLog chocolateChangeLog;
+
+    @Autowired
+    ChocolateChangeRepository chocolateChangeRepository;
+
+    @Autowired
+    CountryStatsCache countryStatsCache;
+
+    @Autowired
+    CatalogGraph catalogGraph;
+
+    @Autowired
+    CatalogSnapshot catalogSnapshot;
+
+    @Autowired
+    CatalogOutbox catalogOutbox;
+
+    @Autowired
+    NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+//    Only what differs is written: the chocolate's row when its name or
+//    cocoa percentage changes (and then only those columns), and join rows
+//    for the estates added or dropped. The estate list is compared rather
+//    than replaced, since a replaced list is deleted and inserted again in
+//    full. A PUT that changes nothing writes nothing.
+    @Transactional
     public void updateChocolate(Chocolate chocolate, Long id){
-        Chocolate chocolateToUpdate = chocolateRepository.findById(id).get();
+        Chocolate chocolateToUpdate = chocolateRepository.findWithEstatesById(id).get();
+        Set<Long> currentEstates = estateIds(chocolateToUpdate.getEstates());
+        Set<Long> requestedEstates = estateIds(chocolate.getEstates());
+        Set<Long> addedEstates = new HashSet<>(requestedEstates);
+        addedEstates.removeAll(currentEstates);
+        Set<Long> droppedEstates = new HashSet<>(currentEstates);
+        droppedEstates.removeAll(requestedEstates);
+        boolean renamed = !Objects.equals(chocolateToUpdate.getName(), chocolate.getName());
+        boolean cocoaChanged = chocolateToUpdate.getCocoaPercentage() != chocolate.getCocoaPercentage();
+        boolean relinked = !addedEstates.isEmpty() || !droppedEstates.isEmpty();
+        if (!renamed && !cocoaChanged && !relinked) {
+            return;
+        }
+
         chocolateToUpdate.setName(chocolate.getName());
         chocolateToUpdate.setCocoaPercentage(chocolate.getCocoaPercentage());
-        chocolateToUpdate.setEstates(chocolate.getEstates());
+        chocolateToUpdate.setChangeId(chocolateChangeLog.nextChangeId());
         chocolateRepository.save(chocolateToUpdate);
+        if (!droppedEstates.isEmpty()) {
+            chocolateRepository.unlinkEstates(id, droppedEstates);
+        }
+        if (!addedEstates.isEmpty()) {
+            chocolateRepository.linkEstates(id, addedEstates);
+        }
+
+//        The loaded estate list is left as it was, so it isn't written again
+        List<Estate> linkedEstates = new ArrayList<>();
+        for (Estate estate : chocolateToUpdate.getEstates()) {
+            if (!droppedEstates.contains(estate.getId())) {
+                linkedEstates.add(estate);
+            }
+        }
+        if (!addedEstates.isEmpty()) {
+            linkedEstates.addAll(estateRepository.findAllById(addedEstates));
+        }
+        cocoaIndex.putAfterCommit(chocolateToUpdate, linkedEstates);
+        catalogOutbox.record(CatalogEvent.Type.UPDATED, chocolateToUpdate);
+
+//        Estates only embed a renamed or re-rated chocolate they still list
+        Set<Long> affectedEstates = new HashSet<>(addedEstates);
+        affectedEstates.addAll(renamed || cocoaChanged ? currentEstates : droppedEstates);
+        markEstatesChanged(affectedEstates);
+        if (cocoaChanged || relinked) {
+            countryStatsCache.invalidateAfterCommit();
+            catalogGraph.rebuildAfterCommit();
+        }
+        catalogSnapshot.rebuildAfterCommit();
     }
 
-    public void saveChocolate(Chocolate chocolate){
+//    The posted estates only need ids; they are swapped for the stored ones so
+//    the chocolate handed back is complete
+    @Transactional
+    public Chocolate saveChocolate(Chocolate chocolate){
+        Set<Long> linkedEstates = estateIds(chocolate.getEstates());
+        chocolate.setEstates(estateRepository.findAllById(linkedEstates));
+        chocolate.setChangeId(chocolateChangeLog.nextChangeId());
         chocolateRepository.save(chocolate);
+        cocoaIndex.putAfterCommit(chocolate, chocolate.getEstates());
+        catalogOutbox.record(CatalogEvent.Type.CREATED, chocolate);
+        markEstatesChanged(linkedEstates);
+        countryStatsCache.invalidateAfterCommit();
+        catalogGraph.rebuildAfterCommit();
+        catalogSnapshot.rebuildAfterCommit();
+        return chocolate;
     }
 
+//    Reads fetch everything the JSON needs in one query, since nothing can be
+//    lazily loaded once the transaction is over
+    @ReplicaRead
+    @Transactional(readOnly = true)
     public Chocolate findChocolate(Long id){
-       return chocolateRepository.findById(id).get();
+       return chocolateRepository.findWithEstatesById(id).get();
     }
 
+    @ReplicaRead
+    @Transactional(readOnly = true)
     public List<Chocolate> findAllChocolates(){
-        return chocolateRepository.findAll();
+        return chocolateRepository.findAllWithEstates();
     }
 
+//    Answered from the in-memory index once it has loaded. Not transactional,
+//    so a query the index answers doesn't even borrow a connection.
     public List<Chocolate> findAllChocolatesOverCocoaPercentage(int percentage){
-        return chocolateRepository.findByCocoaPercentageGreaterThan(percentage);
+        if (cocoaIndex.isLoaded()) {
+            return cocoaIndex.findGreaterThan(percentage);
+        }
+        return chocolateRepository.findWithEstatesByCocoaPercentageGreaterThan(percentage);
+    }
+
+//    Both ends inclusive, and either can be left open
+    public List<Chocolate> findAllChocolatesInCocoaRange(Integer min, Integer max){
+        long from = min == null ? Integer.MIN_VALUE : min;
+        long to = max == null ? Integer.MAX_VALUE : max;
+        if (cocoaIndex.isLoaded()) {
+            return cocoaIndex.findBetween(from, to);
+        }
+        return chocolateRepository.findWithEstatesByCocoaPercentageBetween((int) from, (int) to);
+    }
+
+//    One page of chocolates with just the fields asked for. Only their
+//    columns are selected, and estates are read, for this page's chocolates
+//    alone, only when asked for; either way two queries at most, whatever
+//    the size of the catalog. Bounds are inclusive and optional.
+    @ReplicaRead
+    @Transactional(readOnly = true)
+    public CatalogPage findChocolatePage(Integer min, Integer max, Integer page, Integer size, String sort, String fields){
+        CatalogPageQuery query = new CatalogPageQuery("chocolates", PAGE_COLUMNS, "estates", fields, sort, page, size);
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        List<String> conditions = new ArrayList<>();
+        conditions.add("deleted = FALSE");
+        if (min != null) {
+            conditions.add("cocoa_percentage >= :min");
+            parameters.addValue("min", min);
+        }
+        if (max != null) {
+            conditions.add("cocoa_percentage <= :max");
+            parameters.addValue("max", max);
+        }
+        CatalogPage chocolates = query.fetch(namedParameterJdbcTemplate, String.join(" AND ", conditions), parameters);
+        if (query.wants("estates")) {
+            Map<Long, List<Map<String, Object>>> estates = new HashMap<>();
+            List<Long> ids = CatalogPageQuery.ids(chocolates);
+            if (!ids.isEmpty()) {
+                namedParameterJdbcTemplate.query("SELECT ce.chocolate_id, e.id, e.name, e.country FROM chocolates_estates ce "
+                        + "JOIN estates e ON e.id = ce.estate_id WHERE ce.chocolate_id IN (:ids) ORDER BY e.id",
+                        Map.of("ids", ids), (RowCallbackHandler) row -> {
+                            Map<String, Object> estate = new LinkedHashMap<>();
+                            estate.put("id", row.getLong("id"));
+                            estate.put("name", row.getString("name"));
+                            estate.put("country", row.getString("country"));
+                            estates.computeIfAbsent(row.getLong("chocolate_id"), key -> new ArrayList<>()).add(estate);
+                        });
+            }
+            query.attach(chocolates, estates);
+        }
+        return chocolates;
+    }
+
+//    Tombstones the chocolate instead of deleting it, so nothing is loaded
+//    and the cost doesn't grow with the catalog: one indexed update, the
+//    change log entry, the version bump of the estates listing it, and the
+//    outbox row.
+//    ChocolatePurger removes the row and its links later.
+    @Transactional
+    public boolean deleteChocolate(Long id){
+        if (chocolateRepository.tombstone(id) == 0) {
+            return false;
+        }
+        chocolateChangeLog.recordDeletion(id);
+        catalogOutbox.record(CatalogEvent.Type.DELETED, Chocolate.class, id, null);
+        estateRepository.incrementVersionsByChocolateId(id);
+        for (Object[] row : estateRepository.findVersionsByChocolateId(id)) {
+            long estateId = ((Number) row[0]).longValue();
+            long version = ((Number) row[1]).longValue();
+            entityVersions.recordAfterCommit(Estate.class, estateId, version);
+            catalogOutbox.record(CatalogEvent.Type.UPDATED, Estate.class, estateId, version);
+        }
+        entityVersions.forgetAfterCommit(Chocolate.class, id);
+        cocoaIndex.removeAfterCommit(id);
+        countryStatsCache.invalidateAfterCommit();
+        catalogGraph.rebuildAfterCommit();
+        catalogSnapshot.rebuildAfterCommit();
+        return true;
+    }
+
+//    Without since, the whole catalog; with it, the chocolates changed or
+//    deleted after that version. Either way the response carries the version
+//    to pass next time. Read from the primary, since a lagging replica would
+//    hand out a version it hasn't caught up to.
+    @Transactional
+    public ChocolateChanges findChangesSince(Long since){
+        long version = chocolateChangeLog.safeVersion(chocolateChangeRepository.findLatestId());
+        if (since == null) {
+            return new ChocolateChanges(version, chocolateRepository.findAllWithEstates(), List.of());
+        }
+        if (version <= since) {
+            return new ChocolateChanges(since, List.of(), List.of());
+        }
+        return new ChocolateChanges(
+                version,
+                chocolateRepository.findAllWithEstatesChangedBetween(since, version),
+                chocolateChangeRepository.findDeletedChocolateIds(since, version)
+        );
+    }
+
+    private Set<Long> estateIds(List<Estate> estates){
+        Set<Long> ids = new HashSet<>();
+        if (estates != null) {
+            for (Estate estate : estates) {
+                ids.add(estate.getId());
+            }
+        }
+        return ids;
     }
 
-    public void deleteChocolate(Long id){
-        chocolateRepository.deleteById(id);
+//    Estate JSON lists its chocolates, so a chocolate change has to move on
+//    the version of every estate it was or is now linked to, and tell
+//    listeners about each of them
+    private void markEstatesChanged(Set<Long> estateIds){
+        if (estateIds.isEmpty()) {
+            return;
+        }
+        estateRepository.incrementVersions(estateIds);
+        for (Object[] row : estateRepository.findVersionsByIds(estateIds)) {
+            entityVersions.recordAfterCommit(Estate.class, (Long) row[0], (Long) row[1]);
+            catalogOutbox.record(CatalogEvent.Type.UPDATED, Estate.class, (Long) row[0], (Long) row[1]);
+        }
     }
 
 
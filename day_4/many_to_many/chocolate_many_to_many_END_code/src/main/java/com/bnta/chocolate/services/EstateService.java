@@ -1,48 +1,181 @@
 package com.bnta.chocolate.services;
 
+import com.bnta.chocolate.components.CatalogGraph;
+import com.bnta.chocolate.components.CatalogOutbox;
+import com.bnta.chocolate.components.CatalogSnapshot;
+import com.bnta.chocolate.components.ChocolateChangeLog;
+import com.bnta.chocolate.components.CocoaIndex;
+import com.bnta.chocolate.components.CountryStatsCache;
+import com.bnta.chocolate.components.EntityVersions;
+import com.bnta.chocolate.config.ReplicaRead;
+import com.bnta.chocolate.models.CatalogEvent;
+import com.bnta.chocolate.models.CatalogPage;
 import com.bnta.chocolate.models.Chocolate;
+import com.bnta.chocolate.models.CountryStats;
 import com.bnta.chocolate.models.Estate;
+import com.bnta.chocolate.repositories.ChocolateRepository;
 import com.bnta.chocolate.repositories.EstateRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Service
 public class EstateService {
 
+    private static final Map<String, String> PAGE_COLUMNS = CatalogPageQuery.columns(
+            "id", "id", "name", "name", "country", "country");
+
     @Autowired
     EstateRepository estateRepository;
 
+    @Autowired
+    ChocolateRepository chocolateRepository;
+
+    @Autowired
+    EntityVersions entityVersions;
+
+    @Autowired
+    CocoaIndex cocoaIndex;
+
+    @Autowired
+    ChocolateChangeLog chocolateChangeLog;
+
+    @Autowired
+    CountryStatsCache countryStatsCache;
+
+    @Autowired
+    CatalogGraph catalogGraph;
+
+    @Autowired
+    CatalogSnapshot catalogSnapshot;
+
+    @Autowired
+    CatalogOutbox catalogOutbox;
+
+    @Autowired
+    NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @ReplicaRead
+    @Transactional(readOnly = true)
     public List<Estate> findAllEstates(){
-        return estateRepository.findAll();
+        return estateRepository.findAllWithChocolates();
     }
 
+    @ReplicaRead
+    @Transactional(readOnly = true)
     public Estate findEstate(Long id){
-        return estateRepository.findById(id).get();
+        return estateRepository.findWithChocolatesById(id).get();
     }
 
-    public void saveEstate(Estate estate){
-        estateRepository.save(estate);
+//    One page of estates with just the fields asked for; chocolates are only
+//    read, for this page's estates alone, when asked for
+    @ReplicaRead
+    @Transactional(readOnly = true)
+    public CatalogPage findEstatePage(Integer page, Integer size, String sort, String fields){
+        CatalogPageQuery query = new CatalogPageQuery("estates", PAGE_COLUMNS, "chocolates", fields, sort, page, size);
+        CatalogPage estates = query.fetch(namedParameterJdbcTemplate, null, new MapSqlParameterSource());
+        if (query.wants("chocolates")) {
+            Map<Long, List<Map<String, Object>>> chocolates = new HashMap<>();
+            List<Long> ids = CatalogPageQuery.ids(estates);
+            if (!ids.isEmpty()) {
+                namedParameterJdbcTemplate.query("SELECT ce.estate_id, c.id, c.name, c.cocoa_percentage FROM chocolates_estates ce "
+                        + "JOIN chocolates c ON c.id = ce.chocolate_id AND c.deleted = FALSE "
+                        + "WHERE ce.estate_id IN (:ids) ORDER BY c.id",
+                        Map.of("ids", ids), (RowCallbackHandler) row -> {
+                            Map<String, Object> chocolate = new LinkedHashMap<>();
+                            chocolate.put("id", row.getLong("id"));
+                            chocolate.put("name", row.getString("name"));
+                            chocolate.put("cocoaPercentage", row.getInt("cocoa_percentage"));
+                            chocolates.computeIfAbsent(row.getLong("estate_id"), key -> new ArrayList<>()).add(chocolate);
+                        });
+            }
+            query.attach(estates, chocolates);
+        }
+        return estates;
     }
 
-    public void removeEstatesFromChocolates(Long id){
-        Estate foundEstate = estateRepository.getById(id);
-        for (Chocolate chocolate : foundEstate.getChocolates()) {
-            chocolate.removeEstate(foundEstate);
-        }
+    @Transactional
+    public Estate saveEstate(Estate estate){
+        Estate savedEstate = estateRepository.save(estate);
+        catalogOutbox.record(CatalogEvent.Type.CREATED, savedEstate);
+        countryStatsCache.invalidateAfterCommit();
+        catalogGraph.rebuildAfterCommit();
+        catalogSnapshot.rebuildAfterCommit();
+        return savedEstate;
     }
 
-    public void deleteEstate(Long id){
-        estateRepository.deleteById(id);
+//    Chocolates, estates and average cocoa percentage per estate country
+    public List<CountryStats> findCountryStats(){
+        return countryStatsCache.getStats();
     }
 
+//    A fixed handful of statements however many chocolates come from the
+//    estate: log the change, bump the linked chocolates' versions, read them
+//    back, delete the estate and write the outbox row. Hibernate clears the
+//    estate's join rows itself as part of the bulk delete. Nothing is loaded
+//    into the persistence context.
+    @Transactional
+    public boolean deleteEstate(Long id){
+        chocolateRepository.incrementVersionsByEstateId(id, chocolateChangeLog.nextChangeId());
+        for (Object[] row : chocolateRepository.findVersionsByEstateId(id)) {
+            entityVersions.recordAfterCommit(Chocolate.class, (Long) row[0], (Long) row[1]);
+            catalogOutbox.record(CatalogEvent.Type.UPDATED, Chocolate.class, (Long) row[0], (Long) row[1]);
+        }
+        if (estateRepository.deleteEstateById(id) == 0) {
+            return false;
+        }
+        catalogOutbox.record(CatalogEvent.Type.DELETED, Estate.class, id, null);
+        entityVersions.forgetAfterCommit(Estate.class, id);
+        cocoaIndex.removeEstateAfterCommit(id);
+        countryStatsCache.invalidateAfterCommit();
+        catalogGraph.rebuildAfterCommit();
+        catalogSnapshot.rebuildAfterCommit();
+        return true;
+    }
+
+//    Links are changed from the chocolate side, which owns the join table;
+//    the chocolates listed here were never written, so they are no longer
+//    loaded or copied across either. Only the name and country that differ
+//    are written, and a PUT that changes neither writes nothing.
+    @Transactional
     public void updateEstate(Estate estate, Long id){
         Estate estateToUpdate = estateRepository.findById(id).get();
+        boolean renamed = !Objects.equals(estateToUpdate.getName(), estate.getName());
+        boolean moved = !Objects.equals(estateToUpdate.getCountry(), estate.getCountry());
+        if (!renamed && !moved) {
+            return;
+        }
         estateToUpdate.setName(estate.getName());
         estateToUpdate.setCountry(estate.getCountry());
-        estateToUpdate.setChocolates(estate.getChocolates());
         estateRepository.save(estateToUpdate);
+        cocoaIndex.updateEstateAfterCommit(estateToUpdate);
+        catalogOutbox.record(CatalogEvent.Type.UPDATED, estateToUpdate);
+        if (moved) {
+            countryStatsCache.invalidateAfterCommit();
+        }
+        markChocolatesChanged(id);
+        catalogSnapshot.rebuildAfterCommit();
+    }
+
+//    Chocolate JSON embeds each estate's name and country, so renaming an
+//    estate has to move on the version of its chocolates. Set-based, like
+//    the delete, so the chocolates are never loaded.
+    private void markChocolatesChanged(Long estateId){
+        chocolateRepository.incrementVersionsByEstateId(estateId, chocolateChangeLog.nextChangeId());
+        for (Object[] row : chocolateRepository.findVersionsByEstateId(estateId)) {
+            entityVersions.recordAfterCommit(Chocolate.class, (Long) row[0], (Long) row[1]);
+            catalogOutbox.record(CatalogEvent.Type.UPDATED, Chocolate.class, (Long) row[0], (Long) row[1]);
+        }
     }
 
 }
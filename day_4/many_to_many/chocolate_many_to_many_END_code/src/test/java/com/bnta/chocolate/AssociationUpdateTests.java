@@ -0,0 +1,133 @@
+package com.bnta.chocolate;
+
+import com.bnta.chocolate.models.Chocolate;
+import com.bnta.chocolate.models.Estate;
+import com.bnta.chocolate.repositories.ChocolateRepository;
+import com.bnta.chocolate.repositories.EstateRepository;
+import com.bnta.chocolate.services.ChocolateService;
+import com.bnta.chocolate.services.EstateService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:association_updates;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class AssociationUpdateTests {
+
+	@Autowired
+	ChocolateService chocolateService;
+
+	@Autowired
+	EstateService estateService;
+
+	@Autowired
+	ChocolateRepository chocolateRepository;
+
+	@Autowired
+	EstateRepository estateRepository;
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void onlyChangedLinksAreWritten() {
+		List<Estate> estates = estates(3);
+		Chocolate chocolate = chocolateWith("Diffed", estates.get(0), estates.get(1));
+		long version = chocolateRepository.findById(chocolate.getId()).get().getVersion();
+
+		chocolateService.updateChocolate(request("Diffed", estates.get(1), estates.get(2)), chocolate.getId());
+
+		assertThat(linkedEstates(chocolate)).containsExactlyInAnyOrder(estates.get(1).getId(), estates.get(2).getId());
+		assertThat(chocolateRepository.findById(chocolate.getId()).get().getVersion()).isGreaterThan(version);
+	}
+
+	@Test
+	void unchangedPutsWriteNothing() {
+		List<Estate> estates = estates(2);
+		Chocolate chocolate = chocolateWith("Unchanged", estates.get(0), estates.get(1));
+		long version = chocolateRepository.findById(chocolate.getId()).get().getVersion();
+
+//		Just the read of the chocolate and its estates
+		Statistics statistics = clearedStatistics();
+		chocolateService.updateChocolate(request("Unchanged", estates.get(1), estates.get(0)), chocolate.getId());
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(chocolateRepository.findById(chocolate.getId()).get().getVersion()).isEqualTo(version);
+
+		statistics = clearedStatistics();
+		estateService.updateEstate(new Estate(estates.get(0).getName(), estates.get(0).getCountry()), estates.get(0).getId());
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+	@Test
+	void statementCountDoesNotGrowWithLinks() {
+		List<Estate> estates = estates(51);
+		Chocolate few = chocolateWith("Few Estates", estates.get(0));
+		Chocolate many = chocolateWith("Many Estates", estates.subList(0, 50).toArray(new Estate[0]));
+
+		List<Estate> fewPlusOne = List.of(estates.get(0), estates.get(50));
+		List<Estate> manyPlusOne = new ArrayList<>(estates);
+
+//		The read, the change log entry, the chocolate's own row, one insert
+//		into the join table, the added estate and the estates' versions, and
+//		now and then a fetch of the next block of change ids
+		assertThat(statementsToUpdate(few, fewPlusOne)).isLessThanOrEqualTo(8);
+		assertThat(statementsToUpdate(many, manyPlusOne)).isLessThanOrEqualTo(8);
+		assertThat(linkedEstates(many)).hasSize(51);
+	}
+
+	private long statementsToUpdate(Chocolate chocolate, List<Estate> estates) {
+		Chocolate request = new Chocolate(chocolate.getName(), chocolate.getCocoaPercentage());
+		request.setEstates(estates);
+		Statistics statistics = clearedStatistics();
+		chocolateService.updateChocolate(request, chocolate.getId());
+		return statistics.getPrepareStatementCount();
+	}
+
+	private Statistics clearedStatistics() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		return statistics;
+	}
+
+	private List<Estate> estates(int count) {
+		List<Estate> estates = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			estates.add(new Estate("Diff Estate " + i, "Ecuador"));
+		}
+		return estateRepository.saveAll(estates);
+	}
+
+	private Chocolate chocolateWith(String name, Estate... estates) {
+		return chocolateService.saveChocolate(request(name, estates));
+	}
+
+	private Chocolate request(String name, Estate... estates) {
+		Chocolate chocolate = new Chocolate(name, 70);
+		for (Estate estate : estates) {
+			chocolate.addEstate(estate);
+		}
+		return chocolate;
+	}
+
+	private List<Long> linkedEstates(Chocolate chocolate) {
+		return jdbcTemplate.queryForList(
+				"SELECT estate_id FROM chocolates_estates WHERE chocolate_id = ?", Long.class, chocolate.getId());
+	}
+
+}
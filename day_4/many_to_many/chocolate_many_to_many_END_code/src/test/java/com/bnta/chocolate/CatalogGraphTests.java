@@ -0,0 +1,93 @@
+package com.bnta.chocolate;
+
+import com.bnta.chocolate.components.CatalogGraph;
+import com.bnta.chocolate.models.Chocolate;
+import com.bnta.chocolate.models.Estate;
+import com.bnta.chocolate.services.ChocolateService;
+import com.bnta.chocolate.services.EstateService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:catalog_graph;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa"
+})
+@AutoConfigureMockMvc
+class CatalogGraphTests {
+
+	@Autowired
+	CatalogGraph catalogGraph;
+
+	@Autowired
+	ChocolateService chocolateService;
+
+	@Autowired
+	EstateService estateService;
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	MockMvc mockMvc;
+
+	@Test
+	void snapshotMatchesTheJoinTable() {
+		CatalogGraph.Snapshot graph = catalogGraph.getSnapshot();
+		for (Long chocolateId : jdbcTemplate.queryForList("SELECT id FROM chocolates", Long.class)) {
+			assertThat(graph.estatesOf(chocolateId)).containsExactlyElementsOf(jdbcTemplate.queryForList(
+					"SELECT DISTINCT estate_id FROM chocolates_estates WHERE chocolate_id = ? ORDER BY estate_id", Long.class, chocolateId));
+		}
+		for (Long estateId : jdbcTemplate.queryForList("SELECT id FROM estates", Long.class)) {
+			assertThat(graph.chocolatesOf(estateId)).containsExactlyElementsOf(jdbcTemplate.queryForList(
+					"SELECT DISTINCT chocolate_id FROM chocolates_estates WHERE estate_id = ? ORDER BY chocolate_id", Long.class, estateId));
+		}
+	}
+
+	@Test
+	void writesAreRebuiltIntoTheGraph() throws Exception {
+		Estate first = estateService.saveEstate(new Estate("Graph Farm", "Peru"));
+		Estate second = estateService.saveEstate(new Estate("Other Graph Farm", "Peru"));
+		Chocolate bridge = new Chocolate("Bridge", 70);
+		bridge.addEstate(first);
+		bridge.addEstate(second);
+		chocolateService.saveChocolate(bridge);
+		Chocolate leaf = new Chocolate("Leaf", 70);
+		leaf.addEstate(second);
+		chocolateService.saveChocolate(leaf);
+
+		CatalogGraph.Snapshot graph = awaitGraph(snapshot -> snapshot.hasChocolate(leaf.getId()));
+		assertThat(graph.estatesOf(bridge.getId())).containsExactly(first.getId(), second.getId());
+		assertThat(graph.chocolatesOf(second.getId())).containsExactly(bridge.getId(), leaf.getId());
+		assertThat(graph.relatedChocolates(leaf.getId())).containsExactly(bridge.getId());
+		assertThat(graph.relatedEstates(first.getId())).containsExactly(second.getId());
+
+		mockMvc.perform(get("/chocolates/" + leaf.getId() + "/related")).andExpect(status().isOk());
+		mockMvc.perform(get("/estates/" + first.getId() + "/chocolates")).andExpect(status().isOk());
+
+		chocolateService.deleteChocolate(bridge.getId());
+		graph = awaitGraph(snapshot -> !snapshot.hasChocolate(bridge.getId()));
+		assertThat(graph.relatedEstates(first.getId())).isEmpty();
+		mockMvc.perform(get("/chocolates/" + bridge.getId() + "/estates")).andExpect(status().isNotFound());
+	}
+
+	private CatalogGraph.Snapshot awaitGraph(Predicate<CatalogGraph.Snapshot> condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5_000;
+		while (!condition.test(catalogGraph.getSnapshot())) {
+			assertThat(System.currentTimeMillis()).isLessThan(deadline);
+			Thread.sleep(10);
+		}
+		return catalogGraph.getSnapshot();
+	}
+
+}
@@ -0,0 +1,143 @@
+package com.bnta.chocolate;
+
+import com.bnta.chocolate.models.ImportFormat;
+import com.bnta.chocolate.services.ChocolateImportService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:catalog_pages;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa"
+})
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class CatalogPageTests {
+
+	private static final int CHOCOLATES = 2_000;
+
+	@Autowired
+	MockMvc mockMvc;
+
+	@Autowired
+	ChocolateImportService chocolateImportService;
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	ObjectMapper objectMapper;
+
+	@BeforeAll
+	void importCatalog() {
+		StringBuilder feed = new StringBuilder("name,cocoa_percentage,estate_name,estate_country\n");
+		for (int i = 0; i < CHOCOLATES; i++) {
+			feed.append("Paged ").append(i).append(',').append(i % 101)
+					.append(",Page Farm ").append(i % 40).append(',').append(i % 2 == 0 ? "Ghana" : "Peru").append('\n');
+		}
+		assertThat(chocolateImportService.importChocolates("paging",
+				new ByteArrayInputStream(feed.toString().getBytes(StandardCharsets.UTF_8)), ImportFormat.CSV).isCompleted()).isTrue();
+	}
+
+	@Test
+	void pagesFollowTheSortWithoutGapsOrOverlap() throws Exception {
+		List<Long> expected = jdbcTemplate.queryForList(
+				"SELECT id FROM chocolates ORDER BY cocoa_percentage DESC, id DESC", Long.class);
+
+		JsonNode first = getJson("/chocolates?size=25&sort=cocoaPercentage,desc");
+		JsonNode second = getJson("/chocolates?page=1&size=25&sort=cocoaPercentage,desc");
+
+		List<Long> paged = ids(first);
+		paged.addAll(ids(second));
+		assertThat(paged).containsExactlyElementsOf(expected.subList(0, 50));
+		assertThat(first.get("hasNext").asBoolean()).isTrue();
+
+		JsonNode last = getJson("/chocolates?page=" + (expected.size() / 25) + "&size=25");
+		assertThat(last.get("hasNext").asBoolean()).isFalse();
+	}
+
+	@Test
+	void onlyTheFieldsAskedForAreReturned() throws Exception {
+		JsonNode names = getJson("/chocolates?size=10&sort=name&fields=name");
+		for (JsonNode item : names.get("items")) {
+			assertThat(fieldNames(item)).containsExactly("id", "name");
+		}
+
+		JsonNode withEstates = getJson("/chocolates?size=10&min=50&max=60&fields=cocoaPercentage,estates");
+		for (JsonNode item : withEstates.get("items")) {
+			assertThat(fieldNames(item)).containsExactly("id", "cocoaPercentage", "estates");
+			assertThat(item.get("cocoaPercentage").asInt()).isBetween(50, 60);
+			assertThat(item.get("estates")).isNotEmpty();
+			assertThat(fieldNames(item.get("estates").get(0))).containsExactly("id", "name", "country");
+		}
+
+		JsonNode estates = getJson("/estates?size=5&sort=country,desc&fields=country");
+		for (JsonNode item : estates.get("items")) {
+			assertThat(fieldNames(item)).containsExactly("id", "country");
+		}
+	}
+
+	@Test
+	void payloadGrowsWithThePageNotTheCatalog() throws Exception {
+		int small = getBytes("/chocolates?size=10&fields=name,estates");
+		int large = getBytes("/chocolates?size=100&fields=name,estates");
+		int everything = getBytes("/chocolates");
+
+		assertThat(large).isBetween(small * 5, small * 15);
+		assertThat(everything).isGreaterThan(large * 10);
+	}
+
+	@Test
+	void badPageRequestsAreRejected() throws Exception {
+		mockMvc.perform(get("/chocolates?fields=version")).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/chocolates?sort=version")).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/chocolates?sort=name,sideways")).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/chocolates?size=0")).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/estates?size=101")).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/estates?page=-1")).andExpect(status().isBadRequest());
+	}
+
+	private JsonNode getJson(String path) throws Exception {
+		return objectMapper.readTree(mockMvc.perform(get(path))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsByteArray());
+	}
+
+	private int getBytes(String path) throws Exception {
+		return mockMvc.perform(get(path))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsByteArray().length;
+	}
+
+	private static List<Long> ids(JsonNode page) {
+		List<Long> ids = new ArrayList<>();
+		for (JsonNode item : page.get("items")) {
+			ids.add(item.get("id").asLong());
+		}
+		return ids;
+	}
+
+	private static List<String> fieldNames(JsonNode item) {
+		List<String> names = new ArrayList<>();
+		item.fieldNames().forEachRemaining(names::add);
+		return names;
+	}
+
+}
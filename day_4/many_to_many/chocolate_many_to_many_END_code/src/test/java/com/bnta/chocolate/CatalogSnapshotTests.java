@@ -0,0 +1,132 @@
+package com.bnta.chocolate;
+
+import com.bnta.chocolate.components.CatalogSnapshot;
+import com.bnta.chocolate.models.Chocolate;
+import com.bnta.chocolate.models.Estate;
+import com.bnta.chocolate.services.ChocolateService;
+import com.bnta.chocolate.services.EstateService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:catalog_snapshot;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureMockMvc
+class CatalogSnapshotTests {
+
+	@Autowired
+	CatalogSnapshot catalogSnapshot;
+
+	@Autowired
+	ChocolateService chocolateService;
+
+	@Autowired
+	EstateService estateService;
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	ObjectMapper objectMapper;
+
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	MockMvc mockMvc;
+
+	@Test
+	void listsAreServedWithoutTheDatabase() throws Exception {
+		awaitCaughtUp();
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		JsonNode chocolates = getJson("/chocolates");
+		JsonNode estates = getJson("/estates");
+
+		assertThat(statistics.getConnectCount()).isZero();
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+		assertThat(ids(chocolates)).containsExactlyInAnyOrderElementsOf(
+				jdbcTemplate.queryForList("SELECT id FROM chocolates", Long.class));
+		assertThat(ids(estates)).containsExactlyInAnyOrderElementsOf(
+				jdbcTemplate.queryForList("SELECT id FROM estates", Long.class));
+	}
+
+	@Test
+	void writesReachTheSnapshot() throws Exception {
+		Estate estate = estateService.saveEstate(new Estate("Snapshot Farm", "Belize"));
+		Chocolate chocolate = new Chocolate("Snapshot Bar", 77);
+		chocolate.addEstate(estate);
+		chocolateService.saveChocolate(chocolate);
+
+		awaitCaughtUp();
+		JsonNode served = find(getJson("/chocolates"), chocolate.getId());
+		assertThat(served.get("name").asText()).isEqualTo("Snapshot Bar");
+		assertThat(served.get("cocoaPercentage").asInt()).isEqualTo(77);
+		assertThat(served.get("estates").get(0).get("name").asText()).isEqualTo("Snapshot Farm");
+		assertThat(served.has("version")).isFalse();
+		assertThat(find(getJson("/estates"), estate.getId()).get("chocolates").get(0).get("id").asLong())
+				.isEqualTo(chocolate.getId());
+
+		Estate renamed = new Estate("Renamed Snapshot Farm", "Belize");
+		estateService.updateEstate(renamed, estate.getId());
+		awaitCaughtUp();
+		assertThat(find(getJson("/chocolates"), chocolate.getId()).get("estates").get(0).get("name").asText())
+				.isEqualTo("Renamed Snapshot Farm");
+	}
+
+	private JsonNode getJson(String path) throws Exception {
+		MvcResult result = mockMvc.perform(get(path))
+				.andExpect(status().isOk())
+				.andExpect(header().exists(CatalogSnapshot.STALENESS_HEADER))
+				.andReturn();
+		return objectMapper.readTree(result.getResponse().getContentAsByteArray());
+	}
+
+	private void awaitCaughtUp() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5_000;
+		while (catalogSnapshot.getStalenessMillis() != 0) {
+			assertThat(System.currentTimeMillis()).isLessThan(deadline);
+			Thread.sleep(10);
+		}
+	}
+
+	private static List<Long> ids(JsonNode list) {
+		List<Long> ids = new ArrayList<>();
+		for (JsonNode item : list) {
+			ids.add(item.get("id").asLong());
+		}
+		return ids;
+	}
+
+	private static JsonNode find(JsonNode list, Long id) {
+		for (JsonNode item : list) {
+			if (item.get("id").asLong() == id) {
+				return item;
+			}
+		}
+		throw new AssertionError("No entry with id " + id);
+	}
+
+}
@@ -0,0 +1,113 @@
+package com.bnta.chocolate;
+
+import com.bnta.chocolate.models.Chocolate;
+import com.bnta.chocolate.models.ChocolateChanges;
+import com.bnta.chocolate.models.Estate;
+import com.bnta.chocolate.services.ChocolateService;
+import com.bnta.chocolate.services.EstateService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:change_sync;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa"
+})
+@AutoConfigureMockMvc
+class ChangeSyncTests {
+
+	@Autowired
+	MockMvc mockMvc;
+
+	@Autowired
+	ObjectMapper objectMapper;
+
+	@Autowired
+	ChocolateService chocolateService;
+
+	@Autowired
+	EstateService estateService;
+
+	@Test
+	void postingAChocolateReturnsItWithItsLocation() throws Exception {
+		Estate estate = estateService.saveEstate(new Estate("Posted Estate", "Belize"));
+		String body = "{\"name\":\"Posted\",\"cocoaPercentage\":64,\"estates\":[{\"id\":" + estate.getId() + "}]}";
+
+		MvcResult result = mockMvc.perform(post("/chocolates").contentType(MediaType.APPLICATION_JSON).content(body))
+				.andExpect(status().isCreated())
+				.andReturn();
+
+		JsonNode created = objectMapper.readTree(result.getResponse().getContentAsString());
+		assertThat(created.isObject()).isTrue();
+		assertThat(result.getResponse().getHeader(HttpHeaders.LOCATION)).endsWith("/chocolates/" + created.get("id").asLong());
+		assertThat(result.getResponse().getHeader(HttpHeaders.ETAG)).isNotNull();
+		assertThat(created.get("estates").get(0).get("name").asText()).isEqualTo("Posted Estate");
+	}
+
+	@Test
+	void postingAnEstateReturnsItWithItsLocation() throws Exception {
+		MvcResult result = mockMvc.perform(post("/estates").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"name\":\"New Estate\",\"country\":\"Peru\"}"))
+				.andExpect(status().isCreated())
+				.andReturn();
+
+		JsonNode created = objectMapper.readTree(result.getResponse().getContentAsString());
+		assertThat(created.get("name").asText()).isEqualTo("New Estate");
+		assertThat(result.getResponse().getHeader(HttpHeaders.LOCATION)).endsWith("/estates/" + created.get("id").asLong());
+	}
+
+	@Test
+	void changesSinceAVersionOnlyIncludeLaterWrites() {
+		ChocolateChanges full = chocolateService.findChangesSince(null);
+		assertThat(full.getChanged()).isNotEmpty();
+
+		Chocolate kept = chocolateService.saveChocolate(new Chocolate("Kept", 58));
+		Chocolate removed = chocolateService.saveChocolate(new Chocolate("Removed", 59));
+		ChocolateChanges afterCreates = chocolateService.findChangesSince(full.getVersion());
+		assertThat(afterCreates.getChanged()).extracting(Chocolate::getId).containsExactlyInAnyOrder(kept.getId(), removed.getId());
+		assertThat(afterCreates.getVersion()).isGreaterThan(full.getVersion());
+
+		chocolateService.deleteChocolate(removed.getId());
+		Chocolate renamed = new Chocolate("Kept And Renamed", 58);
+		renamed.setEstates(List.of());
+		chocolateService.updateChocolate(renamed, kept.getId());
+
+		ChocolateChanges afterEdits = chocolateService.findChangesSince(afterCreates.getVersion());
+		assertThat(afterEdits.getChanged()).extracting(Chocolate::getName).containsExactly("Kept And Renamed");
+		assertThat(afterEdits.getDeleted()).containsExactly(removed.getId());
+
+		ChocolateChanges nothingNew = chocolateService.findChangesSince(afterEdits.getVersion());
+		assertThat(nothingNew.getChanged()).isEmpty();
+		assertThat(nothingNew.getDeleted()).isEmpty();
+		assertThat(nothingNew.getVersion()).isEqualTo(afterEdits.getVersion());
+	}
+
+	@Test
+	void renamingAnEstateChangesItsChocolates() {
+		Estate estate = estateService.saveEstate(new Estate("Before", "Ghana"));
+		Chocolate chocolate = new Chocolate("Linked", 61);
+		chocolate.addEstate(estate);
+		chocolateService.saveChocolate(chocolate);
+		long version = chocolateService.findChangesSince(null).getVersion();
+
+		estateService.updateEstate(new Estate("After", "Ghana"), estate.getId());
+
+		assertThat(chocolateService.findChangesSince(version).getChanged())
+				.extracting(Chocolate::getId).containsExactly(chocolate.getId());
+	}
+
+}
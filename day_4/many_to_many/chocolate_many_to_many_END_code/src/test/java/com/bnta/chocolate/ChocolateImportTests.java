@@ -0,0 +1,158 @@
+package com.bnta.chocolate;
+
+import com.bnta.chocolate.components.CocoaIndex;
+import com.bnta.chocolate.models.Chocolate;
+import com.bnta.chocolate.models.ImportFormat;
+import com.bnta.chocolate.models.ImportReport;
+import com.bnta.chocolate.repositories.ImportCheckpointRepository;
+import com.bnta.chocolate.services.ChocolateImportService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:imports;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"app.import.chunk-size=3"
+})
+@AutoConfigureMockMvc
+class ChocolateImportTests {
+
+	@Autowired
+	ChocolateImportService chocolateImportService;
+
+	@Autowired
+	ImportCheckpointRepository importCheckpointRepository;
+
+	@Autowired
+	CocoaIndex cocoaIndex;
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	MockMvc mockMvc;
+
+	@Test
+	void ndjsonImportCreatesChocolatesAndReusesEstates() {
+		int estatesBefore = count("SELECT COUNT(*) FROM estates");
+		StringBuilder feed = new StringBuilder();
+		for (int i = 0; i < 8; i++) {
+			feed.append("{\"name\":\"Imported ").append(i).append("\",\"cocoaPercentage\":9").append(i % 2)
+					.append(",\"estates\":[{\"name\":\"Rabot Estate\",\"country\":\"St Lucia\"},")
+					.append("{\"name\":\"Import Farm\",\"country\":\"Peru\"}]}\n");
+		}
+
+		ImportReport report = run("ndjson-feed", feed.toString(), ImportFormat.NDJSON);
+
+		assertThat(report.isCompleted()).isTrue();
+		assertThat(report.getRecordsImported()).isEqualTo(8);
+		assertThat(report.getChocolatesCreated()).isEqualTo(8);
+		assertThat(report.getEstatesCreated()).isEqualTo(1);
+		assertThat(count("SELECT COUNT(*) FROM estates")).isEqualTo(estatesBefore + 1);
+		assertThat(count("SELECT COUNT(*) FROM chocolates_estates ce JOIN chocolates c ON c.id = ce.chocolate_id "
+				+ "WHERE c.name LIKE 'Imported %'")).isEqualTo(16);
+		assertThat(cocoaIndex.findBetween(90, 91)).extracting(Chocolate::getName).contains("Imported 0", "Imported 7");
+		assertThat(importCheckpointRepository.existsById("ndjson-feed")).isFalse();
+	}
+
+	@Test
+	void csvImportGroupsRowsAndReplacesEstates() {
+		String feed = "name,cocoa_percentage,estate_name,estate_country\n"
+				+ "\"Csv, Dark\",85,Csv Farm,Ghana\n"
+				+ "\"Csv, Dark\",85,Rabot Estate,St Lucia\n"
+				+ "Csv Milk,35,,\n";
+		ImportReport created = run("csv-feed", feed, ImportFormat.CSV);
+		assertThat(created.isCompleted()).isTrue();
+		assertThat(created.getChocolatesCreated()).isEqualTo(2);
+		assertThat(linksOf("Csv, Dark")).containsExactlyInAnyOrder("Csv Farm", "Rabot Estate");
+
+		String updatedFeed = "name,cocoa_percentage,estate_name,estate_country\n"
+				+ "\"Csv, Dark\",86,Csv Farm,Ghana\n";
+		ImportReport updated = run("csv-feed-again", updatedFeed, ImportFormat.CSV);
+		assertThat(updated.getChocolatesUpdated()).isEqualTo(1);
+		assertThat(linksOf("Csv, Dark")).containsExactly("Csv Farm");
+		assertThat(count("SELECT cocoa_percentage FROM chocolates WHERE name = 'Csv, Dark'")).isEqualTo(86);
+	}
+
+	@Test
+	void failedImportResumesAfterTheLastCommittedChunk() {
+		StringBuilder good = new StringBuilder();
+		for (int i = 0; i < 10; i++) {
+			good.append("{\"name\":\"Resumed ").append(i).append("\",\"cocoaPercentage\":50}\n");
+		}
+		String broken = good.toString().replace("{\"name\":\"Resumed 7\"", "{\"name\":");
+
+		ImportReport failed = run("resumable", broken, ImportFormat.NDJSON);
+		assertThat(failed.isCompleted()).isFalse();
+		assertThat(failed.getError()).startsWith("Line 8");
+		assertThat(failed.getRecordsImported()).isEqualTo(6);
+		assertThat(count("SELECT COUNT(*) FROM chocolates WHERE name LIKE 'Resumed %'")).isEqualTo(6);
+
+		ImportReport resumed = run("resumable", good.toString(), ImportFormat.NDJSON);
+		assertThat(resumed.isCompleted()).isTrue();
+		assertThat(resumed.getResumedFrom()).isEqualTo(6);
+		assertThat(resumed.getRecordsImported()).isEqualTo(4);
+		assertThat(count("SELECT COUNT(*) FROM chocolates WHERE name LIKE 'Resumed %'")).isEqualTo(10);
+	}
+
+	@Test
+	void importEndpointStreamsTheBody() throws Exception {
+		mockMvc.perform(post("/chocolates/import").param("id", "endpoint")
+						.contentType(ImportFormat.NDJSON_VALUE)
+						.content("{\"name\":\"Posted Feed\",\"cocoaPercentage\":66}\n"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.recordsImported").value(1))
+				.andExpect(jsonPath("$.completed").value(true));
+
+		mockMvc.perform(post("/chocolates/import").param("id", "endpoint-bad")
+						.contentType(ImportFormat.CSV_VALUE)
+						.content("no,header\n"))
+				.andExpect(status().isUnprocessableEntity());
+	}
+
+//	Run with: ./mvnw test -Dtest=ChocolateImportTests -Dbenchmark=true
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	void importThroughput() {
+		StringBuilder feed = new StringBuilder("name,cocoa_percentage,estate_name,estate_country\n");
+		for (int i = 0; i < 50_000; i++) {
+			feed.append("Benchmark ").append(i).append(',').append(i % 101)
+					.append(",Benchmark Farm ").append(i % 500).append(",Ghana\n");
+		}
+		ImportReport report = run("benchmark", feed.toString(), ImportFormat.CSV);
+		System.out.printf("imported %d chocolates in %d ms (%.0f records/s)%n",
+				report.getRecordsImported(), report.getMillis(), report.getRecordsPerSecond());
+		assertThat(report.isCompleted()).isTrue();
+	}
+
+	private ImportReport run(String importId, String feed, ImportFormat format) {
+		return chocolateImportService.importChocolates(
+				importId, new ByteArrayInputStream(feed.getBytes(StandardCharsets.UTF_8)), format);
+	}
+
+	private List<String> linksOf(String chocolate) {
+		return jdbcTemplate.queryForList("SELECT e.name FROM estates e "
+				+ "JOIN chocolates_estates ce ON ce.estate_id = e.id "
+				+ "JOIN chocolates c ON c.id = ce.chocolate_id WHERE c.name = ?", String.class, chocolate);
+	}
+
+	private int count(String sql) {
+		return jdbcTemplate.queryForObject(sql, Integer.class);
+	}
+
+}
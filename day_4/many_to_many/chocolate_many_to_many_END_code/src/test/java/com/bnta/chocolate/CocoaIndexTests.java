@@ -0,0 +1,103 @@
+package com.bnta.chocolate;
+
+import com.bnta.chocolate.components.CocoaIndex;
+import com.bnta.chocolate.models.Chocolate;
+import com.bnta.chocolate.models.Estate;
+import com.bnta.chocolate.repositories.ChocolateRepository;
+import com.bnta.chocolate.services.ChocolateService;
+import com.bnta.chocolate.services.EstateService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:cocoa_index;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class CocoaIndexTests {
+
+	@Autowired
+	CocoaIndex cocoaIndex;
+
+	@Autowired
+	ChocolateService chocolateService;
+
+	@Autowired
+	EstateService estateService;
+
+	@Autowired
+	ChocolateRepository chocolateRepository;
+
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void indexMatchesTheDatabase() {
+		assertThat(cocoaIndex.isLoaded()).isTrue();
+		for (int percentage = -1; percentage <= 101; percentage++) {
+			assertThat(ids(cocoaIndex.findGreaterThan(percentage)))
+					.containsExactlyInAnyOrderElementsOf(ids(chocolateRepository.findByCocoaPercentageGreaterThan(percentage)));
+		}
+	}
+
+	@Test
+	void rangeQueriesDoNotTouchTheDatabase() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		List<Chocolate> found = chocolateService.findAllChocolatesInCocoaRange(55, 72);
+		chocolateService.findAllChocolatesOverCocoaPercentage(69);
+
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+		assertThat(found).extracting(Chocolate::getCocoaPercentage).isSorted().allMatch(p -> p >= 55 && p <= 72);
+	}
+
+	@Test
+	void writesAreIndexed() {
+		Estate estate = new Estate("Index Estate", "Peru");
+		estateService.saveEstate(estate);
+		Chocolate chocolate = new Chocolate("Index Test", 81);
+		chocolate.addEstate(estate);
+		chocolateService.saveChocolate(chocolate);
+		assertThat(ids(cocoaIndex.findBetween(81, 81))).contains(chocolate.getId());
+
+		Chocolate changed = new Chocolate("Index Test", 33);
+		changed.setEstates(List.of(estate));
+		chocolateService.updateChocolate(changed, chocolate.getId());
+		assertThat(ids(cocoaIndex.findBetween(81, 81))).doesNotContain(chocolate.getId());
+		assertThat(ids(cocoaIndex.findLessThan(34))).contains(chocolate.getId());
+
+		Estate renamed = new Estate("Renamed Estate", "Peru");
+		estateService.updateEstate(renamed, estate.getId());
+		assertThat(cocoaIndex.findBetween(33, 33)).filteredOn(c -> c.getId().equals(chocolate.getId()))
+				.singleElement().satisfies(c -> assertThat(c.getEstates()).extracting(Estate::getName).containsExactly("Renamed Estate"));
+
+		chocolateService.deleteChocolate(chocolate.getId());
+		assertThat(ids(cocoaIndex.findLessThan(34))).doesNotContain(chocolate.getId());
+	}
+
+	@Test
+	void percentagesOutsideTheScaleAreStillFiltered() {
+		Chocolate odd = new Chocolate("Off The Scale", 150);
+		chocolateService.saveChocolate(odd);
+
+		assertThat(ids(cocoaIndex.findBetween(100, 100))).doesNotContain(odd.getId());
+		assertThat(ids(cocoaIndex.findGreaterThan(120))).contains(odd.getId());
+
+		chocolateService.deleteChocolate(odd.getId());
+	}
+
+	private static List<Long> ids(List<Chocolate> chocolates) {
+		return chocolates.stream().map(Chocolate::getId).toList();
+	}
+
+}
@@ -0,0 +1,130 @@
+package com.bnta.chocolate;
+
+import com.bnta.chocolate.models.Chocolate;
+import com.bnta.chocolate.models.Estate;
+import com.bnta.chocolate.repositories.ChocolateRepository;
+import com.bnta.chocolate.repositories.EstateRepository;
+import com.bnta.chocolate.services.EstateService;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:estate_deletes;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.jpa.properties.hibernate.session_factory.statement_inspector=com.bnta.chocolate.EstateDeleteTests$StatementLog"
+})
+class EstateDeleteTests {
+
+	@Autowired
+	EstateService estateService;
+
+	@Autowired
+	EstateRepository estateRepository;
+
+	@Autowired
+	ChocolateRepository chocolateRepository;
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	@Test
+	void deletingAnEstateKeepsItsChocolates() {
+		Estate estate = estateWithChocolates(3);
+		Estate other = estateRepository.save(new Estate("Other Estate", "Peru"));
+		Chocolate mixed = new Chocolate("Mixed Origin", 65);
+		mixed.addEstate(estate);
+		mixed.addEstate(other);
+		chocolateRepository.save(mixed);
+		long mixedVersion = chocolateRepository.findById(mixed.getId()).get().getVersion();
+
+		assertThat(estateService.deleteEstate(estate.getId())).isTrue();
+
+		assertThat(estateRepository.existsById(estate.getId())).isFalse();
+		assertThat(linksTo(estate)).isZero();
+		assertThat(linksTo(other)).isEqualTo(1);
+		Chocolate reloaded = chocolateRepository.findById(mixed.getId()).get();
+		assertThat(reloaded.getVersion()).isGreaterThan(mixedVersion);
+	}
+
+	@Test
+	void missingEstatesAreNotDeleted() {
+		assertThat(estateService.deleteEstate(999_999L)).isFalse();
+	}
+
+	@Test
+	void statementCountDoesNotGrowWithChocolates() {
+		Estate small = estateWithChocolates(1);
+		Estate large = estateWithChocolates(500);
+
+//		Bump the versions, read them back, clear the join rows, delete the
+//		estate and log the change
+		assertThat(statementsToDelete(small)).isEqualTo(5);
+		assertThat(statementsToDelete(large)).isEqualTo(5);
+		assertThat(linksTo(large)).isZero();
+	}
+
+	private int statementsToDelete(Estate estate) {
+		StatementLog.start();
+		try {
+			estateService.deleteEstate(estate.getId());
+			return StatementLog.statements.size();
+		} finally {
+			StatementLog.stop();
+		}
+	}
+
+	private Estate estateWithChocolates(int count) {
+		Estate estate = estateRepository.save(new Estate("Test Estate", "Ghana"));
+		List<Chocolate> chocolates = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Chocolate chocolate = new Chocolate("Single Origin " + i, 70);
+			chocolate.addEstate(estate);
+			chocolates.add(chocolate);
+		}
+		chocolateRepository.saveAll(chocolates);
+		return estate;
+	}
+
+	private int linksTo(Estate estate) {
+		return jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM chocolates_estates WHERE estate_id = ?", Integer.class, estate.getId());
+	}
+
+//	Only counts statements from the test's own thread, so background jobs don't
+//	show up, and leaves out fetches of the next block of change ids, which come
+//	every fifty changes whatever is being deleted
+	public static class StatementLog implements StatementInspector {
+
+		static final List<String> statements = new ArrayList<>();
+
+		private static volatile Thread recording;
+
+		static void start() {
+			statements.clear();
+			recording = Thread.currentThread();
+		}
+
+		static void stop() {
+			recording = null;
+		}
+
+		@Override
+		public String inspect(String sql) {
+			if (Thread.currentThread() == recording && !sql.toLowerCase().contains("next value for")) {
+				statements.add(sql);
+			}
+			return sql;
+		}
+
+	}
+
+}
@@ -0,0 +1,83 @@
+package com.bnta.chocolate;
+
+import com.bnta.chocolate.models.Chocolate;
+import com.bnta.chocolate.models.CountryStats;
+import com.bnta.chocolate.models.Estate;
+import com.bnta.chocolate.services.ChocolateService;
+import com.bnta.chocolate.services.EstateService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:estate_stats;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class EstateStatsTests {
+
+	@Autowired
+	EstateService estateService;
+
+	@Autowired
+	ChocolateService chocolateService;
+
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void statsAreGroupedByCountry() {
+		Estate north = estateService.saveEstate(new Estate("North Farm", "Statsland"));
+		Estate south = estateService.saveEstate(new Estate("South Farm", "Statsland"));
+		estateService.saveEstate(new Estate("Empty Farm", "Emptyland"));
+		Chocolate both = new Chocolate("Both Farms", 80);
+		both.addEstate(north);
+		both.addEstate(south);
+		chocolateService.saveChocolate(both);
+		Chocolate one = new Chocolate("One Farm", 60);
+		one.addEstate(north);
+		chocolateService.saveChocolate(one);
+
+		CountryStats statsland = statsFor("Statsland");
+		assertThat(statsland.getEstates()).isEqualTo(2);
+		assertThat(statsland.getChocolates()).isEqualTo(2);
+		assertThat(statsland.getAverageCocoaPercentage()).isEqualTo(70.0);
+
+		CountryStats emptyland = statsFor("Emptyland");
+		assertThat(emptyland.getEstates()).isEqualTo(1);
+		assertThat(emptyland.getChocolates()).isZero();
+		assertThat(emptyland.getAverageCocoaPercentage()).isNull();
+	}
+
+	@Test
+	void statsAreOneQueryAndCachedUntilAWrite() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		estateService.saveEstate(new Estate("Cache Farm", "Cacheland"));
+
+		statistics.clear();
+		estateService.findCountryStats();
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+		statistics.clear();
+		estateService.findCountryStats();
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+
+		estateService.saveEstate(new Estate("Second Cache Farm", "Cacheland"));
+		assertThat(statsFor("Cacheland").getEstates()).isEqualTo(2);
+	}
+
+	private CountryStats statsFor(String country) {
+		return estateService.findCountryStats().stream()
+				.filter(stats -> country.equals(stats.getCountry()))
+				.findFirst()
+				.orElseThrow();
+	}
+
+}
@@ -0,0 +1,119 @@
+package com.bnta.chocolate;
+
+import com.bnta.chocolate.models.ImportFormat;
+import com.bnta.chocolate.repositories.ChocolateRepository;
+import com.bnta.chocolate.repositories.EstateRepository;
+import com.bnta.chocolate.services.ChocolateImportService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Every read endpoint has to fetch what it serialises up front: with
+// open-in-view and enable_lazy_load_no_trans off, a lazy collection touched
+// while writing the JSON would fail rather than quietly open a connection.
+// The list endpoints are checked on their database path, without the
+// pre-encoded catalog snapshot in front of them.
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:fetching;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"app.catalog-snapshot.enabled=false"
+})
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class FetchStrategyTests {
+
+	private static final int CHOCOLATES = 10_000;
+
+	@Autowired
+	MockMvc mockMvc;
+
+	@Autowired
+	ChocolateImportService chocolateImportService;
+
+	@Autowired
+	ChocolateRepository chocolateRepository;
+
+	@Autowired
+	EstateRepository estateRepository;
+
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	@BeforeAll
+	void importCatalog() {
+		StringBuilder feed = new StringBuilder("name,cocoa_percentage,estate_name,estate_country\n");
+		for (int i = 0; i < CHOCOLATES; i++) {
+			feed.append("Fetched ").append(i).append(',').append(i % 101)
+					.append(",Fetch Farm ").append(i % 100).append(",Ghana\n");
+			feed.append("Fetched ").append(i).append(',').append(i % 101)
+					.append(",Fetch Farm ").append((i + 1) % 100).append(",Ghana\n");
+		}
+		assertThat(chocolateImportService.importChocolates("fetching",
+				new ByteArrayInputStream(feed.toString().getBytes(StandardCharsets.UTF_8)), ImportFormat.CSV).isCompleted()).isTrue();
+	}
+
+	@Test
+	void listingChocolatesIsOneConnectionAndOneQuery() throws Exception {
+		long chocolates = chocolateRepository.count();
+		Statistics statistics = clearedStatistics();
+
+		mockMvc.perform(get("/chocolates"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value((int) chocolates))
+				.andExpect(jsonPath("$[*].estates[*].name").isNotEmpty());
+
+		assertThat(statistics.getConnectCount()).isEqualTo(1);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+	@Test
+	void listingEstatesIsOneConnectionAndOneQuery() throws Exception {
+		long estates = estateRepository.count();
+		Statistics statistics = clearedStatistics();
+
+		mockMvc.perform(get("/estates"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value((int) estates));
+
+		assertThat(statistics.getConnectCount()).isEqualTo(1);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+	@Test
+	void showingOneChocolateOrEstateIsOneQuery() throws Exception {
+		Long chocolateId = chocolateRepository.findAll().get(0).getId();
+		Long estateId = estateRepository.findAll().get(0).getId();
+
+		Statistics statistics = clearedStatistics();
+		mockMvc.perform(get("/chocolates/" + chocolateId)).andExpect(status().isOk());
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+		statistics = clearedStatistics();
+		mockMvc.perform(get("/estates/" + estateId)).andExpect(status().isOk());
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+	private Statistics clearedStatistics() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		return statistics;
+	}
+
+}
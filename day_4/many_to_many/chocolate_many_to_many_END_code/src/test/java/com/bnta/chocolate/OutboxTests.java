@@ -0,0 +1,193 @@
+package com.bnta.chocolate;
+
+import com.bnta.chocolate.components.CatalogEventListener;
+import com.bnta.chocolate.components.OutboxRelay;
+import com.bnta.chocolate.models.CatalogEvent;
+import com.bnta.chocolate.models.Chocolate;
+import com.bnta.chocolate.models.Estate;
+import com.bnta.chocolate.services.ChocolateService;
+import com.bnta.chocolate.services.EstateService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:outbox;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"app.outbox.relay-interval=3600000",
+		"app.outbox.batch-size=2"
+})
+class OutboxTests {
+
+	@Autowired
+	ChocolateService chocolateService;
+
+	@Autowired
+	EstateService estateService;
+
+	@Autowired
+	OutboxRelay outboxRelay;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	private final List<CatalogEventListener> registered = new ArrayList<>();
+
+	@AfterEach
+	void unregister() {
+		registered.forEach(outboxRelay::unregister);
+	}
+
+	@Test
+	void eachEntityHearsItsChangesInOrder() {
+		outboxRelay.relay();
+		List<CatalogEvent> heard = listen();
+
+		Estate estate = estateService.saveEstate(new Estate("Outbox Farm", "Peru"));
+		Chocolate chocolate = new Chocolate("Outboxed", 70);
+		chocolate.addEstate(estate);
+		chocolate = chocolateService.saveChocolate(chocolate);
+		chocolateService.updateChocolate(new Chocolate("Outboxed", 75), chocolate.getId());
+		chocolateService.deleteChocolate(chocolate.getId());
+
+		assertThat(outboxRelay.getStats().get("pending")).isEqualTo(4);
+		assertThat(outboxRelay.relay()).isEqualTo(4);
+
+		List<CatalogEvent> chocolateEvents = eventsFor(heard, "Chocolate", chocolate.getId());
+		assertThat(chocolateEvents).extracting(CatalogEvent::getType).containsExactly(
+				CatalogEvent.Type.CREATED, CatalogEvent.Type.UPDATED, CatalogEvent.Type.DELETED);
+		assertThat(chocolateEvents.get(1).getVersion()).isGreaterThan(chocolateEvents.get(0).getVersion());
+
+//		Created, then gained the chocolate and lost it again on the update
+		List<CatalogEvent> estateEvents = eventsFor(heard, "Estate", estate.getId());
+		assertThat(estateEvents).extracting(CatalogEvent::getType).containsExactly(
+				CatalogEvent.Type.CREATED, CatalogEvent.Type.UPDATED, CatalogEvent.Type.UPDATED);
+		assertThat(estateEvents).extracting(CatalogEvent::getVersion).isSorted();
+		assertThat(outboxRelay.getStats().get("pending")).isZero();
+	}
+
+	@Test
+	void rolledBackWritesRaiseNothing() {
+		outboxRelay.relay();
+		List<CatalogEvent> heard = listen();
+
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			estateService.saveEstate(new Estate("Never Was", "Peru"));
+			status.setRollbackOnly();
+		});
+
+		assertThat(outboxRelay.getStats().get("pending")).isZero();
+		assertThat(outboxRelay.relay()).isZero();
+		assertThat(heard).isEmpty();
+	}
+
+	@Test
+	void failedDeliveriesAreRetriedWithoutReordering() {
+		outboxRelay.relay();
+		List<CatalogEvent> heard = listen();
+		Chocolate failing = chocolateService.saveChocolate(new Chocolate("Fails Once", 60));
+		Chocolate other = chocolateService.saveChocolate(new Chocolate("Goes Through", 60));
+		chocolateService.updateChocolate(new Chocolate("Fails Once", 65), failing.getId());
+		boolean[] failed = new boolean[1];
+		listen(event -> {
+			if (event.getEntityId() == failing.getId() && !failed[0]) {
+				failed[0] = true;
+				throw new IllegalStateException("Listener down");
+			}
+		});
+		long failures = outboxRelay.getStats().get("failedDeliveries");
+
+		assertThat(outboxRelay.relay()).isEqualTo(1);
+		assertThat(eventsFor(heard, "Chocolate", other.getId())).hasSize(1);
+		assertThat(eventsFor(heard, "Chocolate", failing.getId())).extracting(CatalogEvent::getType)
+				.containsExactly(CatalogEvent.Type.CREATED);
+		assertThat(outboxRelay.getStats().get("failedDeliveries")).isEqualTo(failures + 1);
+		assertThat(outboxRelay.getStats().get("pending")).isEqualTo(2);
+
+//		At least once: the first listener hears the failed event again
+		assertThat(outboxRelay.relay()).isEqualTo(2);
+		assertThat(eventsFor(heard, "Chocolate", failing.getId())).extracting(CatalogEvent::getType)
+				.containsExactly(CatalogEvent.Type.CREATED, CatalogEvent.Type.CREATED, CatalogEvent.Type.UPDATED);
+		assertThat(outboxRelay.getStats().get("pending")).isZero();
+	}
+
+	@Test
+	void rowsBehindAStuckHeadAreStillRelayed() {
+		outboxRelay.relay();
+		List<CatalogEvent> heard = listen();
+		Chocolate stuck = chocolateService.saveChocolate(new Chocolate("Always Fails", 60));
+		chocolateService.updateChocolate(new Chocolate("Always Fails", 65), stuck.getId());
+		Chocolate behind = chocolateService.saveChocolate(new Chocolate("Behind The Head", 60));
+		boolean[] down = {true};
+		listen(event -> {
+			if (event.getEntityId() == stuck.getId() && down[0]) {
+				throw new IllegalStateException("Listener down");
+			}
+		});
+
+//		A whole batch of held back rows at the head, and one more behind them
+		assertThat(outboxRelay.relay()).isEqualTo(1);
+		assertThat(eventsFor(heard, "Chocolate", behind.getId())).hasSize(1);
+		assertThat(outboxRelay.getStats().get("pending")).isEqualTo(2);
+
+		down[0] = false;
+		assertThat(outboxRelay.relay()).isEqualTo(2);
+		assertThat(eventsFor(heard, "Chocolate", stuck.getId())).extracting(CatalogEvent::getType)
+				.containsExactly(CatalogEvent.Type.CREATED, CatalogEvent.Type.CREATED, CatalogEvent.Type.UPDATED);
+	}
+
+	@Test
+	void unreadableRowsAreMovedAside() {
+		outboxRelay.relay();
+		List<CatalogEvent> heard = listen();
+		long deadLetters = outboxRelay.getStats().get("deadLetters");
+		for (int i = 0; i < 2; i++) {
+			jdbcTemplate.update("INSERT INTO catalog_outbox (id, created_at, events) "
+					+ "VALUES (NEXT VALUE FOR catalog_outbox_id_seq, ?, 'not json')", System.currentTimeMillis());
+		}
+		Chocolate chocolate = chocolateService.saveChocolate(new Chocolate("After The Poison", 60));
+
+		assertThat(outboxRelay.relay()).isEqualTo(1);
+		assertThat(eventsFor(heard, "Chocolate", chocolate.getId())).hasSize(1);
+		assertThat(outboxRelay.getStats().get("pending")).isZero();
+		assertThat(outboxRelay.getStats().get("deadLetters")).isEqualTo(deadLetters + 2);
+		assertThat(jdbcTemplate.queryForList("SELECT events FROM catalog_outbox_dead_letters", String.class))
+				.contains("not json");
+	}
+
+	private List<CatalogEvent> listen() {
+		List<CatalogEvent> heard = new CopyOnWriteArrayList<>();
+		listen(heard::add);
+		return heard;
+	}
+
+	private void listen(CatalogEventListener listener) {
+		registered.add(listener);
+		outboxRelay.register(listener);
+	}
+
+	private static List<CatalogEvent> eventsFor(List<CatalogEvent> events, String entity, Long id) {
+		List<CatalogEvent> found = new ArrayList<>();
+		for (CatalogEvent event : events) {
+			if (event.getEntity().equals(entity) && event.getEntityId() == id) {
+				found.add(event);
+			}
+		}
+		return found;
+	}
+
+}
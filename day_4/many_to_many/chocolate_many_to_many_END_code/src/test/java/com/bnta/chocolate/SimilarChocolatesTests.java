@@ -0,0 +1,97 @@
+package com.bnta.chocolate;
+
+import com.bnta.chocolate.components.CatalogGraph;
+import com.bnta.chocolate.models.Chocolate;
+import com.bnta.chocolate.models.Estate;
+import com.bnta.chocolate.models.SimilarChocolate;
+import com.bnta.chocolate.services.ChocolateService;
+import com.bnta.chocolate.services.EstateService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:similar_chocolates;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa"
+})
+@AutoConfigureMockMvc
+class SimilarChocolatesTests {
+
+	@Autowired
+	CatalogGraph catalogGraph;
+
+	@Autowired
+	ChocolateService chocolateService;
+
+	@Autowired
+	EstateService estateService;
+
+	@Autowired
+	MockMvc mockMvc;
+
+	@Test
+	void ranksByEstateOverlapThenCocoaPercentage() throws Exception {
+		Estate first = estateService.saveEstate(new Estate("Similar Farm", "Ghana"));
+		Estate second = estateService.saveEstate(new Estate("Second Similar Farm", "Ghana"));
+		Estate third = estateService.saveEstate(new Estate("Third Similar Farm", "Ghana"));
+		Chocolate target = saveChocolate("Target", 70, first, second);
+		Chocolate sameEstates = saveChocolate("Same Estates", 85, first, second);
+		Chocolate oneMore = saveChocolate("One More", 70, first, second, third);
+		Chocolate halfNear = saveChocolate("Half Near", 72, first);
+		Chocolate halfFar = saveChocolate("Half Far", 50, second);
+		Chocolate unrelated = saveChocolate("Unrelated", 70, third);
+
+		CatalogGraph.Snapshot graph = awaitGraph(snapshot -> snapshot.hasChocolate(unrelated.getId()));
+		List<SimilarChocolate> similar = graph.similarChocolates(target.getId(), 10);
+		assertThat(similar).extracting(SimilarChocolate::getId)
+				.containsExactly(sameEstates.getId(), oneMore.getId(), halfNear.getId(), halfFar.getId());
+		assertThat(similar).extracting(SimilarChocolate::getSimilarity).containsExactly(1.0, 2.0 / 3, 0.5, 0.5);
+		assertThat(similar).extracting(SimilarChocolate::getSharedEstates).containsExactly(2, 2, 1, 1);
+
+		assertThat(graph.similarChocolates(target.getId(), 10)).isEqualTo(similar);
+		assertThat(graph.similarChocolates(target.getId(), 2)).extracting(SimilarChocolate::getId)
+				.containsExactly(sameEstates.getId(), oneMore.getId());
+
+		mockMvc.perform(get("/chocolates/" + target.getId() + "/similar?limit=3"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(3))
+				.andExpect(jsonPath("$[0].id").value(sameEstates.getId()));
+		mockMvc.perform(get("/chocolates/" + target.getId() + "/similar?limit=0")).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/chocolates/" + Long.MAX_VALUE + "/similar")).andExpect(status().isNotFound());
+
+//		A write replaces the snapshot, and its rankings with it
+		chocolateService.deleteChocolate(sameEstates.getId());
+		graph = awaitGraph(snapshot -> !snapshot.hasChocolate(sameEstates.getId()));
+		assertThat(graph.similarChocolates(target.getId(), 10)).extracting(SimilarChocolate::getId)
+				.containsExactly(oneMore.getId(), halfNear.getId(), halfFar.getId());
+	}
+
+	private Chocolate saveChocolate(String name, int cocoaPercentage, Estate... estates) {
+		Chocolate chocolate = new Chocolate(name, cocoaPercentage);
+		for (Estate estate : estates) {
+			chocolate.addEstate(estate);
+		}
+		return chocolateService.saveChocolate(chocolate);
+	}
+
+	private CatalogGraph.Snapshot awaitGraph(Predicate<CatalogGraph.Snapshot> condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5_000;
+		while (!condition.test(catalogGraph.getSnapshot())) {
+			assertThat(System.currentTimeMillis()).isLessThan(deadline);
+			Thread.sleep(10);
+		}
+		return catalogGraph.getSnapshot();
+	}
+
+}
@@ -0,0 +1,156 @@
+package com.bnta.chocolate;
+
+import com.bnta.chocolate.components.ChocolatePurger;
+import com.bnta.chocolate.models.Chocolate;
+import com.bnta.chocolate.models.Estate;
+import com.bnta.chocolate.repositories.ChocolateRepository;
+import com.bnta.chocolate.repositories.EstateRepository;
+import com.bnta.chocolate.services.ChocolateService;
+import com.bnta.chocolate.services.EstateService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:soft_deletes;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"app.purge.interval=3600000",
+		"app.purge.batch-size=100"
+})
+@AutoConfigureMockMvc
+class SoftDeleteTests {
+
+	@Autowired
+	ChocolateService chocolateService;
+
+	@Autowired
+	EstateService estateService;
+
+	@Autowired
+	ChocolateRepository chocolateRepository;
+
+	@Autowired
+	EstateRepository estateRepository;
+
+	@Autowired
+	ChocolatePurger chocolatePurger;
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	MockMvc mockMvc;
+
+	@Test
+	void deletedChocolatesAreHiddenThenPurged() throws Exception {
+		Estate estate = estateService.saveEstate(new Estate("Tombstone Farm", "Haiti"));
+		Chocolate kept = chocolateWith("Kept", estate);
+		Chocolate deleted = chocolateWith("Deleted", estate);
+
+		mockMvc.perform(delete("/chocolates/" + deleted.getId())).andExpect(status().isOk());
+		mockMvc.perform(delete("/chocolates/" + deleted.getId())).andExpect(status().isNotFound());
+
+		assertThat(chocolateRepository.findWithEstatesById(deleted.getId())).isEmpty();
+		assertThat(chocolateRepository.findAllWithEstates()).extracting(Chocolate::getId).doesNotContain(deleted.getId());
+		assertThat(estateService.findEstate(estate.getId()).getChocolates()).extracting(Chocolate::getId)
+				.containsExactly(kept.getId());
+		assertThat(estateRepository.findAllWithChocolates()).flatExtracting(Estate::getChocolates)
+				.extracting(Chocolate::getId).contains(kept.getId()).doesNotContain(deleted.getId());
+		mockMvc.perform(get("/estates/" + estate.getId()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.chocolates[*].id", contains(kept.getId().intValue())));
+		mockMvc.perform(get("/estates"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[*].chocolates[*].id", hasItem(kept.getId().intValue())))
+				.andExpect(jsonPath("$[*].chocolates[*].id", not(hasItem(deleted.getId().intValue()))));
+		assertThat(rows(deleted)).isEqualTo(1);
+
+		assertThat(chocolatePurger.purge()).isGreaterThanOrEqualTo(1);
+		assertThat(rows(deleted)).isZero();
+		assertThat(links(deleted)).isZero();
+		assertThat(links(kept)).isEqualTo(1);
+	}
+
+	@Test
+	void purgingWorksThroughEveryBatch() {
+		List<Chocolate> chocolates = new ArrayList<>();
+		for (int i = 0; i < 250; i++) {
+			chocolates.add(new Chocolate("Batch Purged " + i, 60));
+		}
+		chocolateRepository.saveAll(chocolates);
+		for (Chocolate chocolate : chocolates) {
+			chocolateService.deleteChocolate(chocolate.getId());
+		}
+
+		chocolatePurger.purge();
+
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chocolates WHERE deleted = TRUE", Integer.class)).isZero();
+	}
+
+	@Test
+	void statementCountDoesNotGrowWithTheCatalog() {
+		Estate estate = estateService.saveEstate(new Estate("Flat Delete Farm", "Haiti"));
+		Chocolate early = chocolateWith("Early", estate);
+		long before = statementsToDelete(early);
+
+		List<Chocolate> chocolates = new ArrayList<>();
+		for (int i = 0; i < 2_000; i++) {
+			Chocolate chocolate = new Chocolate("Catalog Filler " + i, i % 101);
+			chocolate.addEstate(estate);
+			chocolates.add(chocolate);
+		}
+		chocolateRepository.saveAll(chocolates);
+		Chocolate late = chocolateWith("Late", estate);
+
+//		The tombstone, the change log entry and the estates' versions, and now
+//		and then a fetch of the next block of change ids
+		assertThat(before).isLessThanOrEqualTo(5);
+		assertThat(statementsToDelete(late)).isLessThanOrEqualTo(5);
+	}
+
+	private long statementsToDelete(Chocolate chocolate) {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		assertThat(chocolateService.deleteChocolate(chocolate.getId())).isTrue();
+		return statistics.getPrepareStatementCount();
+	}
+
+	private Chocolate chocolateWith(String name, Estate estate) {
+		Chocolate chocolate = new Chocolate(name, 70);
+		chocolate.addEstate(estate);
+		return chocolateService.saveChocolate(chocolate);
+	}
+
+	private int rows(Chocolate chocolate) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chocolates WHERE id = ?", Integer.class, chocolate.getId());
+	}
+
+	private int links(Chocolate chocolate) {
+		return jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM chocolates_estates WHERE chocolate_id = ?", Integer.class, chocolate.getId());
+	}
+
+}
@@ -0,0 +1,74 @@
+package com.example.airline_api.components;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Latest known @Version of each entity, so conditional GETs can be answered
+// without going to the database. Versions only ever move forward here, so a
+// slow read of an old row can't wind an entry back.
+@Component
+public class EntityVersions {
+
+    private final Map<Class<?>, Map<Long, Long>> versions = new ConcurrentHashMap<>();
+
+    public Long getVersion(Class<?> type, long id) {
+        return versionsOf(type).get(id);
+    }
+
+    public void record(Class<?> type, long id, long version) {
+        versionsOf(type).merge(id, version, Math::max);
+    }
+
+//    Writes only become visible once their transaction has committed
+    public void recordAfterCommit(Class<?> type, long id, long version) {
+        afterCommit(() -> record(type, id, version));
+    }
+
+    public void forgetAfterCommit(Class<?> type, long id) {
+        afterCommit(() -> versionsOf(type).remove(id));
+    }
+
+    public static String etag(long version) {
+        return "\"" + version + "\"";
+    }
+
+//    If-None-Match uses the weak comparison, so W/ prefixes are ignored
+    public static boolean matches(String ifNoneMatch, long version) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String etag = etag(version);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Map<Long, Long> versionsOf(Class<?> type) {
+        return versions.computeIfAbsent(type, key -> new ConcurrentHashMap<>());
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+}
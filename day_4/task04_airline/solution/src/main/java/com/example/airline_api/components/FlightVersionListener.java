@@ -0,0 +1,35 @@
+package com.example.airline_api.components;
+
+import com.example.airline_api.models.Flight;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+// Created by Hibernate through Spring, so it can be autowired. Booking a
+// passenger changes the flight's own passenger list, so Hibernate bumps the
+// flight's version for us.
+public class FlightVersionListener {
+
+    @Autowired
+    EntityVersions entityVersions;
+
+    @PostLoad
+    public void loaded(Flight flight) {
+        entityVersions.record(Flight.class, flight.getId(), flight.getVersion());
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void saved(Flight flight) {
+        entityVersions.recordAfterCommit(Flight.class, flight.getId(), flight.getVersion());
+    }
+
+    @PostRemove
+    public void removed(Flight flight) {
+        entityVersions.forgetAfterCommit(Flight.class, flight.getId());
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.example.airline_api.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Marks a read that can put up with a lagging replica. Read-only
+// transactions only go to a replica while a method carrying this is
+// running; any other read-only transaction, such as the one Spring Data
+// opens around a bare repository call, stays on the primary.
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ReplicaRead {
+}
@@ -0,0 +1,25 @@
+package com.example.airline_api.controllers;
+
+import com.example.airline_api.config.ReplicaRoutingDataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/datasources")
+public class DataSourceController {
+
+    @Autowired
+    ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @GetMapping
+    public ResponseEntity<Map<String, Long>> getRoutingStats(){
+        return new ResponseEntity<>(replicaRoutingDataSource.getRoutingStats(), HttpStatus.OK);
+    }
+
+}
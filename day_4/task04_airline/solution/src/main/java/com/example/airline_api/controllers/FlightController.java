@@ -1,9 +1,11 @@
 package com.example.airline_api.controllers;
 
+import com.example.airline_api.components.EntityVersions;
 import com.example.airline_api.models.BookingDTO;
 import com.example.airline_api.models.Flight;
 import com.example.airline_api.services.FlightService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -17,6 +19,9 @@ public class FlightController {
     @Autowired
     FlightService flightService;
 
+    @Autowired
+    EntityVersions entityVersions;
+
     @GetMapping
     public ResponseEntity<List<Flight>> getAllFlights(){
         List<Flight> flights = flightService.getAllFlights();
@@ -24,9 +29,18 @@ public class FlightController {
     }
 
     @GetMapping(value = "/{id}")
-    public ResponseEntity<Flight> getFlightById(@PathVariable long id){
+    public ResponseEntity<Flight> getFlightById(
+            @PathVariable long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ){
+//        Revalidations against the latest known version are answered with a
+//        304 without loading the flight or its passengers
+        Long knownVersion = entityVersions.getVersion(Flight.class, id);
+        if (knownVersion != null && EntityVersions.matches(ifNoneMatch, knownVersion)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(EntityVersions.etag(knownVersion)).build();
+        }
         Flight flight = flightService.getFlightById(id);
-        return new ResponseEntity<>(flight, HttpStatus.OK);
+        return ResponseEntity.ok().eTag(EntityVersions.etag(flight.getVersion())).body(flight);
     }
 
     @PostMapping
@@ -1,5 +1,7 @@
 package com.example.airline_api.models;
 
+import com.example.airline_api.components.FlightVersionListener;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import javax.persistence.*;
@@ -7,10 +9,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity(name = "flights")
+@EntityListeners(FlightVersionListener.class)
 public class Flight {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "flight_generator")
+    @SequenceGenerator(name = "flight_generator", sequenceName = "flights_id_seq", allocationSize = 50)
     private long id;
 
     @Column(name = "destination")
@@ -25,6 +29,10 @@ public class Flight {
     @Column(name = "departureTime")
     private String departureTime;
 
+    @Version
+    @Column(name = "version")
+    private long version;
+
     @ManyToMany
     @JoinTable(
             name = "flights_passengers",
@@ -85,6 +93,11 @@ public class Flight {
         this.departureTime = departureTime;
     }
 
+    @JsonIgnore
+    public long getVersion() {
+        return version;
+    }
+
     public List<Passenger> getPassengers() {
         return passengers;
     }
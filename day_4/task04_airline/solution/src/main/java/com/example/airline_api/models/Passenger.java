@@ -10,7 +10,8 @@ import java.util.List;
 public class Passenger {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "passenger_generator")
+    @SequenceGenerator(name = "passenger_generator", sequenceName = "passengers_id_seq", allocationSize = 50)
     private long id;
 
     @Column(name = "name")
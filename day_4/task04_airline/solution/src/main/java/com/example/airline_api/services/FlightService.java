@@ -1,10 +1,12 @@
 package com.example.airline_api.services;
 
+import com.example.airline_api.config.ReplicaRead;
 import com.example.airline_api.models.Flight;
 import com.example.airline_api.models.Passenger;
 import com.example.airline_api.repositories.FlightRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -17,10 +19,14 @@ public class FlightService {
     @Autowired
     PassengerService passengerService;
 
+    @ReplicaRead
+    @Transactional(readOnly = true)
     public List<Flight> getAllFlights(){
         return flightRepository.findAll();
     }
 
+    @ReplicaRead
+    @Transactional(readOnly = true)
     public Flight getFlightById(long id){
         return flightRepository.findById(id).get();
     }
@@ -30,6 +36,7 @@ public class FlightService {
         return flight;
     }
 
+    @Transactional
     public Flight addPassengerToFlight(long flightId, long passengerId){
         Flight flight = flightRepository.findById(flightId).get();
         Passenger passenger = passengerService.getPassengerById(passengerId);
@@ -1,9 +1,11 @@
 package com.example.airline_api.services;
 
+import com.example.airline_api.config.ReplicaRead;
 import com.example.airline_api.models.Passenger;
 import com.example.airline_api.repositories.PassengerRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -13,10 +15,14 @@ public class PassengerService {
     @Autowired
     PassengerRepository passengerRepository;
 
+    @ReplicaRead
+    @Transactional(readOnly = true)
     public List<Passenger> getAllPassengers(){
         return passengerRepository.findAll();
     }
 
+    @ReplicaRead
+    @Transactional(readOnly = true)
     public Passenger getPassengerById(Long id){
         return passengerRepository.findById(id).get();
     }
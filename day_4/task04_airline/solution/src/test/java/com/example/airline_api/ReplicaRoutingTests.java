@@ -0,0 +1,108 @@
+package com.example.airline_api;
+
+import com.example.airline_api.config.ReplicaRead;
+import com.example.airline_api.config.ReplicaRoutingDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Two in-memory H2 databases stand in for the primary and its replica
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.username=sa",
+		"app.datasource.replicas[0].url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1",
+		"app.datasource.replicas[0].username=sa",
+		"app.datasource.replica-lag-query=SELECT 0",
+		"app.datasource.replica-check-interval=3600000"
+})
+class ReplicaRoutingTests {
+
+	@Autowired
+	DataSource dataSource;
+
+	@Autowired
+	ReplicaRoutingDataSource replicaRoutingDataSource;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@AfterEach
+	void resetLag() {
+		replicaRoutingDataSource.recordReplicaLag(0, 0);
+	}
+
+	@Autowired
+	ReplicaReader replicaReader;
+
+	@Test
+	void replicaReadsUseReplica() {
+		long before = replicaRoutingDataSource.getRoutingStats().get("replica-0");
+		assertThat(replicaReader.databaseUrl()).contains("replica");
+		assertThat(ReplicaRoutingDataSource.readingFromReplicas(() -> databaseUrlInTransaction(true))).contains("replica");
+		assertThat(replicaRoutingDataSource.getRoutingStats().get("replica-0")).isEqualTo(before + 2);
+	}
+
+//	Such as Spring Data's own transaction around a bare repository read
+	@Test
+	void otherReadOnlyTransactionsUsePrimary() {
+		assertThat(databaseUrlInTransaction(true)).contains("primary");
+	}
+
+	@Test
+	void writeTransactionsUsePrimary() {
+		assertThat(ReplicaRoutingDataSource.readingFromReplicas(() -> databaseUrlInTransaction(false))).contains("primary");
+	}
+
+	@Test
+	void laggingReplicaFallsBackToPrimary() {
+		replicaRoutingDataSource.recordReplicaLag(0, 60_000);
+		long before = replicaRoutingDataSource.getRoutingStats().get(ReplicaRoutingDataSource.FALLBACK);
+		assertThat(replicaReader.databaseUrl()).contains("primary");
+		assertThat(replicaRoutingDataSource.getRoutingStats().get(ReplicaRoutingDataSource.FALLBACK)).isEqualTo(before + 1);
+	}
+
+	private String databaseUrlInTransaction(boolean readOnly) {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		transactionTemplate.setReadOnly(readOnly);
+		return transactionTemplate.execute(status -> databaseUrl(dataSource));
+	}
+
+	private static String databaseUrl(DataSource dataSource) {
+		return new JdbcTemplate(dataSource).execute((ConnectionCallback<String>) connection -> connection.getMetaData().getURL());
+	}
+
+	@TestConfiguration
+	static class ReplicaReaderConfig {
+
+		@Bean
+		ReplicaReader replicaReader() {
+			return new ReplicaReader();
+		}
+	}
+
+	static class ReplicaReader {
+
+		@Autowired
+		DataSource dataSource;
+
+		@ReplicaRead
+		@Transactional(readOnly = true)
+		public String databaseUrl() {
+			return ReplicaRoutingTests.databaseUrl(dataSource);
+		}
+	}
+
+}